@@ -0,0 +1,103 @@
+package benchmarks;
+
+import models.Female;
+import models.GenealogicalTree;
+import models.GenealogicalTreeNode;
+import models.Male;
+import models.StorageMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер добавления человека в дерево к существующим парам родителей. Добавленные узлы увеличивают дерево,
+ * поэтому перед каждой итерацией дерево строится заново.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddPersonBenchmark {
+
+    /**
+     * Форма дерева.
+     */
+    @Param({ "chain", "wide", "pedigree" })
+    public TreeGenerator.Shape shape;
+
+    /**
+     * Размер дерева.
+     */
+    @Param({ "1000", "100000", "1000000" })
+    public int size;
+
+    /**
+     * Способ хранения узлов.
+     */
+    @Param({ "objects" })
+    public StorageMode storageMode;
+
+    /**
+     * Дерево замера.
+     */
+    private GenealogicalTree tree;
+
+    /**
+     * Отцы добавляемых людей.
+     */
+    private GenealogicalTreeNode[] fathers;
+
+    /**
+     * Матери добавляемых людей.
+     */
+    private GenealogicalTreeNode[] mothers;
+
+    /**
+     * Номер следующего добавления.
+     */
+    private int index;
+
+    /**
+     * Метод построения дерева и выбора случайных пар родителей перед итерацией.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        tree = null;
+        fathers = null;
+        mothers = null;
+        tree = TreeGenerator.generate(shape, size, storageMode, size);
+        fathers = new GenealogicalTreeNode[TreeBenchmark.IDS];
+        mothers = new GenealogicalTreeNode[TreeBenchmark.IDS];
+        int[] children = TreeGenerator.randomIds(tree.size(), TreeBenchmark.IDS, index);
+        for (int i = 0; i < TreeBenchmark.IDS; i++) {
+            GenealogicalTreeNode child = tree.findNode(children[i]);
+            while (child.getFather() == null)
+                child = tree.findNode(child.getId() + 1 > tree.size() ? 3 : child.getId() + 1);
+            fathers[i] = child.getFather();
+            mothers[i] = child.getMother();
+        }
+    }
+
+    /**
+     * Замер добавления человека.
+     * @return Узел добавленного человека.
+     */
+    @Benchmark
+    public GenealogicalTreeNode addPerson() {
+        int i = index++ & (TreeBenchmark.IDS - 1);
+        return tree.addPerson((i & 1) == 0 ? new Male("Новый") : new Female("Новая"), fathers[i], mothers[i]);
+    }
+}
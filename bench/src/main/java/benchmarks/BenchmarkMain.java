@@ -0,0 +1,32 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Точка входа замеров: запуск JMH с профилировщиком gc, который добавляет к каждому замеру
+ * байты, выделенные на операцию (gc.alloc.rate.norm), и количество сборок мусора.
+ * <p>
+ * Сборка и запуск: {@code mvn install} в корне проекта, затем {@code mvn -f bench/pom.xml package}
+ * и {@code java -jar bench/target/benchmarks.jar [параметры JMH]}, например
+ * {@code java -jar bench/target/benchmarks.jar TreeBenchmark -p shape=pedigree -p size=1000000}.
+ */
+public class BenchmarkMain {
+
+    /**
+     * Точка входа.
+     * @param args Параметры командной строки JMH.
+     * @throws CommandLineOptionException Возбуждается при ошибке в параметрах.
+     * @throws RunnerException Возбуждается при ошибке замера.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
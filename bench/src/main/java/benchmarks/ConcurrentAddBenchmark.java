@@ -0,0 +1,156 @@
+package benchmarks;
+
+import models.Female;
+import models.GenealogicalTree;
+import models.GenealogicalTreeBatch;
+import models.GenealogicalTreeNode;
+import models.Male;
+import models.StorageMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер масштабирования одновременного добавления людей в одно дерево с количеством потоков записи.
+ * Каждый поток добавляет детей случайным парам родителей из общего набора, поэтому потоки чаще добавляют
+ * детей разным родителям, но иногда сталкиваются на одном. Добавленные узлы увеличивают дерево,
+ * поэтому перед каждой итерацией дерево строится заново.
+ * <p>
+ * Замеры с 1, 2, 4, 8 и 16 потоками описаны вложенными классами, например
+ * {@code java -jar bench/target/benchmarks.jar ConcurrentAddBenchmark}. Рост пропускной способности
+ * с количеством потоков виден только при достаточном количестве процессоров.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class ConcurrentAddBenchmark {
+
+    /**
+     * Размер дерева перед итерацией.
+     */
+    private static final int SIZE = 100000;
+
+    /**
+     * Количество людей в пакете.
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * Способ хранения узлов.
+     */
+    @Param({ "objects", "columnar" })
+    public StorageMode storageMode;
+
+    /**
+     * Дерево замера.
+     */
+    private GenealogicalTree tree;
+
+    /**
+     * Отцы добавляемых людей.
+     */
+    private GenealogicalTreeNode[] fathers;
+
+    /**
+     * Матери добавляемых людей.
+     */
+    private GenealogicalTreeNode[] mothers;
+
+    /**
+     * Метод построения дерева и выбора случайных пар родителей перед итерацией.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        tree = null;
+        fathers = null;
+        mothers = null;
+        tree = TreeGenerator.generate(TreeGenerator.Shape.wide, SIZE, storageMode, SIZE);
+        fathers = new GenealogicalTreeNode[TreeBenchmark.IDS];
+        mothers = new GenealogicalTreeNode[TreeBenchmark.IDS];
+        int[] children = TreeGenerator.randomIds(tree.size(), TreeBenchmark.IDS, SIZE);
+        for (int i = 0; i < TreeBenchmark.IDS; i++) {
+            GenealogicalTreeNode child = tree.findNode(children[i]);
+            while (child.getFather() == null)
+                child = tree.findNode(child.getId() + 1 > tree.size() ? 3 : child.getId() + 1);
+            fathers[i] = child.getFather();
+            mothers[i] = child.getMother();
+        }
+    }
+
+    /**
+     * Замер добавления человека.
+     * @return Узел добавленного человека.
+     */
+    @Benchmark
+    public GenealogicalTreeNode addPerson() {
+        int i = ThreadLocalRandom.current().nextInt(TreeBenchmark.IDS);
+        return tree.addPerson((i & 1) == 0 ? new Male("Новый") : new Female("Новая"), fathers[i], mothers[i]);
+    }
+
+    /**
+     * Замер пакетного добавления людей к случайным парам родителей. В замер входит заполнение пакета.
+     * @return Созданные узлы.
+     */
+    @Benchmark
+    public List<GenealogicalTreeNode> addPersons() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        GenealogicalTreeBatch batch = new GenealogicalTreeBatch();
+        for (int j = 0; j < BATCH; j++) {
+            int i = random.nextInt(TreeBenchmark.IDS);
+            batch.add((i & 1) == 0 ? new Male("Новый") : new Female("Новая"), fathers[i], mothers[i]);
+        }
+        return tree.addPersons(batch);
+    }
+
+    /**
+     * Замер одним потоком.
+     */
+    @Threads(1)
+    public static class Threads1 extends ConcurrentAddBenchmark {
+    }
+
+    /**
+     * Замер двумя потоками.
+     */
+    @Threads(2)
+    public static class Threads2 extends ConcurrentAddBenchmark {
+    }
+
+    /**
+     * Замер четырьмя потоками.
+     */
+    @Threads(4)
+    public static class Threads4 extends ConcurrentAddBenchmark {
+    }
+
+    /**
+     * Замер восемью потоками.
+     */
+    @Threads(8)
+    public static class Threads8 extends ConcurrentAddBenchmark {
+    }
+
+    /**
+     * Замер шестнадцатью потоками.
+     */
+    @Threads(16)
+    public static class Threads16 extends ConcurrentAddBenchmark {
+    }
+}
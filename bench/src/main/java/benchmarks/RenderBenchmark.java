@@ -0,0 +1,135 @@
+package benchmarks;
+
+import controllers.GenealogicalTreeController;
+import controllers.GenealogicalTreeRenderer;
+import models.GenealogicalTree;
+import models.StorageMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import repositories.GenealogicalTreeRepository;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры записи всего дерева: потоковая запись рендерером в приемник, который только считает символы,
+ * и повторное получение текста контроллером из кэша.
+ * <p>
+ * Отступы цепочки поколений дают квадратичный объем текста, поэтому размеры по умолчанию меньше,
+ * чем в {@link TreeBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    /**
+     * Форма дерева.
+     */
+    @Param({ "chain", "wide", "pedigree" })
+    public TreeGenerator.Shape shape;
+
+    /**
+     * Размер дерева.
+     */
+    @Param({ "1000", "10000" })
+    public int size;
+
+    /**
+     * Дерево замера.
+     */
+    private GenealogicalTree tree;
+
+    /**
+     * Контроллер с кэшем текста деревьев.
+     */
+    private GenealogicalTreeController controller;
+
+    /**
+     * Приемник текста.
+     */
+    private final CountingWriter sink = new CountingWriter();
+
+    /**
+     * Метод построения дерева и заполнения кэша контроллера перед замером.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = TreeGenerator.generate(shape, size, StorageMode.objects, size);
+        controller = new GenealogicalTreeController(new GenealogicalTreeRepository());
+        controller.getAllTree(tree);
+    }
+
+    /**
+     * Замер потоковой записи дерева.
+     * @return Количество записанных символов.
+     * @throws IOException Не возбуждается приемником замера.
+     */
+    @Benchmark
+    public long render() throws IOException {
+        GenealogicalTreeRenderer.render(tree.snapshot(), sink);
+        return sink.count;
+    }
+
+    /**
+     * Замер получения текста дерева из кэша контроллера.
+     * @return Текст дерева.
+     */
+    @Benchmark
+    public String getAllTreeCached() {
+        return controller.getAllTree(tree);
+    }
+
+    /**
+     * Класс, описывающий приемник текста, который только считает записанные символы.
+     */
+    private static final class CountingWriter extends Writer {
+
+        /**
+         * Количество записанных символов.
+         */
+        long count;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public Writer append(CharSequence text) {
+            count += text.length();
+            return this;
+        }
+
+        @Override
+        public Writer append(char c) {
+            count++;
+            return this;
+        }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+    }
+}
@@ -0,0 +1,160 @@
+package benchmarks;
+
+import models.GenealogicalTree;
+import models.Male;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import repositories.ConcurrentGenealogicalTreeRepository;
+import repositories.GenealogicalTreeRepository;
+import repositories.IGenealogicalTreeRepository;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение репозиториев генеалогических деревьев под смешанной нагрузкой:
+ * несколько потоков читают список деревьев и отдельные деревья, один поток добавляет и удаляет деревья.
+ * <p>
+ * {@link GenealogicalTreeRepository} не потокобезопасен, поэтому в сравнении он защищен общей блокировкой -
+ * так его пришлось бы использовать при обслуживании нескольких клиентов.
+ * <p>
+ * По умолчанию работают три потока чтения и один поток записи, другое соотношение задается параметром
+ * {@code -tg <чтение>,<запись>}.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    /**
+     * Начальное количество деревьев.
+     */
+    private static final int TREES = 100;
+
+    /**
+     * Репозиторий: synchronized - {@link GenealogicalTreeRepository} под общей блокировкой,
+     * concurrent - {@link ConcurrentGenealogicalTreeRepository}.
+     */
+    @Param({ "synchronized", "concurrent" })
+    public String repository;
+
+    /**
+     * Репозиторий замера.
+     */
+    private IGenealogicalTreeRepository target;
+
+    /**
+     * Номер следующего добавляемого дерева.
+     */
+    private int next;
+
+    /**
+     * Метод заполнения репозитория перед замером.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        target = repository.equals("concurrent")
+                ? new ConcurrentGenealogicalTreeRepository()
+                : new SynchronizedRepository(new GenealogicalTreeRepository());
+        for (next = 0; next < TREES; next++)
+            target.add(new GenealogicalTree("Дерево " + next, new Male("Глава " + next)));
+    }
+
+    /**
+     * Замер чтения: список деревьев и случайное дерево, которого может уже не быть.
+     * @param blackhole Приемник результатов.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public void read(Blackhole blackhole) {
+        Map<Integer, GenealogicalTree> all = target.getAll();
+        blackhole.consume(all.size());
+        blackhole.consume(target.get(ThreadLocalRandom.current().nextInt(TREES << 1)));
+    }
+
+    /**
+     * Замер записи: добавление дерева и удаление самого старого, чтобы количество деревьев не менялось.
+     * @return Идентификатор добавленного дерева.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public int write() {
+        int id = target.add(new GenealogicalTree("Дерево " + next, new Male("Глава " + next)));
+        next++;
+        target.remove(id - TREES);
+        return id;
+    }
+
+    /**
+     * Класс, описывающий репозиторий, все методы которого выполняются под общей блокировкой.
+     */
+    private static final class SynchronizedRepository implements IGenealogicalTreeRepository {
+
+        /**
+         * Защищаемый репозиторий.
+         */
+        private final IGenealogicalTreeRepository repository;
+
+        /**
+         * Инициализация обертки.
+         * @param repository Защищаемый репозиторий.
+         */
+        SynchronizedRepository(IGenealogicalTreeRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public synchronized int add(GenealogicalTree entity) {
+            return repository.add(entity);
+        }
+
+        @Override
+        public synchronized GenealogicalTree get(int id) {
+            return repository.get(id);
+        }
+
+        @Override
+        public synchronized Map<Integer, GenealogicalTree> getAll() {
+            return repository.getAll();
+        }
+
+        @Override
+        public synchronized Map<Integer, GenealogicalTree> findByName(String name) {
+            return repository.findByName(name);
+        }
+
+        @Override
+        public synchronized void update(GenealogicalTree entity) {
+            repository.update(entity);
+        }
+
+        @Override
+        public synchronized boolean replace(int id, GenealogicalTree entity) {
+            return repository.replace(id, entity);
+        }
+
+        @Override
+        public synchronized void remove(int id) {
+            repository.remove(id);
+        }
+    }
+}
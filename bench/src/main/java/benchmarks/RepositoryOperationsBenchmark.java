@@ -0,0 +1,113 @@
+package benchmarks;
+
+import models.GenealogicalTree;
+import models.Male;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import repositories.ConcurrentGenealogicalTreeRepository;
+import repositories.GenealogicalTreeRepository;
+import repositories.IGenealogicalTreeRepository;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Однопоточные замеры операций репозиториев: получение дерева, список деревьев, добавление и удаление дерева.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryOperationsBenchmark {
+
+    /**
+     * Количество деревьев в репозитории.
+     */
+    private static final int TREES = 1000;
+
+    /**
+     * Репозиторий: plain - {@link GenealogicalTreeRepository}, concurrent - {@link ConcurrentGenealogicalTreeRepository}.
+     */
+    @Param({ "plain", "concurrent" })
+    public String repository;
+
+    /**
+     * Репозиторий замера.
+     */
+    private IGenealogicalTreeRepository target;
+
+    /**
+     * Случайные идентификаторы деревьев.
+     */
+    private int[] ids;
+
+    /**
+     * Дерево, которое добавляется и удаляется.
+     */
+    private GenealogicalTree spare;
+
+    /**
+     * Позиция следующего идентификатора.
+     */
+    private int index;
+
+    /**
+     * Метод заполнения репозитория перед замером.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        target = repository.equals("concurrent")
+                ? new ConcurrentGenealogicalTreeRepository() : new GenealogicalTreeRepository();
+        int first = -1;
+        for (int i = 0; i < TREES; i++) {
+            int id = target.add(new GenealogicalTree("Дерево " + i, new Male("Глава " + i)));
+            if (first < 0)
+                first = id;
+        }
+        ids = TreeGenerator.randomIds(TREES, TreeBenchmark.IDS, TREES);
+        for (int i = 0; i < ids.length; i++)
+            ids[i] += first - 1;
+        spare = new GenealogicalTree("Запасное", new Male("Глава"));
+    }
+
+    /**
+     * Замер получения дерева по идентификатору.
+     * @return Дерево.
+     */
+    @Benchmark
+    public GenealogicalTree get() {
+        return target.get(ids[index++ & (TreeBenchmark.IDS - 1)]);
+    }
+
+    /**
+     * Замер получения списка деревьев.
+     * @return Деревья по идентификаторам.
+     */
+    @Benchmark
+    public Map<Integer, GenealogicalTree> getAll() {
+        return target.getAll();
+    }
+
+    /**
+     * Замер добавления и удаления дерева.
+     * @return Идентификатор добавленного дерева.
+     */
+    @Benchmark
+    public int addAndRemove() {
+        int id = target.add(spare);
+        target.remove(id);
+        return id;
+    }
+}
@@ -0,0 +1,122 @@
+package benchmarks;
+
+import models.GenealogicalTree;
+import models.GenealogicalTreeNode;
+import models.StorageMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры чтения узлов на синтетических деревьях разной формы и размера: поиск узла по идентификатору,
+ * получение массива детей и обход детей по индексу. Узлы выбираются по заранее построенному списку
+ * случайных идентификаторов, чтобы генератор случайных чисел не попадал в замер.
+ * <p>
+ * Деревья на 10 000 000 узлов строятся только по явному запросу, например
+ * {@code -p size=10000000 -jvmArgsAppend -Xmx8g}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmark {
+
+    /**
+     * Количество заранее выбранных случайных идентификаторов, степень двойки.
+     */
+    static final int IDS = 4096;
+
+    /**
+     * Форма дерева.
+     */
+    @Param({ "chain", "wide", "pedigree" })
+    public TreeGenerator.Shape shape;
+
+    /**
+     * Размер дерева.
+     */
+    @Param({ "1000", "100000", "1000000" })
+    public int size;
+
+    /**
+     * Способ хранения узлов.
+     */
+    @Param({ "objects" })
+    public StorageMode storageMode;
+
+    /**
+     * Дерево замера.
+     */
+    private GenealogicalTree tree;
+
+    /**
+     * Случайные идентификаторы узлов.
+     */
+    private int[] ids;
+
+    /**
+     * Позиция следующего идентификатора.
+     */
+    private int index;
+
+    /**
+     * Метод построения дерева перед замером.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = TreeGenerator.generate(shape, size, storageMode, size);
+        ids = TreeGenerator.randomIds(tree.size(), IDS, size);
+    }
+
+    /**
+     * Замер поиска узла по идентификатору.
+     * @return Найденный узел.
+     */
+    @Benchmark
+    public GenealogicalTreeNode findNode() {
+        return tree.findNode(nextId());
+    }
+
+    /**
+     * Замер получения массива детей узла.
+     * @return Массив детей.
+     */
+    @Benchmark
+    public GenealogicalTreeNode[] getChildren() {
+        return tree.findNode(nextId()).getChildren();
+    }
+
+    /**
+     * Замер обхода детей узла по индексу.
+     * @param blackhole Приемник результатов, не дающий JIT-компилятору удалить чтение.
+     */
+    @Benchmark
+    public void childAt(Blackhole blackhole) {
+        GenealogicalTreeNode node = tree.findNode(nextId());
+        int count = node.childCount();
+        for (int i = 0; i < count; i++)
+            blackhole.consume(node.childAt(i));
+    }
+
+    /**
+     * Метод получения следующего случайного идентификатора.
+     * @return Идентификатор узла.
+     */
+    private int nextId() {
+        return ids[index++ & (IDS - 1)];
+    }
+}
@@ -0,0 +1,146 @@
+package benchmarks;
+
+import models.Female;
+import models.GenealogicalTree;
+import models.GenealogicalTreeNode;
+import models.Gender;
+import models.Male;
+import models.Person;
+import models.StorageMode;
+
+import java.util.Random;
+
+/**
+ * Класс, описывающий построение синтетических генеалогических деревьев заданного размера.
+ * Открыт, так как JMH создает состояния замеров в отдельном пакете.
+ */
+public final class TreeGenerator {
+
+    /**
+     * Форма синтетического дерева.
+     */
+    public enum Shape {
+
+        /**
+         * Цепочка поколений: у каждого потомка супруг и один ребенок. Глубина - половина размера.
+         */
+        chain,
+
+        /**
+         * Одна семья: у главы дерева и его супруги все остальные люди - дети. Глубина - 1.
+         */
+        wide,
+
+        /**
+         * Родословная, похожая на настоящую: три четверти потомков вступают в брак, у семьи от 1 до 4 детей.
+         */
+        pedigree
+    }
+
+    /**
+     * Вероятность брака потомка в родословной.
+     */
+    private static final double MARRIAGE_RATE = 0.75;
+
+    /**
+     * Наибольшее количество детей семьи в родословной.
+     */
+    private static final int MAX_CHILDREN = 4;
+
+    /**
+     * Закрытый конструктор.
+     */
+    private TreeGenerator() { }
+
+    /**
+     * Метод построения дерева.
+     * @param shape Форма дерева.
+     * @param size Количество узлов, не меньше 3.
+     * @param storageMode Способ хранения узлов.
+     * @param seed Начальное значение генератора случайных чисел.
+     * @return Дерево, размер которого отличается от указанного не больше чем на один узел.
+     */
+    public static GenealogicalTree generate(Shape shape, int size, StorageMode storageMode, long seed) {
+        GenealogicalTree tree = new GenealogicalTree(shape.name(), new Male("Глава"), storageMode);
+        switch (shape) {
+            case chain -> chain(tree, size);
+            case wide -> wide(tree, size);
+            case pedigree -> pedigree(tree, size, new Random(seed));
+        }
+        return tree;
+    }
+
+    /**
+     * Метод построения цепочки поколений.
+     * @param tree Дерево из одного главы.
+     * @param size Количество узлов.
+     */
+    private static void chain(GenealogicalTree tree, int size) {
+        GenealogicalTreeNode last = tree.getHead();
+        while (tree.size() + 2 <= size)
+            last = tree.addPerson(new Male("Потомок " + tree.size()), last, new Female("Супруга " + tree.size()));
+    }
+
+    /**
+     * Метод построения одной большой семьи.
+     * @param tree Дерево из одного главы.
+     * @param size Количество узлов.
+     */
+    private static void wide(GenealogicalTree tree, int size) {
+        GenealogicalTreeNode head = tree.getHead();
+        GenealogicalTreeNode wife = tree.addPerson(new Male("Ребенок 3"), head, new Female("Супруга")).getMother();
+        while (tree.size() < size)
+            tree.addPerson(child(tree.size(), tree.size() % 2 == 0), head, wife);
+    }
+
+    /**
+     * Метод построения родословной: потомки обходятся в порядке идентификаторов, каждому с некоторой
+     * вероятностью добавляется семья. Если все ветви пресеклись, новая семья добавляется главе дерева.
+     * @param tree Дерево из одного главы.
+     * @param size Количество узлов.
+     * @param random Генератор случайных чисел.
+     */
+    private static void pedigree(GenealogicalTree tree, int size, Random random) {
+        int cursor = 1;
+        while (tree.size() < size) {
+            GenealogicalTreeNode node = cursor <= tree.size() ? tree.findNode(cursor++) : tree.getHead();
+            boolean descendant = node.getId() == 1 || node.getFather() != null;
+            if (!descendant || random.nextDouble() >= MARRIAGE_RATE && node.getId() != 1)
+                continue;
+
+            int children = 1 + random.nextInt(MAX_CHILDREN);
+            boolean male = node.getPerson().getGender() == Gender.male;
+            GenealogicalTreeNode first = male
+                    ? tree.addPerson(child(tree.size(), random.nextBoolean()), node, new Female("Супруга " + tree.size()))
+                    : tree.addPerson(child(tree.size(), random.nextBoolean()), new Male("Супруг " + tree.size()), node);
+            for (int i = 1; i < children && tree.size() < size; i++)
+                tree.addPerson(child(tree.size(), random.nextBoolean()), first.getFather(), first.getMother());
+        }
+    }
+
+    /**
+     * Метод выбора случайных идентификаторов узлов.
+     * @param size Наибольший идентификатор.
+     * @param count Количество идентификаторов.
+     * @param seed Начальное значение генератора случайных чисел.
+     * @return Идентификаторы от 1 до size.
+     */
+    public static int[] randomIds(int size, int count, long seed) {
+        Random random = new Random(seed);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++)
+            ids[i] = 1 + random.nextInt(size);
+        return ids;
+    }
+
+    /**
+     * Метод создания ребенка.
+     * @param number Номер для имени.
+     * @param male Мужской пол.
+     * @return Объект человека.
+     */
+    private static Person child(int number, boolean male) {
+        String name = "Ребенок " + number;
+        return male ? new Male(name) : new Female(name);
+    }
+}
@@ -0,0 +1,346 @@
+package checks;
+
+import models.Female;
+import models.GenealogicalTree;
+import models.GenealogicalTreeBatch;
+import models.GenealogicalTreeNode;
+import models.GenealogicalTreeSnapshot;
+import models.Gender;
+import models.IGenealogicalTreeListener;
+import models.Male;
+import models.Person;
+import models.StorageMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочная проверка одновременного добавления людей в дерево: несколько потоков добавляют людей всеми
+ * способами - с новым супругом, к существующей паре и пакетом, - пока другие потоки читают снимки дерева.
+ * <p>
+ * Часть добавлений завершается ошибкой: подписчик возбуждает исключение на некоторых узлах, а имя части
+ * людей невозможно прочитать, из-за чего хранилище, которое хранит имена, отказывает в добавлении.
+ * Ошибки не должны оставлять пропусков в идентификаторах и задерживать следующие добавления.
+ * <p>
+ * После остановки потоков проверяются количество узлов, связи с родителями, списки детей и порядок
+ * уведомлений подписчика. При нарушении возбуждается {@link AssertionError}.
+ * <p>
+ * Запуск: {@code java -cp bench/target/benchmarks.jar checks.ConcurrentWriteCheck [писатели] [люди] [читатели]}.
+ */
+public class ConcurrentWriteCheck {
+
+    /**
+     * Наибольшее время работы потоков в секундах. Если потоки не завершились, добавление зависло.
+     */
+    private static final int TIMEOUT_SECONDS = 120;
+
+    /**
+     * Каждый узел с идентификатором, кратным этому числу, вызывает ошибку подписчика.
+     */
+    private static final int LISTENER_FAILURE = 997;
+
+    /**
+     * Каждое добавление с этим номером в потоке использует человека с нечитаемым именем.
+     */
+    private static final int STORAGE_FAILURE = 101;
+
+    /**
+     * Точка входа.
+     * @param args Количество потоков записи, количество добавлений в потоке и количество потоков чтения.
+     * @throws InterruptedException Возбуждается, если ожидание потоков прервано.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int readers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        for (StorageMode storageMode : new StorageMode[] { StorageMode.objects, StorageMode.columnar }) {
+            int size = run(storageMode, writers, operations, readers);
+            System.out.printf("%s: %d потоков записи, %d потоков чтения, узлов: %d.%n",
+                    storageMode, writers, readers, size);
+        }
+    }
+
+    /**
+     * Метод проверки одного способа хранения.
+     * @param storageMode Способ хранения узлов.
+     * @param writers Количество потоков записи.
+     * @param operations Количество добавлений в потоке записи.
+     * @param readers Количество потоков чтения.
+     * @return Размер дерева после проверки.
+     * @throws InterruptedException Возбуждается, если ожидание потоков прервано.
+     */
+    private static int run(StorageMode storageMode, int writers, int operations, int readers)
+            throws InterruptedException {
+
+        GenealogicalTree tree = new GenealogicalTree("Нагрузка", new Male("Глава"), storageMode);
+        OrderListener listener = new OrderListener();
+        tree.addListener(listener);
+
+        LongAdder added = new LongAdder();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger runningWriters = new AtomicInteger(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            threads.add(thread(failure, start, () -> {
+                try {
+                    for (int i = 0; i < operations; i++)
+                        added.add(write(tree, i));
+                } finally {
+                    runningWriters.decrementAndGet();
+                }
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            threads.add(thread(failure, start, () -> {
+                while (runningWriters.get() > 0)
+                    read(tree);
+            }));
+        }
+
+        for (Thread thread : threads)
+            thread.start();
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            check(!thread.isAlive(), storageMode + ": потоки не завершились за " + TIMEOUT_SECONDS + " с");
+        }
+        if (failure.get() != null)
+            throw new AssertionError(storageMode + ": ошибка в потоке", failure.get());
+
+        check(tree.size() == 1 + added.sum(),
+                storageMode + ": узлов " + tree.size() + " вместо " + (1 + added.sum()));
+        check(listener.last.get() == tree.size(),
+                storageMode + ": подписчик уведомлен до узла " + listener.last.get() + " из " + tree.size());
+        checkLinks(tree, storageMode);
+        return tree.size();
+    }
+
+    /**
+     * Метод одного добавления случайным способом.
+     * @param tree Дерево.
+     * @param operation Номер добавления в потоке.
+     * @return Количество добавленных узлов.
+     */
+    private static int write(GenealogicalTree tree, int operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        GenealogicalTreeNode node = tree.findNode(1 + random.nextInt(tree.size()));
+        int kind = random.nextInt(4);
+        boolean male = node.getPerson().getGender() == Gender.male;
+        // Количество узлов, добавленных, если подписчик откажет на последнем узле операции.
+        int added = 1;
+        try {
+            if (operation % STORAGE_FAILURE == STORAGE_FAILURE - 1 && node.getFather() != null) {
+                tree.addPerson(new UnreadableMale(), node.getFather(), node.getMother());
+                return added;
+            }
+            if (kind == 0 && node.getFather() != null) {
+                tree.addPerson(child(random), node.getFather(), node.getMother());
+                return added;
+            }
+            if (kind <= 1) {
+                GenealogicalTreeBatch batch = new GenealogicalTreeBatch();
+                int spouse = batch.add(male ? new Female("Супруга") : new Male("Супруг"));
+                for (int i = 0; i < 3; i++) {
+                    if (male)
+                        batch.add(child(random), node, spouse);
+                    else
+                        batch.add(child(random), spouse, node);
+                }
+                added = batch.size();
+                return tree.addPersons(batch).size();
+            }
+            added = 2;
+            if (male)
+                tree.addPerson(child(random), node, new Female("Супруга"));
+            else
+                tree.addPerson(child(random), new Male("Супруг"), node);
+            return added;
+        } catch (ListenerFailure e) {
+            // Пакет фиксируется целиком, а ребенок с новым супругом не добавляется, если подписчик
+            // отказал на супруге.
+            boolean spouse = e.node.getFather() == null && e.node.getMother() == null;
+            return added == 2 && spouse ? 1 : added;
+        } catch (UnreadableName e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Метод чтения снимка дерева одним из потоков чтения: все узлы снимка должны быть видны
+     * и ссылаться на родителей с меньшими идентификаторами.
+     * @param tree Дерево.
+     */
+    private static void read(GenealogicalTree tree) {
+        GenealogicalTreeSnapshot snapshot = tree.snapshot();
+        int size = snapshot.size();
+        check(snapshot.findNode(size) != null, "узел " + size + " снимка не виден");
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 64; i++) {
+            int id = 1 + random.nextInt(size);
+            GenealogicalTreeNode node = snapshot.findNode(id);
+            check(node != null && node.getId() == id, "узел " + id + " из " + size + " не виден");
+            check(node.getFather() == null || node.getFather().getId() < id, "отец узла " + id + " добавлен позже");
+            check(node.getMother() == null || node.getMother().getId() < id, "мать узла " + id + " добавлена позже");
+        }
+    }
+
+    /**
+     * Метод проверки связей всех узлов: каждый узел ровно один раз входит в списки детей своих родителей,
+     * и в списках детей нет чужих узлов.
+     * @param tree Дерево.
+     * @param storageMode Способ хранения узлов.
+     */
+    private static void checkLinks(GenealogicalTree tree, StorageMode storageMode) {
+        int size = tree.size();
+        int[] listed = new int[size + 1];
+        for (int id = 1; id <= size; id++) {
+            GenealogicalTreeNode node = tree.findNode(id);
+            check(node != null && node.getId() == id, storageMode + ": нет узла " + id);
+            for (int i = 0; i < node.childCount(); i++) {
+                GenealogicalTreeNode child = node.childAt(i);
+                check(node.equals(child.getFather()) || node.equals(child.getMother()),
+                        storageMode + ": узел " + child.getId() + " в детях чужого узла " + id);
+                listed[child.getId()]++;
+            }
+        }
+        for (int id = 1; id <= size; id++) {
+            GenealogicalTreeNode node = tree.findNode(id);
+            int parents = (node.getFather() != null ? 1 : 0) + (node.getMother() != null ? 1 : 0);
+            check(listed[id] == parents,
+                    storageMode + ": узел " + id + " входит в списки детей " + listed[id] + " раз вместо " + parents);
+        }
+    }
+
+    /**
+     * Метод создания ребенка случайного пола.
+     * @param random Генератор случайных чисел.
+     * @return Объект человека.
+     */
+    private static Person child(ThreadLocalRandom random) {
+        return random.nextBoolean() ? new Male("Сын") : new Female("Дочь");
+    }
+
+    /**
+     * Метод создания потока, ожидающего общего старта и запоминающего первую ошибку. Поток фоновый,
+     * чтобы зависший поток не задерживал завершение проверки.
+     * @param failure Первая ошибка потоков.
+     * @param start Защелка старта.
+     * @param body Работа потока.
+     * @return Поток.
+     */
+    private static Thread thread(AtomicReference<Throwable> failure, CountDownLatch start, Runnable body) {
+        Thread thread = new Thread(() -> {
+            try {
+                start.await();
+                body.run();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Метод проверки условия.
+     * @param condition Условие.
+     * @param message Описание нарушения.
+     * @throws AssertionError Возбуждается, если условие не выполнено.
+     */
+    private static void check(boolean condition, String message) throws AssertionError {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    /**
+     * Класс, описывающий подписчика, который проверяет порядок уведомлений и возбуждает исключение
+     * на каждом узле с идентификатором, кратным {@link #LISTENER_FAILURE}.
+     */
+    private static final class OrderListener implements IGenealogicalTreeListener {
+
+        /**
+         * Идентификатор последнего узла, о котором уведомлен подписчик.
+         */
+        final AtomicInteger last = new AtomicInteger(1);
+
+        @Override
+        public void nodeAdded(GenealogicalTreeNode node) {
+            int previous = last.getAndSet(node.getId());
+            check(previous == node.getId() - 1,
+                    "уведомление о узле " + node.getId() + " после узла " + previous);
+            if (node.getId() % LISTENER_FAILURE == 0)
+                throw new ListenerFailure(node);
+        }
+    }
+
+    /**
+     * Класс, описывающий ошибку подписчика. Узел, на котором она возникла, уже добавлен.
+     */
+    private static final class ListenerFailure extends RuntimeException {
+
+        /**
+         * Версия сериализации исключения.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Узел, на котором возникла ошибка.
+         */
+        final transient GenealogicalTreeNode node;
+
+        /**
+         * Инициализация ошибки.
+         * @param node Узел, на котором возникла ошибка.
+         */
+        ListenerFailure(GenealogicalTreeNode node) {
+            super("Ошибка подписчика на узле " + node.getId());
+            this.node = node;
+        }
+    }
+
+    /**
+     * Класс, описывающий ошибку чтения имени.
+     */
+    private static final class UnreadableName extends RuntimeException {
+
+        /**
+         * Версия сериализации исключения.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Инициализация ошибки.
+         */
+        UnreadableName() {
+            super("Имя недоступно.");
+        }
+    }
+
+    /**
+     * Класс, описывающий человека, имя которого невозможно прочитать.
+     */
+    private static final class UnreadableMale extends Male {
+
+        /**
+         * Инициализация человека.
+         */
+        UnreadableMale() {
+            super("Недоступный");
+        }
+
+        @Override
+        public String getName() {
+            throw new UnreadableName();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package checks;
+
+import models.Female;
+import models.GenealogicalTree;
+import models.GenealogicalTreeNode;
+import models.Gender;
+import models.Kinship;
+import models.KinshipCalculator;
+import models.Male;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Проверка кровного родства на родословных с пересечением ветвей: когда общий предок встречается
+ * в родословной человека несколько раз, ближайший общий предок может лежать глубже по одной ветви,
+ * чем дальний - по другой.
+ * <p>
+ * Сначала проверяется известная форма дерева, затем случайные деревья сверяются с полным перебором
+ * общих предков. При расхождении возбуждается {@link AssertionError}.
+ * <p>
+ * Запуск: {@code java -cp bench/target/benchmarks.jar checks.KinshipCheck [деревья] [размер]}.
+ */
+public class KinshipCheck {
+
+    /**
+     * Точка входа.
+     * @param args Количество случайных деревьев и размер дерева.
+     */
+    public static void main(String[] args) {
+        int trees = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+        checkPedigreeCollapse();
+        for (int seed = 0; seed < trees; seed++)
+            checkRandomTree(seed, size);
+        System.out.printf("Родство проверено: %d случайных деревьев по %d человек.%n", trees, size);
+    }
+
+    /**
+     * Метод проверки формы X; W от X; Y от W; M и S от Y; F от X и M. Путь F-X-W-Y-S через X находится
+     * раньше, но ближайший общий предок F и S - Y, и S приходится F дядей. Узлы восстанавливаются
+     * с одним известным родителем, как после импорта GEDCOM.
+     */
+    private static void checkPedigreeCollapse() {
+        GenealogicalTree tree = new GenealogicalTree("Пересечение", new Male("X"));
+        tree.restoreNode(2, new Male("W"), 1, 0);
+        GenealogicalTreeNode y = tree.restoreNode(3, new Male("Y"), 2, 0);
+        tree.restoreNode(4, new Female("M"), 3, 0);
+        GenealogicalTreeNode s = tree.restoreNode(5, new Male("S"), 3, 0);
+        GenealogicalTreeNode f = tree.restoreNode(6, new Male("F"), 1, 4);
+
+        Kinship kinship = new KinshipCalculator(tree).calculate(f, s);
+        check(kinship.getDegree() == 3, "F и S: степень " + kinship.getDegree() + " вместо 3");
+        check(kinship.getUp() == 2 && kinship.getDown() == 1,
+                "F и S: " + kinship.getUp() + " вверх и " + kinship.getDown() + " вниз вместо 2 и 1");
+        check(kinship.getPath().get(2).equals(y), "F и S: общий предок " + kinship.getPath().get(2) + " вместо Y");
+        check(kinship.getName().equals("дядя"), "F и S: " + kinship.getName() + " вместо дяди");
+        check(tree.getQueries().getLowestCommonAncestor(f, s).equals(y), "ближайший общий предок F и S - не Y");
+    }
+
+    /**
+     * Метод сверки степени кровного родства случайных пар с полным перебором общих предков.
+     * Часть детей получает мать из потомков, поэтому ветви пересекаются.
+     * @param seed Начальное значение генератора случайных чисел.
+     * @param size Размер дерева.
+     */
+    private static void checkRandomTree(long seed, int size) {
+        Random random = new Random(seed);
+        GenealogicalTree tree = new GenealogicalTree("Случайное " + seed, new Male("Глава"));
+        while (tree.size() < size) {
+            GenealogicalTreeNode father = randomDescendant(tree, random, Gender.male);
+            GenealogicalTreeNode mother = random.nextInt(3) == 0 ? randomDescendant(tree, random, Gender.female) : null;
+            String name = "Ребенок " + tree.size();
+            boolean male = random.nextBoolean();
+            if (mother != null && mother.getId() != father.getId())
+                tree.addPerson(male ? new Male(name) : new Female(name), father, mother);
+            else
+                tree.addPerson(male ? new Male(name) : new Female(name), father, new Female("Жена " + tree.size()));
+        }
+
+        KinshipCalculator calculator = new KinshipCalculator(tree);
+        for (int i = 0; i < 200; i++) {
+            GenealogicalTreeNode first = tree.findNode(1 + random.nextInt(tree.size()));
+            GenealogicalTreeNode second = tree.findNode(1 + random.nextInt(tree.size()));
+            int expected = bloodDegree(tree, first, second);
+            Kinship kinship = calculator.calculate(first, second);
+            if (expected < 0) {
+                check(kinship == null || !kinship.isBlood(),
+                        "дерево " + seed + ": " + first + " и " + second + " - не кровные родственники");
+                continue;
+            }
+            check(kinship != null && kinship.isBlood() && kinship.getDegree() == expected,
+                    "дерево " + seed + ": " + first + " и " + second + " - степень "
+                            + (kinship == null ? "нет" : kinship.getDegree()) + " вместо " + expected);
+        }
+    }
+
+    /**
+     * Метод выбора случайного потомка главы дерева указанного пола или главы дерева для мужчин.
+     * @param tree Дерево.
+     * @param random Генератор случайных чисел.
+     * @param gender Пол.
+     * @return Узел или null, если подходящий узел не найден за несколько попыток.
+     */
+    private static GenealogicalTreeNode randomDescendant(GenealogicalTree tree, Random random, Gender gender) {
+        for (int attempt = 0; attempt < 16; attempt++) {
+            GenealogicalTreeNode node = tree.findNode(1 + random.nextInt(tree.size()));
+            boolean descendant = node.getId() == 1 || node.getFather() != null;
+            if (descendant && node.getPerson().getGender() == gender)
+                return node;
+        }
+        return gender == Gender.male ? tree.getHead() : null;
+    }
+
+    /**
+     * Метод полного перебора: наименьшая сумма расстояний вверх от обоих людей до общего предка.
+     * @param tree Дерево.
+     * @param first Первый человек.
+     * @param second Второй человек.
+     * @return Степень родства или -1, если общего предка нет.
+     */
+    private static int bloodDegree(GenealogicalTree tree, GenealogicalTreeNode first, GenealogicalTreeNode second) {
+        int[] fromFirst = distancesUp(tree, first);
+        int[] fromSecond = distancesUp(tree, second);
+        int best = -1;
+        for (int id = 1; id <= tree.size(); id++) {
+            if (fromFirst[id] >= 0 && fromSecond[id] >= 0 && (best < 0 || fromFirst[id] + fromSecond[id] < best))
+                best = fromFirst[id] + fromSecond[id];
+        }
+        return best;
+    }
+
+    /**
+     * Метод поиска в ширину по родителям.
+     * @param tree Дерево.
+     * @param node Начальный узел.
+     * @return Расстояния до предков по идентификаторам, -1 - не предок.
+     */
+    private static int[] distancesUp(GenealogicalTree tree, GenealogicalTreeNode node) {
+        int[] distances = new int[tree.size() + 1];
+        Arrays.fill(distances, -1);
+        distances[node.getId()] = 0;
+        ArrayDeque<GenealogicalTreeNode> queue = new ArrayDeque<>();
+        queue.add(node);
+        while (!queue.isEmpty()) {
+            GenealogicalTreeNode current = queue.poll();
+            for (GenealogicalTreeNode parent : new GenealogicalTreeNode[] { current.getFather(), current.getMother() }) {
+                if (parent != null && distances[parent.getId()] < 0) {
+                    distances[parent.getId()] = distances[current.getId()] + 1;
+                    queue.add(parent);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Метод проверки условия.
+     * @param condition Условие.
+     * @param message Описание нарушения.
+     * @throws AssertionError Возбуждается, если условие не выполнено.
+     */
+    private static void check(boolean condition, String message) throws AssertionError {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+}
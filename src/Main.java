@@ -1,18 +1,77 @@
 import controllers.GenealogicalTreeController;
-import repositories.GenealogicalTreeRepository;
+import controllers.MetricsRegistry;
+import repositories.ConcurrentGenealogicalTreeRepository;
+import repositories.FileGenealogicalTreeRepository;
+import repositories.IGenealogicalTreeRepository;
+import repositories.JournaledGenealogicalTreeRepository;
 import views.MainView;
 
+import javax.management.JMException;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 
 public class Main {
 
+    /**
+     * Период записи отчета метрик в файл.
+     */
+    private static final Duration METRICS_DUMP_PERIOD = Duration.ofSeconds(10);
+
+    /**
+     * Префикс ключа, задающего файл отчета метрик.
+     */
+    private static final String METRICS_OPTION = "--metrics=";
+
     /**
      * Точка входа в приложение.
+     * @param args Аргументы командной строки. Если указан каталог, деревья сохраняются в его файлы,
+     *             иначе хранятся только в памяти. Ключ --mapped после каталога открывает
+     *             сохраненные деревья только для чтения без загрузки в память, а ключ --journal
+     *             сохраняет изменения в журнал упреждающей записи со снимками. Ключ --metrics=файл
+     *             в любом месте включает периодическую запись отчета метрик в файл. Метрики также
+     *             доступны через JMX под именем {@value MetricsRegistry#DEFAULT_NAME}.
      */
-    public static void main(String[] args) throws IOException {
-        GenealogicalTreeRepository repository = new GenealogicalTreeRepository();
-        GenealogicalTreeController controller = new GenealogicalTreeController(repository);
+    public static void main(String[] args) throws IOException, JMException {
+        String metricsFile = null;
+        for (String arg: args) {
+            if (arg.startsWith(METRICS_OPTION))
+                metricsFile = arg.substring(METRICS_OPTION.length());
+        }
+        args = Arrays.stream(args).filter(arg -> !arg.startsWith(METRICS_OPTION)).toArray(String[]::new);
+
+        IGenealogicalTreeRepository repository = createRepository(args);
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.register(MetricsRegistry.DEFAULT_NAME);
+        Closeable dump = metricsFile != null ? metrics.startDump(Path.of(metricsFile), METRICS_DUMP_PERIOD) : null;
+
+        GenealogicalTreeController controller = new GenealogicalTreeController(repository, metrics);
         MainView view = new MainView(controller);
         view.start();
+
+        if (dump != null)
+            dump.close();
+        if (repository instanceof Closeable closeable)
+            closeable.close();
+    }
+
+    /**
+     * Метод создания репозитория по аргументам командной строки.
+     * @param args Аргументы командной строки.
+     * @return Объект репозитория.
+     */
+    private static IGenealogicalTreeRepository createRepository(String[] args) throws IOException {
+        if (args.length == 0)
+            return new ConcurrentGenealogicalTreeRepository();
+
+        Path directory = Path.of(args[0]);
+        String mode = args.length > 1 ? args[1] : "";
+        return switch (mode) {
+            case "--journal" -> new JournaledGenealogicalTreeRepository(directory);
+            case "--mapped" -> new FileGenealogicalTreeRepository(directory, true);
+            default -> new FileGenealogicalTreeRepository(directory);
+        };
     }
-}
\ No newline at end of file
+}
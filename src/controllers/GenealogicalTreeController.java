@@ -3,38 +3,139 @@ package controllers;
 import models.*;
 import repositories.IGenealogicalTreeRepository;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Класс, описывающий контроллер для взаимодействия с генеалогическими деревьями.
  */
 public class GenealogicalTreeController {
 
+    /**
+     * Наибольшая длина текста дерева, который {@link #writeAllTree} копирует в кэш при записи.
+     * Более длинный текст только записывается в приемник.
+     */
+    private static final int MAX_CACHED_LENGTH = 1 << 24;
+
     /**
      * Объект репозитория, хранящего экземпляры генеалогичских деревьев.
      */
     private final IGenealogicalTreeRepository genealogicalTreeRepository;
 
     /**
-     * Инициализация объекта контроллера.
+     * Текст деревьев, записанный при последнем выводе. Деревья, ставшие недостижимыми, удаляются из кэша.
+     */
+    private final Map<GenealogicalTree, RenderedTree> renderCache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Объект параллельного подсчета статистики деревьев.
+     */
+    private final GenealogicalTreeAnalytics analytics = new GenealogicalTreeAnalytics();
+
+    /**
+     * Объект метрик контроллера.
+     */
+    private final MetricsRegistry metrics;
+
+    /**
+     * Гистограммы длительностей операций по порядковым номерам операций.
+     */
+    private final LatencyHistogram[] latencies;
+
+    /**
+     * Счетчик добавленных деревьев.
+     */
+    private final LongAdder treesAdded;
+
+    /**
+     * Счетчик удаленных деревьев.
+     */
+    private final LongAdder treesRemoved;
+
+    /**
+     * Счетчик добавленных людей.
+     */
+    private final LongAdder personsAdded;
+
+    /**
+     * Счетчик записей дерева, взятых из кэша.
+     */
+    private final LongAdder renderCacheHits;
+
+    /**
+     * Счетчик записей дерева, выполненных заново.
+     */
+    private final LongAdder renderCacheMisses;
+
+    /**
+     * Инициализация объекта контроллера с собственным набором метрик.
      * @param genealogicalTreeRepository Объект репозитория.
      */
     public GenealogicalTreeController(IGenealogicalTreeRepository genealogicalTreeRepository) {
-        if (genealogicalTreeRepository == null)
+        this(genealogicalTreeRepository, new MetricsRegistry());
+    }
+
+    /**
+     * Инициализация объекта контроллера. Деревья репозитория становятся отслеживаемыми деревьями метрик.
+     * @param genealogicalTreeRepository Объект репозитория.
+     * @param metrics Объект метрик.
+     */
+    public GenealogicalTreeController(IGenealogicalTreeRepository genealogicalTreeRepository,
+                                      MetricsRegistry metrics) {
+
+        if (genealogicalTreeRepository == null || metrics == null)
             throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
 
         this.genealogicalTreeRepository = genealogicalTreeRepository;
+        this.metrics = metrics;
+        Operation[] operations = Operation.values();
+        latencies = new LatencyHistogram[operations.length];
+        for (Operation operation: operations)
+            latencies[operation.ordinal()] = metrics.latency("controller." + operation.name());
+        treesAdded = metrics.counter("trees.added");
+        treesRemoved = metrics.counter("trees.removed");
+        personsAdded = metrics.counter("persons.added");
+        renderCacheHits = metrics.counter("render.cache.hits");
+        renderCacheMisses = metrics.counter("render.cache.misses");
+        metrics.trackTrees(genealogicalTreeRepository::getAll);
+    }
+
+    /**
+     * Метод, возвращающий метрики контроллера.
+     * @return Объект метрик.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
     }
 
     /**
      * Метод добавления объекта генеалогического дерева.
      * @param genealogicalTree Объект генеалогического дерева.
+     * @return Идентификатор добавленного дерева или -1, если дерево не инициализировано.
      */
-    public void add(GenealogicalTree genealogicalTree) {
-        if (genealogicalTree == null)
-            return;
+    public int add(GenealogicalTree genealogicalTree) {
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                return -1;
 
-        genealogicalTreeRepository.add(genealogicalTree);
+            int id = genealogicalTreeRepository.add(genealogicalTree);
+            treesAdded.increment();
+            return id;
+        } finally {
+            record(Operation.add, start);
+        }
     }
 
     /**
@@ -43,15 +144,107 @@ public class GenealogicalTreeController {
      * @return Объект геналогического дерева.
      */
     public GenealogicalTree get(int id) {
-        return genealogicalTreeRepository.get(id);
+        long start = System.nanoTime();
+        try {
+            return genealogicalTreeRepository.get(id);
+        } finally {
+            record(Operation.get, start);
+        }
+    }
+
+    /**
+     * Метод получения всех генеалогических деревьев.
+     * @return Генеалогические деревья по идентификаторам в порядке добавления.
+     */
+    public Map<Integer, GenealogicalTree> getAll() {
+        long start = System.nanoTime();
+        try {
+            return genealogicalTreeRepository.getAll();
+        } finally {
+            record(Operation.getAll, start);
+        }
+    }
+
+    /**
+     * Метод поиска генеалогических деревьев по названию.
+     * @param name Название дерева.
+     * @return Генеалогические деревья с указанным названием по идентификаторам.
+     */
+    public Map<Integer, GenealogicalTree> findByName(String name) {
+        long start = System.nanoTime();
+        try {
+            return genealogicalTreeRepository.findByName(name);
+        } finally {
+            record(Operation.findByName, start);
+        }
     }
 
     /**
-     * Метод получения списка всех генеалогических деревьев.
-     * @return Список всех генеалогических деревьев.
+     * Метод поиска людей по имени во всех генеалогических деревьях.
+     * Каждое слово запроса должно быть началом какого-либо слова имени без учета регистра.
+     * @param query Запрос.
+     * @return Найденные узлы по идентификаторам деревьев. Деревья без найденных людей не включаются.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
      */
-    public List<GenealogicalTree> getAll() {
-        return genealogicalTreeRepository.getAll();
+    public Map<Integer, List<GenealogicalTreeNode>> findPersons(String query) throws IllegalArgumentException {
+        long start = System.nanoTime();
+        try {
+            if (query == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            Map<Integer, List<GenealogicalTreeNode>> result = new LinkedHashMap<>();
+            for (Map.Entry<Integer, GenealogicalTree> entry: genealogicalTreeRepository.getAll().entrySet()) {
+                List<GenealogicalTreeNode> nodes = entry.getValue().getNameIndex().find(query);
+                if (!nodes.isEmpty())
+                    result.put(entry.getKey(), nodes);
+            }
+            return result;
+        } finally {
+            record(Operation.findPersons, start);
+        }
+    }
+
+    /**
+     * Метод импорта генеалогического дерева из файла GEDCOM и добавления его в репозиторий.
+     * @param file Путь к файлу GEDCOM.
+     * @param name Название дерева.
+     * @return Результат импорта с построенным деревом и скоростью чтения записей.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке чтения файла.
+     */
+    public GedcomImportResult importGedcom(Path file, String name) throws IllegalArgumentException, IOException {
+        long start = System.nanoTime();
+        try {
+            GedcomImportResult result = new GedcomImporter().importFile(file, name);
+            genealogicalTreeRepository.add(result.getGenealogicalTree());
+            treesAdded.increment();
+            personsAdded.add(result.getGenealogicalTree().size());
+            return result;
+        } finally {
+            record(Operation.importGedcom, start);
+        }
+    }
+
+    /**
+     * Метод выгрузки генеалогического дерева в поток.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param exporter Формат выгрузки.
+     * @param out Поток для записи. После выгрузки не закрывается.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    public void exportTree(GenealogicalTree genealogicalTree, ITreeExporter exporter, OutputStream out)
+            throws IllegalArgumentException, IOException {
+
+        long start = System.nanoTime();
+        try {
+            if (exporter == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            exporter.export(genealogicalTree, out);
+        } finally {
+            record(Operation.exportTree, start);
+        }
     }
 
     /**
@@ -59,7 +252,13 @@ public class GenealogicalTreeController {
      * @param id Идентификатор генеалогического дерева.
      */
     public void remove(int id) {
-        genealogicalTreeRepository.remove(id);
+        long start = System.nanoTime();
+        try {
+            genealogicalTreeRepository.remove(id);
+            treesRemoved.increment();
+        } finally {
+            record(Operation.remove, start);
+        }
     }
 
     /**
@@ -75,10 +274,18 @@ public class GenealogicalTreeController {
                                           GenealogicalTreeNode father, GenealogicalTreeNode mother)
             throws IllegalArgumentException {
 
-        if (genealogicalTree == null)
-            throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
 
-        return genealogicalTree.addPerson(person, father, mother);
+            GenealogicalTreeNode node = genealogicalTree.addPerson(person, father, mother);
+            genealogicalTreeRepository.update(genealogicalTree);
+            personsAdded.increment();
+            return node;
+        } finally {
+            record(Operation.addPerson, start);
+        }
     }
 
     /**
@@ -94,10 +301,18 @@ public class GenealogicalTreeController {
                                           GenealogicalTreeNode father, Female mother)
             throws IllegalArgumentException {
 
-        if (genealogicalTree == null)
-            throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
 
-        return genealogicalTree.addPerson(person, father, mother);
+            GenealogicalTreeNode node = genealogicalTree.addPerson(person, father, mother);
+            genealogicalTreeRepository.update(genealogicalTree);
+            personsAdded.increment();
+            return node;
+        } finally {
+            record(Operation.addPerson, start);
+        }
     }
 
     /**
@@ -113,10 +328,61 @@ public class GenealogicalTreeController {
                                           Male father, GenealogicalTreeNode mother)
             throws IllegalArgumentException {
 
-        if (genealogicalTree == null)
-            throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            GenealogicalTreeNode node = genealogicalTree.addPerson(person, father, mother);
+            genealogicalTreeRepository.update(genealogicalTree);
+            personsAdded.increment();
+            return node;
+        } finally {
+            record(Operation.addPerson, start);
+        }
+    }
+
+    /**
+     * Метод пакетного добавления людей в генеалогическое дерево.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param batch Пакет людей.
+     * @return Созданные узлы в порядке записей пакета.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или записи пакета невалидны.
+     */
+    public List<GenealogicalTreeNode> addPersons(GenealogicalTree genealogicalTree, GenealogicalTreeBatch batch)
+            throws IllegalArgumentException {
+
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
 
-        return genealogicalTree.addPerson(person, father, mother);
+            List<GenealogicalTreeNode> nodes = genealogicalTree.addPersons(batch);
+            genealogicalTreeRepository.update(genealogicalTree);
+            personsAdded.add(nodes.size());
+            return nodes;
+        } finally {
+            record(Operation.addPersons, start);
+        }
+    }
+
+    /**
+     * Метод создания неизменяемого снимка генеалогического дерева.
+     * Снимок можно читать без блокировок, пока в дерево добавляются люди.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @return Снимок дерева.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public GenealogicalTreeSnapshot snapshot(GenealogicalTree genealogicalTree) throws IllegalArgumentException {
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            return genealogicalTree.snapshot();
+        } finally {
+            record(Operation.snapshot, start);
+        }
     }
 
     /**
@@ -129,53 +395,609 @@ public class GenealogicalTreeController {
     public GenealogicalTreeNode getPerson(GenealogicalTree genealogicalTree, int id)
             throws IllegalArgumentException {
 
-        if (genealogicalTree == null)
-            throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            return genealogicalTree.findNode(id);
+        } finally {
+            record(Operation.getPerson, start);
+        }
+    }
 
-        return genealogicalTree.findNode(id);
+    /**
+     * Метод получения всех предков человека.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param node Узел человека.
+     * @return Узлы предков в порядке возрастания идентификаторов.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или узел не принадлежит дереву.
+     */
+    public List<GenealogicalTreeNode> getAncestors(GenealogicalTree genealogicalTree, GenealogicalTreeNode node)
+            throws IllegalArgumentException {
+
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            return nodes(genealogicalTree, genealogicalTree.getQueries().getAncestors(node));
+        } finally {
+            record(Operation.getAncestors, start);
+        }
+    }
+
+    /**
+     * Метод получения всех потомков человека.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param node Узел человека.
+     * @return Узлы потомков в порядке возрастания идентификаторов.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или узел не принадлежит дереву.
+     */
+    public List<GenealogicalTreeNode> getDescendants(GenealogicalTree genealogicalTree, GenealogicalTreeNode node)
+            throws IllegalArgumentException {
+
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            return nodes(genealogicalTree, genealogicalTree.getQueries().getDescendants(node));
+        } finally {
+            record(Operation.getDescendants, start);
+        }
+    }
+
+    /**
+     * Метод проверки кровного родства двух людей.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param first Узел первого человека.
+     * @param second Узел второго человека.
+     * @return true, если люди - кровные родственники.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или узел не принадлежит дереву.
+     */
+    public boolean isRelated(GenealogicalTree genealogicalTree, GenealogicalTreeNode first,
+                             GenealogicalTreeNode second) throws IllegalArgumentException {
+
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            return genealogicalTree.getQueries().isRelated(first, second);
+        } finally {
+            record(Operation.isRelated, start);
+        }
+    }
+
+    /**
+     * Метод поиска ближайшего общего предка двух людей.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param first Узел первого человека.
+     * @param second Узел второго человека.
+     * @return Узел ближайшего общего предка или null, если люди не родственники.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или узел не принадлежит дереву.
+     */
+    public GenealogicalTreeNode getLowestCommonAncestor(GenealogicalTree genealogicalTree,
+                                                        GenealogicalTreeNode first, GenealogicalTreeNode second)
+            throws IllegalArgumentException {
+
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            return genealogicalTree.getQueries().getLowestCommonAncestor(first, second);
+        } finally {
+            record(Operation.getLowestCommonAncestor, start);
+        }
+    }
+
+    /**
+     * Метод вычисления родства двух людей.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param first Узел первого человека.
+     * @param second Узел второго человека.
+     * @return Родство второго человека по отношению к первому или null, если люди никак не связаны.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или узел не принадлежит дереву.
+     */
+    public Kinship getKinship(GenealogicalTree genealogicalTree, GenealogicalTreeNode first,
+                              GenealogicalTreeNode second) throws IllegalArgumentException {
+
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            return genealogicalTree.getQueries().getKinship(first, second);
+        } finally {
+            record(Operation.getKinship, start);
+        }
+    }
+
+    /**
+     * Метод, возвращающий наибольшее поколение дерева.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @return Наибольшее поколение, 0 - только люди без родителей.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public int getMaxGeneration(GenealogicalTree genealogicalTree) throws IllegalArgumentException {
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            return genealogicalTree.getMaxGeneration();
+        } finally {
+            record(Operation.getMaxGeneration, start);
+        }
+    }
+
+    /**
+     * Метод получения людей одного поколения.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param generation Номер поколения, 0 - люди без родителей.
+     * @return Узлы поколения в порядке возрастания идентификаторов. Пустой список, если поколения нет.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public List<GenealogicalTreeNode> getGeneration(GenealogicalTree genealogicalTree, int generation)
+            throws IllegalArgumentException {
+
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            return genealogicalTree.getGeneration(generation);
+        } finally {
+            record(Operation.getGeneration, start);
+        }
+    }
+
+    /**
+     * Метод подсчета статистики генеалогического дерева: количества людей, наибольшей глубины,
+     * распределения по полу, среднего количества детей в семье и самых многодетных семей.
+     * Статистика считается параллельно по снимку дерева, поэтому добавление людей не мешает подсчету.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param largestFamilies Количество самых многодетных семей в результате.
+     * @return Статистика дерева.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или количество семей отрицательно.
+     */
+    public GenealogicalTreeStatistics getStatistics(GenealogicalTree genealogicalTree, int largestFamilies)
+            throws IllegalArgumentException {
+
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            return analytics.analyze(genealogicalTree.snapshot(), largestFamilies);
+        } finally {
+            record(Operation.getStatistics, start);
+        }
+    }
+
+    /**
+     * Метод объединения дубликатов генеалогического дерева с заменой дерева в репозитории деревом без дубликатов.
+     * Идентификатор дерева в репозитории сохраняется, а соответствие прежних идентификаторов узлов новым
+     * возвращается в результате. Люди, добавленные в исходное дерево во время объединения, в новое дерево
+     * не попадают.
+     * @param id Идентификатор генеалогического дерева.
+     * @return Результат объединения с новым деревом, соответствием идентификаторов и количеством объединенных людей.
+     * @throws IllegalArgumentException Возбуждается, если дерево с указанным идентификатором не найдено.
+     */
+    public GenealogicalTreeMergeResult mergeDuplicates(int id) throws IllegalArgumentException {
+        long start = System.nanoTime();
+        try {
+            GenealogicalTree genealogicalTree = genealogicalTreeRepository.get(id);
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Дерево с указанным идентификатором не найдено.");
+
+            GenealogicalTreeMergeResult result = new GenealogicalTreeMerger().merge(genealogicalTree);
+            if (!genealogicalTreeRepository.replace(id, result.getGenealogicalTree()))
+                throw new IllegalArgumentException("Дерево с указанным идентификатором не найдено.");
+            return result;
+        } finally {
+            record(Operation.mergeDuplicates, start);
+        }
+    }
+
+    /**
+     * Метод преобразования множества идентификаторов в список узлов.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param ids Множество идентификаторов.
+     * @return Узлы в порядке возрастания идентификаторов.
+     */
+    private static List<GenealogicalTreeNode> nodes(GenealogicalTree genealogicalTree, BitSet ids) {
+        List<GenealogicalTreeNode> nodes = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+            nodes.add(genealogicalTree.findNode(id));
+        return nodes;
     }
 
     /**
      * Метод, возвращающий строку со всеми узлами.
+     * Строка кэшируется и переиспользуется, пока в дерево не добавлены люди.
      * @param genealogicalTree Объект генеалогического дерева.
      * @return Строка со всеми узлами дерева.
      * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
      */
     public String getAllTree(GenealogicalTree genealogicalTree) throws IllegalArgumentException {
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            GenealogicalTreeSnapshot snapshot = genealogicalTree.snapshot();
+            String text = cachedText(genealogicalTree, snapshot);
+            if (text != null)
+                return text;
+
+            StringBuilder builder = new StringBuilder();
+            try {
+                GenealogicalTreeRenderer.render(snapshot, builder);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            text = builder.toString();
+            renderCache.put(genealogicalTree, new RenderedTree(snapshot.size(), text));
+            return text;
+        } finally {
+            record(Operation.getAllTree, start);
+        }
+    }
+
+    /**
+     * Метод записи всех узлов дерева в приемник текста.
+     * Используется тот же кэш, что и в {@link #getAllTree(GenealogicalTree)}. Если текста в кэше нет,
+     * дерево записывается в приемник по мере обхода, а не собирается целиком перед записью.
+     * Записанный текст попутно копируется в кэш, пока его длина не превышает {@link #MAX_CACHED_LENGTH}.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param out Приемник текста.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке записи в приемник.
+     */
+    public void writeAllTree(GenealogicalTree genealogicalTree, Appendable out)
+            throws IllegalArgumentException, IOException {
+
+        long start = System.nanoTime();
+        try {
+            if (genealogicalTree == null || out == null)
+                throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
+
+            GenealogicalTreeSnapshot snapshot = genealogicalTree.snapshot();
+            String text = cachedText(genealogicalTree, snapshot);
+            if (text != null) {
+                out.append(text);
+                return;
+            }
+
+            CachingAppendable caching = new CachingAppendable(out);
+            GenealogicalTreeRenderer.render(snapshot, caching);
+            if (caching.builder != null)
+                renderCache.put(genealogicalTree, new RenderedTree(snapshot.size(), caching.builder.toString()));
+        } finally {
+            record(Operation.writeAllTree, start);
+        }
+    }
+
+    /**
+     * Метод получения текста дерева из кэша с учетом попаданий и промахов в метриках.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param snapshot Снимок дерева, текст которого нужен.
+     * @return Текст дерева или null, если текста нет в кэше, он записан для другого размера дерева
+     * или освобожден при нехватке памяти.
+     */
+    private String cachedText(GenealogicalTree genealogicalTree, GenealogicalTreeSnapshot snapshot) {
+        RenderedTree rendered = renderCache.get(genealogicalTree);
+        String text = rendered != null && rendered.version == snapshot.size() ? rendered.text.get() : null;
+        if (text != null)
+            renderCacheHits.increment();
+        else
+            renderCacheMisses.increment();
+        return text;
+    }
+
+    /**
+     * Метод создания постраничной записи ветви дерева.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param rootId Идентификатор корневого узла ветви.
+     * @param maxDepth Наибольшая глубина записываемых узлов относительно корня ветви, 0 - только корень.
+     * @param pageSize Количество строк на странице.
+     * @return Объект постраничной записи.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован, узел не найден
+     * или параметры страницы невалидны.
+     */
+    public GenealogicalTreePager openBranch(GenealogicalTree genealogicalTree, int rootId, int maxDepth, int pageSize)
+            throws IllegalArgumentException {
+
+        long start = System.nanoTime();
+        try {
+            return branch(genealogicalTree, rootId, maxDepth, pageSize);
+        } finally {
+            record(Operation.openBranch, start);
+        }
+    }
+
+    /**
+     * Метод записи части ветви дерева: строк с offset по offset + limit - 1 в прямом порядке до заданной глубины.
+     * Узлы после окна и глубже заданной глубины не посещаются.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param rootId Идентификатор корневого узла ветви.
+     * @param maxDepth Наибольшая глубина записываемых узлов относительно корня ветви, 0 - только корень.
+     * @param offset Номер первой записываемой строки, считая с 0.
+     * @param limit Наибольшее количество записываемых строк.
+     * @param out Приемник текста.
+     * @return true, если после окна в ветви остались строки.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован, узел не найден
+     * или параметры окна невалидны.
+     * @throws IOException Возбуждается при ошибке записи в приемник.
+     */
+    public boolean writeBranch(GenealogicalTree genealogicalTree, int rootId, int maxDepth, int offset, int limit,
+                               Appendable out) throws IllegalArgumentException, IOException {
+
+        long start = System.nanoTime();
+        try {
+            GenealogicalTreePager pager = branch(genealogicalTree, rootId, maxDepth, limit);
+            pager.skip(offset);
+            pager.nextPage(out);
+            return pager.hasNextPage();
+        } finally {
+            record(Operation.writeBranch, start);
+        }
+    }
+
+    /**
+     * Метод создания постраничной записи ветви дерева без записи длительности, общий для
+     * {@link #openBranch} и {@link #writeBranch}.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param rootId Идентификатор корневого узла ветви.
+     * @param maxDepth Наибольшая глубина записываемых узлов относительно корня ветви, 0 - только корень.
+     * @param pageSize Количество строк на странице.
+     * @return Объект постраничной записи.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован, узел не найден
+     * или параметры страницы невалидны.
+     */
+    private static GenealogicalTreePager branch(GenealogicalTree genealogicalTree, int rootId, int maxDepth,
+                                                int pageSize) throws IllegalArgumentException {
         if (genealogicalTree == null)
             throw new IllegalArgumentException("Переданный параметр неинициализтрован.");
 
-        StringBuilder builder = new StringBuilder();
-        dfsGenealogicalTree(genealogicalTree.getHead(), builder, "", true);
-        return builder.toString();
+        GenealogicalTreeSnapshot snapshot = genealogicalTree.snapshot();
+        GenealogicalTreeNode root = snapshot.findNode(rootId);
+        if (root == null)
+            throw new IllegalArgumentException("Узел с указанным идентификатором не найден.");
+
+        return new GenealogicalTreePager(snapshot, root, maxDepth, pageSize);
+    }
+
+    /**
+     * Метод записи длительности операции.
+     * @param operation Операция.
+     * @param start Время начала операции по {@link System#nanoTime()}.
+     */
+    private void record(Operation operation, long start) {
+        latencies[operation.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * Операции контроллера, длительности которых записываются в метрики. Названия совпадают с названиями методов.
+     */
+    private enum Operation {
+
+        /**
+         * {@link GenealogicalTreeController#add}.
+         */
+        add,
+
+        /**
+         * {@link GenealogicalTreeController#get}.
+         */
+        get,
+
+        /**
+         * {@link GenealogicalTreeController#getAll}.
+         */
+        getAll,
+
+        /**
+         * {@link GenealogicalTreeController#findByName}.
+         */
+        findByName,
+
+        /**
+         * {@link GenealogicalTreeController#findPersons}.
+         */
+        findPersons,
+
+        /**
+         * {@link GenealogicalTreeController#importGedcom}.
+         */
+        importGedcom,
+
+        /**
+         * {@link GenealogicalTreeController#exportTree}.
+         */
+        exportTree,
+
+        /**
+         * {@link GenealogicalTreeController#remove}.
+         */
+        remove,
+
+        /**
+         * {@link GenealogicalTreeController#addPerson}.
+         */
+        addPerson,
+
+        /**
+         * {@link GenealogicalTreeController#addPersons}.
+         */
+        addPersons,
+
+        /**
+         * {@link GenealogicalTreeController#snapshot}.
+         */
+        snapshot,
+
+        /**
+         * {@link GenealogicalTreeController#getPerson}.
+         */
+        getPerson,
+
+        /**
+         * {@link GenealogicalTreeController#getAncestors}.
+         */
+        getAncestors,
+
+        /**
+         * {@link GenealogicalTreeController#getDescendants}.
+         */
+        getDescendants,
+
+        /**
+         * {@link GenealogicalTreeController#isRelated}.
+         */
+        isRelated,
+
+        /**
+         * {@link GenealogicalTreeController#getLowestCommonAncestor}.
+         */
+        getLowestCommonAncestor,
+
+        /**
+         * {@link GenealogicalTreeController#getKinship}.
+         */
+        getKinship,
+
+        /**
+         * {@link GenealogicalTreeController#getMaxGeneration}.
+         */
+        getMaxGeneration,
+
+        /**
+         * {@link GenealogicalTreeController#getGeneration}.
+         */
+        getGeneration,
+
+        /**
+         * {@link GenealogicalTreeController#getStatistics}.
+         */
+        getStatistics,
+
+        /**
+         * {@link GenealogicalTreeController#mergeDuplicates}.
+         */
+        mergeDuplicates,
+
+        /**
+         * {@link GenealogicalTreeController#getAllTree}.
+         */
+        getAllTree,
+
+        /**
+         * {@link GenealogicalTreeController#writeAllTree}.
+         */
+        writeAllTree,
+
+        /**
+         * {@link GenealogicalTreeController#openBranch}.
+         */
+        openBranch,
+
+        /**
+         * {@link GenealogicalTreeController#writeBranch}.
+         */
+        writeBranch
     }
 
     /**
-     * Метод обхода дерева в глубину для записи в строку.
-     * @param person Текущий узел.
-     * @param builder Объект StringBuilder для записи узлов.
-     * @param indent Отступ.
-     * @param last Является ли узел последним в текущем списке.
+     * Класс, описывающий приемник текста, который передает текст в другой приемник и копирует его
+     * для кэша, пока длина копии не превышает {@link #MAX_CACHED_LENGTH}.
      */
-    private void dfsGenealogicalTree(GenealogicalTreeNode person, StringBuilder builder, String indent, boolean last) {
-        builder.append(indent)
-                .append(last ? '└' : '├')
-                .append('─')
-                .append(person);
+    private static final class CachingAppendable implements Appendable {
 
-        GenealogicalTreeNode[] children = person.getChildren();
-        if (children.length == 0)
-            return;
+        /**
+         * Приемник текста.
+         */
+        private final Appendable out;
+
+        /**
+         * Копия записанного текста или null, если текст оказался слишком длинным для кэша.
+         */
+        StringBuilder builder = new StringBuilder();
+
+        /**
+         * Инициализация приемника.
+         * @param out Приемник текста.
+         */
+        CachingAppendable(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence text) throws IOException {
+            out.append(text);
+            if (builder != null && fits(text == null ? 4 : text.length()))
+                builder.append(text);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) throws IOException {
+            out.append(text, start, end);
+            if (builder != null && fits(end - start))
+                builder.append(text, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            out.append(c);
+            if (builder != null && fits(1))
+                builder.append(c);
+            return this;
+        }
+
+        /**
+         * Метод проверки, помещается ли текст в копию. Если нет, копия освобождается.
+         * @param length Длина текста.
+         * @return true, если текст нужно добавить в копию.
+         */
+        private boolean fits(int length) {
+            if (builder.length() + (long) length <= MAX_CACHED_LENGTH)
+                return true;
+
+            builder = null;
+            return false;
+        }
+    }
+
+    /**
+     * Класс, описывающий текст дерева, записанный при определенном размере дерева.
+     * Узлы только добавляются и не изменяются, поэтому размер дерева служит его версией.
+     * Текст хранится по мягкой ссылке и может быть освобожден при нехватке памяти.
+     */
+    private static final class RenderedTree {
 
-        builder.append(" & ");
+        /**
+         * Размер дерева при записи.
+         */
+        final int version;
 
-        GenealogicalTreeNode spouse = person.getPerson().getGender() == Gender.male
-                ? children[0].getMother() : children[0].getFather();
-        builder.append(spouse);
+        /**
+         * Текст дерева.
+         */
+        final SoftReference<String> text;
 
-        for (GenealogicalTreeNode child: children) {
-            builder.append('\n');
-            dfsGenealogicalTree(child, builder, indent + (last ? "  " : "│ "), child == children[children.length - 1]);
+        /**
+         * Инициализация записанного текста.
+         * @param version Размер дерева при записи.
+         * @param text Текст дерева.
+         */
+        RenderedTree(int version, String text) {
+            this.version = version;
+            this.text = new SoftReference<>(text);
         }
     }
 }
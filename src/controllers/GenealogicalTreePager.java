@@ -0,0 +1,182 @@
+package controllers;
+
+import models.*;
+
+import java.io.IOException;
+
+/**
+ * Класс, описывающий постраничную запись ветви генеалогического дерева.
+ * <p>
+ * Ветвь записывается от указанного узла в прямом порядке до заданной глубины: дети узлов на наибольшей
+ * глубине не обходятся, а вместо них выводится их количество. Обход хранится между страницами, поэтому
+ * каждая следующая страница продолжает его с места остановки, а узлы за концом страницы не посещаются.
+ */
+public class GenealogicalTreePager {
+
+    /**
+     * Обход ветви.
+     */
+    private final GenealogicalTreeTraversal traversal;
+
+    /**
+     * Объект записи строк с отступом, общим для всех страниц.
+     */
+    private final GenealogicalTreeRenderer renderer;
+
+    /**
+     * Наибольшая глубина записываемых узлов относительно корня ветви.
+     */
+    private final int maxDepth;
+
+    /**
+     * Количество строк на странице.
+     */
+    private final int pageSize;
+
+    /**
+     * Номер следующей строки.
+     */
+    private int line;
+
+    /**
+     * Стоит ли обход на узле, который еще не записан.
+     */
+    private boolean pending;
+
+    /**
+     * Инициализация постраничной записи ветви.
+     * @param root Корневой узел ветви.
+     * @param maxDepth Наибольшая глубина записываемых узлов, 0 - только корень.
+     * @param pageSize Количество строк на странице.
+     * @throws IllegalArgumentException Возбуждается, если узел не инициализирован или параметры невалидны.
+     */
+    public GenealogicalTreePager(GenealogicalTreeNode root, int maxDepth, int pageSize)
+            throws IllegalArgumentException {
+
+        this(root, Integer.MAX_VALUE, maxDepth, pageSize);
+    }
+
+    /**
+     * Инициализация постраничной записи ветви снимка дерева.
+     * Все страницы записываются из одного снимка, даже если между ними в дерево добавляются люди.
+     * @param snapshot Снимок дерева.
+     * @param root Корневой узел ветви.
+     * @param maxDepth Наибольшая глубина записываемых узлов, 0 - только корень.
+     * @param pageSize Количество строк на странице.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован, узел не принадлежит
+     * снимку или параметры невалидны.
+     */
+    public GenealogicalTreePager(GenealogicalTreeSnapshot snapshot, GenealogicalTreeNode root, int maxDepth,
+                                 int pageSize) throws IllegalArgumentException {
+
+        this(root, checkSnapshot(snapshot, root), maxDepth, pageSize);
+    }
+
+    /**
+     * Инициализация постраничной записи узлов с идентификаторами не больше заданного.
+     * @param root Корневой узел ветви.
+     * @param maxId Наибольший идентификатор записываемых узлов.
+     * @param maxDepth Наибольшая глубина записываемых узлов, 0 - только корень.
+     * @param pageSize Количество строк на странице.
+     * @throws IllegalArgumentException Возбуждается, если узел не инициализирован или параметры невалидны.
+     */
+    private GenealogicalTreePager(GenealogicalTreeNode root, int maxId, int maxDepth, int pageSize)
+            throws IllegalArgumentException {
+
+        if (root == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+        if (maxDepth < 0 || pageSize <= 0)
+            throw new IllegalArgumentException("Невалидные параметры страницы.");
+
+        this.maxDepth = maxDepth;
+        this.pageSize = pageSize;
+        traversal = new GenealogicalTreeTraversal(root, TraversalOrder.preOrder, maxId);
+        renderer = new GenealogicalTreeRenderer(maxId);
+        pending = traversal.next();
+    }
+
+    /**
+     * Метод пропуска строк без записи.
+     * @param lines Количество строк.
+     * @return Количество пропущенных строк, меньшее запрошенного, если ветвь закончилась.
+     * @throws IllegalArgumentException Возбуждается, если количество отрицательно.
+     */
+    public int skip(int lines) throws IllegalArgumentException {
+        if (lines < 0)
+            throw new IllegalArgumentException("Невалидное количество строк.");
+
+        int skipped = 0;
+        while (pending && skipped < lines) {
+            renderer.skipLine(traversal.getDepth(), traversal.isLast());
+            skipped++;
+            advance();
+        }
+        return skipped;
+    }
+
+    /**
+     * Метод записи следующей страницы. Строки разделяются переводом строки, после последней он не ставится.
+     * @param out Приемник текста.
+     * @return Количество записанных строк, 0, если ветвь закончилась.
+     * @throws IllegalArgumentException Возбуждается, если приемник не инициализирован.
+     * @throws IOException Возбуждается при ошибке записи в приемник.
+     */
+    public int nextPage(Appendable out) throws IllegalArgumentException, IOException {
+        if (out == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        int written = 0;
+        while (pending && written < pageSize) {
+            if (written > 0)
+                out.append('\n');
+            int depth = traversal.getDepth();
+            renderer.writeLine(out, traversal.getNode(), depth, traversal.isLast(), depth >= maxDepth);
+            written++;
+            advance();
+        }
+        return written;
+    }
+
+    /**
+     * Метод проверки наличия следующей страницы.
+     * @return true, если в ветви остались незаписанные строки.
+     */
+    public boolean hasNextPage() {
+        return pending;
+    }
+
+    /**
+     * Метод, возвращающий номер следующей строки ветви, считая с 0.
+     * @return Количество записанных и пропущенных строк.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Метод проверки принадлежности корня ветви снимку.
+     * @param snapshot Снимок дерева.
+     * @param root Корневой узел ветви.
+     * @return Наибольший идентификатор узлов снимка.
+     * @throws IllegalArgumentException Возбуждается, если снимок не инициализирован или узел ему не принадлежит.
+     */
+    private static int checkSnapshot(GenealogicalTreeSnapshot snapshot, GenealogicalTreeNode root)
+            throws IllegalArgumentException {
+
+        if (snapshot == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+        if (!snapshot.contains(root))
+            throw new IllegalArgumentException("Переданный узел не содержится в этом снимке генеалогического дерева.");
+        return snapshot.size();
+    }
+
+    /**
+     * Метод перехода к следующей строке. Дети узла на наибольшей глубине не обходятся.
+     */
+    private void advance() {
+        line++;
+        if (traversal.getDepth() >= maxDepth)
+            traversal.skipChildren();
+        pending = traversal.next();
+    }
+}
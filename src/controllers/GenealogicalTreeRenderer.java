@@ -0,0 +1,212 @@
+package controllers;
+
+import models.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Класс, описывающий потоковую запись генеалогического дерева в текстовом виде.
+ * Строки дерева записываются в приемник по мере обхода, а отступ хранится в одном переиспользуемом буфере.
+ */
+public class GenealogicalTreeRenderer {
+
+    /**
+     * Начальная емкость буфера отступа.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Буфер отступа текущей строки.
+     */
+    private char[] indent;
+
+    /**
+     * Буфер для записи идентификаторов.
+     */
+    private final char[] digits;
+
+    /**
+     * Наибольший идентификатор записываемых узлов.
+     */
+    private final int maxId;
+
+    /**
+     * Инициализация объекта записи дерева.
+     */
+    public GenealogicalTreeRenderer() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Инициализация объекта записи узлов с идентификаторами не больше заданного.
+     * @param maxId Наибольший идентификатор записываемых узлов.
+     */
+    GenealogicalTreeRenderer(int maxId) {
+        this.maxId = maxId;
+        indent = new char[INITIAL_CAPACITY];
+        digits = new char[11];
+    }
+
+    /**
+     * Метод записи дерева начиная с указанного узла.
+     * @param root Корневой узел записи.
+     * @param out Приемник текста.
+     * @throws IOException Возбуждается при ошибке записи в приемник.
+     */
+    public void render(GenealogicalTreeNode root, Appendable out) throws IOException {
+        render(new GenealogicalTreeTraversal(root, TraversalOrder.preOrder, maxId), out);
+    }
+
+    /**
+     * Метод записи снимка дерева начиная с корневого узла.
+     * Используется отдельный объект записи, так как дети узлов, добавленные после снимка, не записываются.
+     * @param snapshot Снимок дерева.
+     * @param out Приемник текста.
+     * @throws IOException Возбуждается при ошибке записи в приемник.
+     */
+    public static void render(GenealogicalTreeSnapshot snapshot, Appendable out) throws IOException {
+        new GenealogicalTreeRenderer(snapshot.size())
+                .render(snapshot.traversal(snapshot.getHead(), TraversalOrder.preOrder), out);
+    }
+
+    /**
+     * Метод записи узлов обхода.
+     * @param traversal Прямой обход.
+     * @param out Приемник текста.
+     * @throws IOException Возбуждается при ошибке записи в приемник.
+     */
+    private void render(GenealogicalTreeTraversal traversal, Appendable out) throws IOException {
+        while (traversal.next()) {
+            if (traversal.getDepth() > 0)
+                out.append('\n');
+            writeLine(out, traversal.getNode(), traversal.getDepth(), traversal.isLast(), false);
+        }
+    }
+
+    /**
+     * Метод записи строки узла: отступа, ветви, узла и его супруга.
+     * Строки должны записываться или пропускаться в порядке прямого обхода.
+     * @param out Приемник текста.
+     * @param node Узел для записи.
+     * @param depth Глубина узла относительно корня записи.
+     * @param last Является ли узел последним в списке детей.
+     * @param collapsed Не записываются ли дети узла. Если у узла есть дети, после него выводится их количество.
+     * @throws IOException Возбуждается при ошибке записи в приемник.
+     */
+    void writeLine(Appendable out, GenealogicalTreeNode node, int depth, boolean last, boolean collapsed)
+            throws IOException {
+
+        write(out, indent, depth * 2);
+        out.append(last ? '└' : '├').append('─');
+        writeNode(out, node);
+
+        int count = visibleChildren(node);
+        if (count > 0) {
+            GenealogicalTreeNode first = firstChild(node);
+            GenealogicalTreeNode spouse = node.equals(first.getFather()) ? first.getMother() : first.getFather();
+            if (spouse != null) {
+                out.append(" & ");
+                writeNode(out, spouse);
+            }
+            if (collapsed)
+                out.append(" [+").append(Integer.toString(count)).append(']');
+        }
+
+        skipLine(depth, last);
+    }
+
+    /**
+     * Метод подсчета записываемых детей узла.
+     * @param node Узел.
+     * @return Количество детей с идентификаторами не больше наибольшего.
+     */
+    private int visibleChildren(GenealogicalTreeNode node) {
+        int count = node.childCount();
+        if (maxId == Integer.MAX_VALUE)
+            return count;
+
+        int visible = 0;
+        for (int i = 0; i < count; i++) {
+            if (node.childAt(i).getId() <= maxId)
+                visible++;
+        }
+        return visible;
+    }
+
+    /**
+     * Метод поиска первого записываемого ребенка.
+     * @param node Узел, у которого есть записываемые дети.
+     * @return Первый ребенок с идентификатором не больше наибольшего.
+     */
+    private GenealogicalTreeNode firstChild(GenealogicalTreeNode node) {
+        int index = 0;
+        while (node.childAt(index).getId() > maxId)
+            index++;
+        return node.childAt(index);
+    }
+
+    /**
+     * Метод пропуска строки узла без записи: обновляет только отступ для следующих строк.
+     * @param depth Глубина узла относительно корня записи.
+     * @param last Является ли узел последним в списке детей.
+     */
+    void skipLine(int depth, boolean last) {
+        int length = depth * 2;
+        if (length + 2 > indent.length)
+            indent = Arrays.copyOf(indent, Math.max(indent.length << 1, length + 2));
+        indent[length] = last ? ' ' : '│';
+        indent[length + 1] = ' ';
+    }
+
+    /**
+     * Метод записи узла в формате "Имя(id)".
+     * @param out Приемник текста.
+     * @param node Узел для записи.
+     * @throws IOException Возбуждается при ошибке записи в приемник.
+     */
+    private void writeNode(Appendable out, GenealogicalTreeNode node) throws IOException {
+        out.append(node.getPerson().getName()).append('(');
+
+        int value = node.getId();
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+
+        write(out, digits, position, digits.length - position);
+        out.append(')');
+    }
+
+    /**
+     * Метод записи начала буфера символов.
+     * @param out Приемник текста.
+     * @param buffer Буфер символов.
+     * @param length Количество символов.
+     * @throws IOException Возбуждается при ошибке записи в приемник.
+     */
+    private static void write(Appendable out, char[] buffer, int length) throws IOException {
+        write(out, buffer, 0, length);
+    }
+
+    /**
+     * Метод записи части буфера символов без создания промежуточных строк.
+     * @param out Приемник текста.
+     * @param buffer Буфер символов.
+     * @param offset Смещение первого символа.
+     * @param length Количество символов.
+     * @throws IOException Возбуждается при ошибке записи в приемник.
+     */
+    private static void write(Appendable out, char[] buffer, int offset, int length) throws IOException {
+        if (out instanceof Writer writer) {
+            writer.write(buffer, offset, length);
+        } else if (out instanceof StringBuilder builder) {
+            builder.append(buffer, offset, length);
+        } else {
+            for (int i = offset; i < offset + length; i++)
+                out.append(buffer[i]);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package controllers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс, описывающий гистограмму длительностей операции.
+ * <p>
+ * Длительности в наносекундах раскладываются по логарифмическим корзинам: каждая степень двойки делится
+ * на {@value #SUB_BUCKETS} равных частей, поэтому ошибка процентилей не превышает 12.5%. Все корзины
+ * создаются заранее, и запись длительности не выделяет память и не берет блокировок.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Количество бит, определяющих корзину внутри степени двойки.
+     */
+    private static final int SUB_BITS = 3;
+
+    /**
+     * Количество корзин на степень двойки.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * Количество корзин, покрывающее все неотрицательные значения long.
+     */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    /**
+     * Количество длительностей в корзинах.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Сумма длительностей.
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Наибольшая длительность.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Метод записи длительности операции.
+     * @param nanos Длительность в наносекундах. Отрицательные значения считаются нулем.
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+
+        buckets.incrementAndGet(bucket(nanos));
+        total.add(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos))
+            current = max.get();
+    }
+
+    /**
+     * Метод получения сводки по записанным длительностям.
+     * Запись не останавливается, поэтому сводка, полученная во время записи, может не учитывать последние операции.
+     * @return Количество операций, средняя и наибольшая длительности и процентили.
+     */
+    public LatencySummary summary() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+
+        long maxNanos = max.get();
+        return new LatencySummary(count, count == 0 ? 0 : (double) total.sum() / count,
+                percentile(counts, count, 0.5, maxNanos), percentile(counts, count, 0.9, maxNanos),
+                percentile(counts, count, 0.99, maxNanos), maxNanos);
+    }
+
+    /**
+     * Метод вычисления процентиля по корзинам.
+     * @param counts Количество длительностей в корзинах.
+     * @param count Общее количество длительностей.
+     * @param quantile Доля от 0 до 1.
+     * @param maxNanos Наибольшая длительность.
+     * @return Верхняя граница корзины, содержащей процентиль, но не больше наибольшей длительности.
+     */
+    private static long percentile(long[] counts, long count, double quantile, long maxNanos) {
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(upperBound(i), maxNanos);
+        }
+        return maxNanos;
+    }
+
+    /**
+     * Метод определения корзины длительности.
+     * @param nanos Неотрицательная длительность.
+     * @return Номер корзины.
+     */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    /**
+     * Метод определения наибольшей длительности корзины.
+     * @param bucket Номер корзины.
+     * @return Верхняя граница корзины включительно.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int shift = (bucket >>> SUB_BITS) - 1;
+        long lower = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
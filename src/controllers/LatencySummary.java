@@ -0,0 +1,111 @@
+package controllers;
+
+import java.util.Locale;
+
+/**
+ * Класс, описывающий сводку по длительностям операции. Методы возвращают длительности в микросекундах.
+ */
+public class LatencySummary {
+
+    /**
+     * Количество операций.
+     */
+    private final long count;
+
+    /**
+     * Средняя длительность в наносекундах.
+     */
+    private final double meanNanos;
+
+    /**
+     * Медиана длительности в наносекундах.
+     */
+    private final long p50Nanos;
+
+    /**
+     * 90-й процентиль длительности в наносекундах.
+     */
+    private final long p90Nanos;
+
+    /**
+     * 99-й процентиль длительности в наносекундах.
+     */
+    private final long p99Nanos;
+
+    /**
+     * Наибольшая длительность в наносекундах.
+     */
+    private final long maxNanos;
+
+    /**
+     * Инициализация сводки.
+     * @param count Количество операций.
+     * @param meanNanos Средняя длительность в наносекундах.
+     * @param p50Nanos Медиана длительности в наносекундах.
+     * @param p90Nanos 90-й процентиль длительности в наносекундах.
+     * @param p99Nanos 99-й процентиль длительности в наносекундах.
+     * @param maxNanos Наибольшая длительность в наносекундах.
+     */
+    LatencySummary(long count, double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+        this.count = count;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * Метод, возвращающий количество операций.
+     * @return Количество операций.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Метод, возвращающий среднюю длительность.
+     * @return Средняя длительность в микросекундах.
+     */
+    public double getMeanMicros() {
+        return meanNanos / 1000;
+    }
+
+    /**
+     * Метод, возвращающий медиану длительности.
+     * @return Медиана в микросекундах.
+     */
+    public double getP50Micros() {
+        return p50Nanos / 1000.0;
+    }
+
+    /**
+     * Метод, возвращающий 90-й процентиль длительности.
+     * @return 90-й процентиль в микросекундах.
+     */
+    public double getP90Micros() {
+        return p90Nanos / 1000.0;
+    }
+
+    /**
+     * Метод, возвращающий 99-й процентиль длительности.
+     * @return 99-й процентиль в микросекундах.
+     */
+    public double getP99Micros() {
+        return p99Nanos / 1000.0;
+    }
+
+    /**
+     * Метод, возвращающий наибольшую длительность.
+     * @return Наибольшая длительность в микросекундах.
+     */
+    public double getMaxMicros() {
+        return maxNanos / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d оп., среднее %.1f мкс, p50 %.1f, p90 %.1f, p99 %.1f, макс. %.1f",
+                count, getMeanMicros(), getP50Micros(), getP90Micros(), getP99Micros(), getMaxMicros());
+    }
+}
@@ -0,0 +1,215 @@
+package controllers;
+
+import models.GenealogicalTree;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Класс, описывающий набор метрик приложения: счетчики, гистограммы длительностей операций и показатели
+ * отслеживаемых деревьев - количество узлов и наибольшую глубину.
+ * <p>
+ * Счетчики и гистограммы создаются один раз по названию и затем обновляются без блокировок и выделения памяти.
+ * Показатели деревьев читаются только при чтении метрик: глубина берется из индекса поколений дерева.
+ * Метрики доступны через JMX и в виде текстового отчета, который можно периодически записывать в файл.
+ */
+public class MetricsRegistry implements MetricsRegistryMXBean {
+
+    /**
+     * Имя объекта метрик в JMX по умолчанию.
+     */
+    public static final String DEFAULT_NAME = "GenealogicalTree:type=Metrics";
+
+    /**
+     * Счетчики по названиям.
+     */
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+
+    /**
+     * Гистограммы длительностей по названиям операций.
+     */
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+
+    /**
+     * Источник отслеживаемых деревьев.
+     */
+    private volatile Supplier<Map<Integer, GenealogicalTree>> trees = Collections::emptyMap;
+
+    /**
+     * Метод получения счетчика. Счетчик создается при первом обращении.
+     * @param name Название счетчика.
+     * @return Счетчик.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public LongAdder counter(String name) throws IllegalArgumentException {
+        if (name == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Метод получения гистограммы длительностей операции. Гистограмма создается при первом обращении.
+     * @param name Название операции.
+     * @return Гистограмма.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public LatencyHistogram latency(String name) throws IllegalArgumentException {
+        if (name == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        return latencies.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Метод задания отслеживаемых деревьев. Источник вызывается при каждом чтении показателей деревьев.
+     * @param trees Источник деревьев по идентификаторам.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public void trackTrees(Supplier<Map<Integer, GenealogicalTree>> trees) throws IllegalArgumentException {
+        if (trees == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        this.trees = trees;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder> entry: counters.entrySet())
+            values.put(entry.getKey(), entry.getValue().sum());
+        return values;
+    }
+
+    @Override
+    public Map<String, LatencySummary> getLatencies() {
+        Map<String, LatencySummary> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry: latencies.entrySet())
+            values.put(entry.getKey(), entry.getValue().summary());
+        return values;
+    }
+
+    @Override
+    public Map<Integer, Integer> getTreeSizes() {
+        Map<Integer, Integer> values = new LinkedHashMap<>();
+        for (Map.Entry<Integer, GenealogicalTree> entry: trees.get().entrySet())
+            values.put(entry.getKey(), entry.getValue().size());
+        return values;
+    }
+
+    @Override
+    public Map<Integer, Integer> getTreeDepths() {
+        Map<Integer, Integer> values = new LinkedHashMap<>();
+        for (Map.Entry<Integer, GenealogicalTree> entry: trees.get().entrySet())
+            values.put(entry.getKey(), entry.getValue().getMaxGeneration());
+        return values;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Метрики на ").append(Instant.now()).append('\n');
+
+        builder.append("\nОперации:\n");
+        for (Map.Entry<String, LatencySummary> entry: getLatencies().entrySet()) {
+            if (entry.getValue().getCount() > 0)
+                builder.append("    ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+
+        builder.append("\nСчетчики:\n");
+        for (Map.Entry<String, Long> entry: getCounters().entrySet())
+            builder.append("    ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+
+        builder.append("\nДеревья:\n");
+        for (Map.Entry<Integer, GenealogicalTree> entry: trees.get().entrySet()) {
+            GenealogicalTree genealogicalTree = entry.getValue();
+            builder.append("    ").append(entry.getKey()).append(". ").append(genealogicalTree.getName())
+                    .append(": узлов ").append(genealogicalTree.size())
+                    .append(", глубина ").append(genealogicalTree.getMaxGeneration()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Метод регистрации метрик на платформенном сервере JMX.
+     * @param name Имя объекта в JMX, например {@link #DEFAULT_NAME}.
+     * @return Зарегистрированное имя объекта.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws JMException Возбуждается, если имя невалидно или уже занято.
+     */
+    public ObjectName register(String name) throws IllegalArgumentException, JMException {
+        if (name == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        ObjectName objectName = new ObjectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Метод запуска периодической записи отчета в файл. Файл каждый раз заменяется целиком,
+     * поэтому читатель никогда не видит отчет, записанный наполовину.
+     * @param file Путь к файлу отчета.
+     * @param period Период записи.
+     * @return Объект, закрытие которого останавливает запись и записывает последний отчет.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или период не положителен.
+     */
+    public Closeable startDump(Path file, Duration period) throws IllegalArgumentException {
+        if (file == null || period == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+        if (period.isNegative() || period.isZero())
+            throw new IllegalArgumentException("Невалидный период записи отчета.");
+
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                dump(file);
+            } catch (IOException ignored) {
+                // Отчет будет записан при следующем срабатывании.
+            }
+        }, period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+
+        return () -> {
+            executor.shutdownNow();
+            dump(file);
+        };
+    }
+
+    /**
+     * Метод записи отчета в файл через временный файл в том же каталоге.
+     * @param file Путь к файлу отчета.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    private void dump(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temporary, getReport(), StandardCharsets.UTF_8);
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package controllers;
+
+import java.util.Map;
+
+/**
+ * Интерфейс управления метриками через JMX.
+ */
+public interface MetricsRegistryMXBean {
+
+    /**
+     * Метод, возвращающий значения счетчиков.
+     * @return Значения счетчиков по названиям.
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Метод, возвращающий сводки по длительностям операций.
+     * @return Сводки по названиям операций.
+     */
+    Map<String, LatencySummary> getLatencies();
+
+    /**
+     * Метод, возвращающий количество узлов отслеживаемых деревьев.
+     * @return Количество узлов по идентификаторам деревьев.
+     */
+    Map<Integer, Integer> getTreeSizes();
+
+    /**
+     * Метод, возвращающий наибольшую глубину отслеживаемых деревьев.
+     * @return Наибольшая глубина по идентификаторам деревьев.
+     */
+    Map<Integer, Integer> getTreeDepths();
+
+    /**
+     * Метод, возвращающий текстовый отчет по метрикам. Операции, которые ни разу не выполнялись, не включаются.
+     * @return Отчет.
+     */
+    String getReport();
+}
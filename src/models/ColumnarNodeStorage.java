@@ -0,0 +1,591 @@
+package models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс, описывающий столбцовое хранилище узлов.
+ * Родители, пол и имена хранятся в примитивных массивах, индексируемых идентификатором узла,
+ * а дети - в виде списка смежности в формате CSR (compressed sparse row). Дети, добавленные после
+ * построения CSR, дописываются в журнал детей - общий пул блоков int, по блоку на родителя, без объектов
+ * на родителя. CSR перестраивается при добавлении, когда журнал становится больше него, поэтому
+ * перестроение занимает амортизированно постоянное время на узел независимо от чередования добавления и чтения.
+ * Объекты узлов не хранятся и создаются по запросу как легковесные представления над столбцами.
+ * <p>
+ * Добавление узлов выполняется под блокировкой хранилища. Чтение не блокируется: столбцы заполняются
+ * до публикации нового размера, а уже записанные ячейки не изменяются.
+ */
+class ColumnarNodeStorage implements IColumnarStorage {
+
+    /**
+     * Начальная емкость столбцов.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Код мужского пола в столбце пола.
+     */
+    private static final byte MALE = 0;
+
+    /**
+     * Код женского пола в столбце пола.
+     */
+    private static final byte FEMALE = 1;
+
+    /**
+     * Наименьшее количество детей в журнале, после которого перестраивается CSR.
+     */
+    private static final int MIN_RECENT_CHILDREN = 1 << 10;
+
+    /**
+     * Объект генеалогического дерева, к которому относятся узлы.
+     */
+    private final GenealogicalTree genealogicalTree;
+
+    /**
+     * Наибольший идентификатор хранимого узла. Записывается последним при добавлении узла.
+     */
+    private volatile int size;
+
+    /**
+     * Идентификаторы отцов, 0 - отец не указан.
+     */
+    private volatile int[] fathers;
+
+    /**
+     * Идентификаторы матерей, 0 - мать не указана.
+     */
+    private volatile int[] mothers;
+
+    /**
+     * Поколения узлов.
+     */
+    private volatile int[] generations;
+
+    /**
+     * Коды пола.
+     */
+    private volatile byte[] genders;
+
+    /**
+     * Смещения концов имен в пуле имен. Имя узла id занимает байты [nameEnds[id - 1], nameEnds[id]).
+     */
+    private volatile int[] nameEnds;
+
+    /**
+     * Пул имен в кодировке UTF-8.
+     */
+    private volatile byte[] names;
+
+    /**
+     * Списки детей: CSR и журнал детей, добавленных после его построения.
+     */
+    private volatile ChildIndex childIndex;
+
+    /**
+     * Инициализация хранилища.
+     * @param genealogicalTree Объект генеалогического дерева, к которому относятся узлы.
+     */
+    ColumnarNodeStorage(GenealogicalTree genealogicalTree) {
+        this.genealogicalTree = genealogicalTree;
+        fathers = new int[INITIAL_CAPACITY];
+        mothers = new int[INITIAL_CAPACITY];
+        generations = new int[INITIAL_CAPACITY];
+        genders = new byte[INITIAL_CAPACITY];
+        nameEnds = new int[INITIAL_CAPACITY];
+        names = new byte[INITIAL_CAPACITY * 16];
+        childIndex = new ChildIndex(0, new int[2], new int[0]);
+    }
+
+    /**
+     * Метод добавления узла. Вся память выделяется до записи в столбцы и списки детей,
+     * поэтому при ее нехватке хранилище не изменяется.
+     * @param id Идентификатор нового узла.
+     * @param person Объект человека.
+     * @param father Узел отца или null.
+     * @param mother Узел матери или null.
+     * @return Добавленный узел.
+     */
+    @Override
+    public synchronized GenealogicalTreeNode add(int id, Person person, GenealogicalTreeNode father,
+                                                 GenealogicalTreeNode mother) {
+        if (id >= fathers.length)
+            grow(Math.max(fathers.length << 1, id + 1));
+
+        ChildIndex childIndex = this.childIndex;
+        int edges = (father == null ? 0 : 1) + (mother == null ? 0 : 1);
+        if (childIndex.recentCount + edges > Math.max(MIN_RECENT_CHILDREN, childIndex.ids.length))
+            childIndex = rebuildChildIndex();
+        childIndex.ensureCapacity(father == null ? 0 : father.getId(), mother == null ? 0 : mother.getId());
+
+        int start = nameEnds[size];
+        for (int i = size + 1; i < id; i++)
+            nameEnds[i] = start;
+
+        byte[] name = person.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] names = this.names;
+        if (start + name.length > names.length)
+            names = Arrays.copyOf(names, Math.max(names.length << 1, start + name.length));
+        System.arraycopy(name, 0, names, start, name.length);
+        this.names = names;
+
+        fathers[id] = father == null ? 0 : father.getId();
+        mothers[id] = mother == null ? 0 : mother.getId();
+        generations[id] = GenealogicalTreeNode.generation(father, mother);
+        genders[id] = person.getGender() == Gender.male ? MALE : FEMALE;
+        nameEnds[id] = start + name.length;
+        GenealogicalTreeNode node = new ColumnarTreeNode(id, genealogicalTree, this);
+        size = id;
+
+        if (father != null)
+            childIndex.add(father.getId(), id);
+        if (mother != null)
+            childIndex.add(mother.getId(), id);
+        return node;
+    }
+
+    /**
+     * Метод резервирования столбцов под узлы с идентификаторами до указанного включительно.
+     * Столбцы расширяются не меньше чем вдвое, как при добавлении узла, чтобы пакеты подряд не копировали их
+     * каждый раз.
+     * @param lastId Наибольший идентификатор добавляемых узлов.
+     */
+    @Override
+    public synchronized void reserve(int lastId) {
+        if (lastId >= fathers.length)
+            grow(Math.max(fathers.length << 1, lastId + 1));
+    }
+
+    /**
+     * Метод резервирования места в журнале детей под блок родителя.
+     * @param parent Узел родителя.
+     * @param additional Количество добавляемых детей.
+     */
+    @Override
+    public synchronized void reserveChildren(GenealogicalTreeNode parent, int additional) {
+        childIndex.reserve(parent.getId(), additional);
+    }
+
+    /**
+     * Метод увеличения емкости столбцов. Вызывается под блокировкой хранилища. Новые столбцы
+     * публикуются только после копирования всех, поэтому нехватка памяти не оставляет столбцы разной длины.
+     * @param capacity Новая емкость.
+     */
+    private void grow(int capacity) {
+        int[] fathers = Arrays.copyOf(this.fathers, capacity);
+        int[] mothers = Arrays.copyOf(this.mothers, capacity);
+        int[] generations = Arrays.copyOf(this.generations, capacity);
+        byte[] genders = Arrays.copyOf(this.genders, capacity);
+        int[] nameEnds = Arrays.copyOf(this.nameEnds, capacity);
+        this.fathers = fathers;
+        this.mothers = mothers;
+        this.generations = generations;
+        this.genders = genders;
+        this.nameEnds = nameEnds;
+    }
+
+    /**
+     * Метод получения узла по идентификатору.
+     * @param id Идентификатор узла.
+     * @return Легковесное представление узла или null, если узел с таким идентификатором не хранится.
+     */
+    @Override
+    public GenealogicalTreeNode get(int id) {
+        if (id <= 0 || id > size)
+            return null;
+
+        return new ColumnarTreeNode(id, genealogicalTree, this);
+    }
+
+    /**
+     * Метод восстановления объекта человека из столбцов.
+     * @param id Идентификатор узла.
+     * @return Объект человека.
+     */
+    @Override
+    public Person person(int id) {
+        int[] nameEnds = this.nameEnds;
+        int start = nameEnds[id - 1];
+        String name = new String(names, start, nameEnds[id] - start, StandardCharsets.UTF_8);
+        return genders[id] == MALE ? new Male(name) : new Female(name);
+    }
+
+    /**
+     * Метод, возвращающий пол человека без восстановления объекта.
+     * @param id Идентификатор узла.
+     * @return Пол человека.
+     */
+    @Override
+    public Gender gender(int id) {
+        return genders[id] == MALE ? Gender.male : Gender.female;
+    }
+
+    /**
+     * Метод, возвращающий длину имени человека в кодировке UTF-8.
+     * @param id Идентификатор узла.
+     * @return Длина имени в байтах.
+     */
+    @Override
+    public int nameLength(int id) {
+        int[] nameEnds = this.nameEnds;
+        return nameEnds[id] - nameEnds[id - 1];
+    }
+
+    /**
+     * Метод, возвращающий копию имени человека из пула имен.
+     * @param id Идентификатор узла.
+     * @return Байты имени в кодировке UTF-8.
+     */
+    @Override
+    public byte[] name(int id) {
+        int[] nameEnds = this.nameEnds;
+        return Arrays.copyOfRange(names, nameEnds[id - 1], nameEnds[id]);
+    }
+
+    /**
+     * Метод, возвращающий идентификатор отца.
+     * @param id Идентификатор узла.
+     * @return Идентификатор отца или 0.
+     */
+    @Override
+    public int father(int id) {
+        return fathers[id];
+    }
+
+    /**
+     * Метод, возвращающий идентификатор матери.
+     * @param id Идентификатор узла.
+     * @return Идентификатор матери или 0.
+     */
+    @Override
+    public int mother(int id) {
+        return mothers[id];
+    }
+
+    /**
+     * Метод, возвращающий поколение узла.
+     * @param id Идентификатор узла.
+     * @return Поколение узла.
+     */
+    @Override
+    public int generation(int id) {
+        return generations[id];
+    }
+
+    /**
+     * Метод, возвращающий количество детей узла.
+     * @param id Идентификатор узла.
+     * @return Количество детей.
+     */
+    @Override
+    public int childCount(int id) {
+        ChildIndex childIndex = this.childIndex;
+        return childIndex.count(id) + ChildIndex.count(childIndex.block(id));
+    }
+
+    /**
+     * Метод, возвращающий идентификатор ребенка по порядковому номеру.
+     * Дети из CSR добавлены раньше детей из журнала, поэтому нумерация сохраняется и после перестроения.
+     * @param id Идентификатор узла.
+     * @param index Порядковый номер ребенка.
+     * @return Идентификатор ребенка.
+     */
+    @Override
+    public int childAt(int id, int index) {
+        ChildIndex childIndex = this.childIndex;
+        int count = childIndex.count(id);
+        if (index < count)
+            return childIndex.ids[childIndex.offsets[id] + index];
+        return childIndex.childAt(childIndex.block(id), index - count);
+    }
+
+    /**
+     * Метод построения CSR по всем опубликованным узлам с пустым журналом детей.
+     * Вызывается под блокировкой хранилища. Узлы добавляются в порядке возрастания идентификаторов,
+     * поэтому дети в списках остаются в порядке добавления.
+     * @return Перестроенные списки детей.
+     */
+    private ChildIndex rebuildChildIndex() {
+        int size = this.size;
+        int[] fathers = this.fathers;
+        int[] mothers = this.mothers;
+        int[] offsets = new int[size + 2];
+        int edges = 0;
+        for (int id = 1; id <= size; id++) {
+            if (fathers[id] != 0) {
+                offsets[fathers[id] + 1]++;
+                edges++;
+            }
+            if (mothers[id] != 0) {
+                offsets[mothers[id] + 1]++;
+                edges++;
+            }
+        }
+
+        for (int id = 1; id < offsets.length; id++)
+            offsets[id] += offsets[id - 1];
+
+        int[] ids = new int[edges];
+        int[] positions = Arrays.copyOf(offsets, offsets.length);
+        for (int id = 1; id <= size; id++) {
+            if (fathers[id] != 0)
+                ids[positions[fathers[id]]++] = id;
+            if (mothers[id] != 0)
+                ids[positions[mothers[id]]++] = id;
+        }
+
+        childIndex = new ChildIndex(size, offsets, ids);
+        return childIndex;
+    }
+
+    /**
+     * Класс, описывающий списки детей: неизменяемый CSR и журнал детей, добавленных после его построения.
+     * <p>
+     * Журнал хранит детей каждого родителя в отдельном блоке общего пула. Емкость блока - наименьшая
+     * степень двойки, не меньшая количества детей, поэтому блок полон, когда количество детей - степень
+     * двойки. Полный блок в конце пула расширяется на месте, иначе переносится в конец пула вдвое большим.
+     * Блоки находятся по таблице с открытой адресацией: пара ячеек на родителя - идентификатор родителя
+     * и описатель блока (начало в пуле в старших 32 битах и количество детей в младших).
+     * <p>
+     * Журнал дописывается под блокировкой хранилища, а читается без блокировки: описатель блока
+     * записывается после идентификаторов детей, а описатель нового родителя - до его идентификатора.
+     * Перенесенный блок содержит детей прежнего в том же порядке, поэтому прочитанные ранее номера детей
+     * остаются верными.
+     */
+    private static class ChildIndex {
+
+        /**
+         * Начальное количество ячеек таблицы блоков.
+         */
+        private static final int INITIAL_BLOCKS = 16;
+
+        /**
+         * Количество узлов, учтенных в CSR.
+         */
+        final int size;
+
+        /**
+         * Смещения списков: дети узла id занимают ячейки [offsets[id], offsets[id + 1]) массива ids.
+         */
+        final int[] offsets;
+
+        /**
+         * Идентификаторы детей, сгруппированные по родителям в порядке добавления.
+         */
+        final int[] ids;
+
+        /**
+         * Таблица блоков: в ячейке 2i - идентификатор родителя (0 - ячейка свободна), в ячейке 2i + 1 -
+         * описатель его блока. Заменяется при заполнении на три четверти.
+         */
+        private volatile AtomicLongArray blocks;
+
+        /**
+         * Пул блоков с идентификаторами детей. Заменяется при нехватке места.
+         */
+        private volatile int[] pool;
+
+        /**
+         * Занятая часть пула. Изменяется под блокировкой хранилища.
+         */
+        private int poolSize;
+
+        /**
+         * Количество родителей в таблице блоков. Изменяется под блокировкой хранилища.
+         */
+        private int parents;
+
+        /**
+         * Количество детей в журнале. Изменяется под блокировкой хранилища.
+         */
+        int recentCount;
+
+        /**
+         * Инициализация списков детей с пустым журналом.
+         * @param size Количество узлов, учтенных в CSR.
+         * @param offsets Смещения списков.
+         * @param ids Идентификаторы детей.
+         */
+        ChildIndex(int size, int[] offsets, int[] ids) {
+            this.size = size;
+            this.offsets = offsets;
+            this.ids = ids;
+            blocks = new AtomicLongArray(INITIAL_BLOCKS << 1);
+            pool = new int[INITIAL_BLOCKS];
+        }
+
+        /**
+         * Метод, возвращающий количество детей узла в CSR.
+         * @param id Идентификатор узла.
+         * @return Количество детей.
+         */
+        int count(int id) {
+            return id > size ? 0 : offsets[id + 1] - offsets[id];
+        }
+
+        /**
+         * Метод, возвращающий количество детей в блоке журнала.
+         * @param block Описатель блока.
+         * @return Количество детей.
+         */
+        static int count(long block) {
+            return (int) block;
+        }
+
+        /**
+         * Метод, возвращающий ребенка из блока журнала.
+         * Пул читается после описателя, поэтому содержит все ячейки блока.
+         * @param block Описатель блока.
+         * @param index Порядковый номер ребенка в блоке.
+         * @return Идентификатор ребенка.
+         */
+        int childAt(long block, int index) {
+            if (index < 0 || index >= count(block))
+                throw new IndexOutOfBoundsException(index);
+            return pool[(int) (block >>> 32) + index];
+        }
+
+        /**
+         * Метод поиска описателя блока родителя в журнале.
+         * @param id Идентификатор родителя.
+         * @return Описатель блока или 0, если детей родителя в журнале нет.
+         */
+        long block(int id) {
+            AtomicLongArray blocks = this.blocks;
+            int mask = (blocks.length() >> 1) - 1;
+            for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+                long key = blocks.get(i << 1);
+                if (key == id)
+                    return blocks.get((i << 1) + 1);
+                if (key == 0)
+                    return 0;
+            }
+        }
+
+        /**
+         * Метод обеспечения места в журнале под ребенка двух родителей, чтобы добавление в журнал
+         * не выделяло памяти. Вызывается под блокировкой хранилища до изменения столбцов.
+         * @param father Идентификатор отца или 0.
+         * @param mother Идентификатор матери или 0.
+         */
+        void ensureCapacity(int father, int mother) {
+            int fatherGrowth = father == 0 ? 0 : growth(block(father), father == mother ? 2 : 1);
+            int motherGrowth = mother == 0 || mother == father ? 0 : growth(block(mother), 1);
+            ensurePool(poolSize + fatherGrowth + motherGrowth);
+            ensureBlocks(parents + 2);
+        }
+
+        /**
+         * Метод резервирования места в пуле под детей родителя.
+         * Вызывается под блокировкой хранилища.
+         * @param id Идентификатор родителя.
+         * @param additional Количество добавляемых детей.
+         */
+        void reserve(int id, int additional) {
+            ensurePool(poolSize + growth(block(id), additional));
+            ensureBlocks(parents + 1);
+        }
+
+        /**
+         * Метод добавления ребенка в блок родителя. Место должно быть обеспечено заранее.
+         * Вызывается под блокировкой хранилища.
+         * @param id Идентификатор родителя.
+         * @param child Идентификатор ребенка.
+         */
+        void add(int id, int child) {
+            AtomicLongArray blocks = this.blocks;
+            int mask = (blocks.length() >> 1) - 1;
+            int i = hash(id) & mask;
+            while (blocks.get(i << 1) != id && blocks.get(i << 1) != 0)
+                i = (i + 1) & mask;
+
+            long block = blocks.get((i << 1) + 1);
+            int start = (int) (block >>> 32);
+            int count = count(block);
+            int[] pool = this.pool;
+            if ((count & (count - 1)) == 0) {
+                int capacity = Math.max(count << 1, 1);
+                if (count == 0 || start + count != poolSize) {
+                    System.arraycopy(pool, start, pool, poolSize, count);
+                    start = poolSize;
+                }
+                poolSize = start + capacity;
+            }
+
+            pool[start + count] = child;
+            blocks.set((i << 1) + 1, (long) start << 32 | (count + 1));
+            if (count == 0) {
+                blocks.set(i << 1, id);
+                parents++;
+            }
+            recentCount++;
+        }
+
+        /**
+         * Метод оценки места в пуле, необходимого для добавления детей в блок.
+         * @param block Описатель блока.
+         * @param additional Количество добавляемых детей.
+         * @return Наибольшее количество ячеек, занимаемых переносами блока.
+         */
+        private static int growth(long block, int additional) {
+            int required = count(block) + additional;
+            return capacity(count(block)) >= required ? 0 : capacity(required) << 1;
+        }
+
+        /**
+         * Метод, возвращающий емкость блока.
+         * @param count Количество детей в блоке.
+         * @return Наименьшая степень двойки, не меньшая количества детей, или 0 для пустого блока.
+         */
+        private static int capacity(int count) {
+            return count <= 1 ? count : Integer.highestOneBit(count - 1) << 1;
+        }
+
+        /**
+         * Метод увеличения пула до указанной емкости.
+         * @param capacity Необходимая емкость.
+         */
+        private void ensurePool(int capacity) {
+            int[] pool = this.pool;
+            if (capacity > pool.length)
+                this.pool = Arrays.copyOf(pool, Math.max(capacity, pool.length << 1));
+        }
+
+        /**
+         * Метод увеличения таблицы блоков, чтобы она была заполнена не более чем на три четверти.
+         * @param parents Количество родителей после добавления.
+         */
+        private void ensureBlocks(int parents) {
+            AtomicLongArray blocks = this.blocks;
+            int slots = blocks.length() >> 1;
+            if (parents <= slots - (slots >> 2))
+                return;
+
+            AtomicLongArray grown = new AtomicLongArray(blocks.length() << 1);
+            int mask = slots * 2 - 1;
+            for (int j = 0; j < slots; j++) {
+                long key = blocks.get(j << 1);
+                if (key == 0)
+                    continue;
+
+                int i = hash((int) key) & mask;
+                while (grown.get(i << 1) != 0)
+                    i = (i + 1) & mask;
+                grown.set((i << 1) + 1, blocks.get((j << 1) + 1));
+                grown.set(i << 1, key);
+            }
+            this.blocks = grown;
+        }
+
+        /**
+         * Метод перемешивания идентификатора родителя для таблицы блоков.
+         * @param id Идентификатор родителя.
+         * @return Хеш.
+         */
+        private static int hash(int id) {
+            int hash = id * 0x9E3779B9;
+            return hash ^ hash >>> 16;
+        }
+    }
+}
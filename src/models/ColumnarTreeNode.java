@@ -0,0 +1,102 @@
+package models;
+
+/**
+ * Класс, описывающий легковесное представление узла над столбцовым хранилищем.
+ * Представление не хранит данных, кроме идентификатора, и создается при каждом обращении к узлу.
+ */
+class ColumnarTreeNode extends GenealogicalTreeNode {
+
+    /**
+     * Хранилище, содержащее данные узла.
+     */
+    private final IColumnarStorage storage;
+
+    /**
+     * Объект человека, восстановленный при первом обращении.
+     */
+    private Person person;
+
+    /**
+     * Инициализация представления узла.
+     * @param id Идентификатор узла.
+     * @param genealogicalTree Объект генеалогического дерева, к которому относится узел.
+     * @param storage Хранилище, содержащее данные узла.
+     */
+    ColumnarTreeNode(int id, GenealogicalTree genealogicalTree, IColumnarStorage storage) {
+        super(id, genealogicalTree);
+        this.storage = storage;
+    }
+
+    /**
+     * Метод, возвращающий объект человека, хранящегося в узле.
+     * @return Объект человека, хранящегося в узле.
+     */
+    @Override
+    public Person getPerson() {
+        if (person == null)
+            person = storage.person(getId());
+        return person;
+    }
+
+    /**
+     * Метод, возвращающий узел, хранящий объект отца.
+     * @return Узел, хранящий объект отца.
+     */
+    @Override
+    public GenealogicalTreeNode getFather() {
+        return storage.get(storage.father(getId()));
+    }
+
+    /**
+     * Метод, возвращающий узел, хранящий объект матери.
+     * @return Узел, хранящий объект матери.
+     */
+    @Override
+    public GenealogicalTreeNode getMother() {
+        return storage.get(storage.mother(getId()));
+    }
+
+    /**
+     * Метод, возвращающий поколение узла.
+     * @return Поколение узла, хранящееся в столбце.
+     */
+    @Override
+    public int getGeneration() {
+        return storage.generation(getId());
+    }
+
+    /**
+     * Метод, возвращающий количество детей.
+     * @return Количество детей.
+     */
+    @Override
+    public int childCount() {
+        return storage.childCount(getId());
+    }
+
+    /**
+     * Метод, возвращающий узел ребенка по порядковому номеру.
+     * @param index Порядковый номер ребенка в порядке добавления.
+     * @return Узел, хранящий объект ребенка.
+     * @throws IndexOutOfBoundsException Возбуждается, если номер вне диапазона.
+     */
+    @Override
+    public GenealogicalTreeNode childAt(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= childCount())
+            throw new IndexOutOfBoundsException(index);
+
+        return storage.get(storage.childAt(getId(), index));
+    }
+
+    /**
+     * Метод, возвращающий массив узлов, хранящих объекты детей.
+     * @return Массив узлов, хранящих объекты детей, в порядке добавления.
+     */
+    @Override
+    public GenealogicalTreeNode[] getChildren() {
+        GenealogicalTreeNode[] children = new GenealogicalTreeNode[childCount()];
+        for (int i = 0; i < children.length; i++)
+            children[i] = storage.get(storage.childAt(getId(), i));
+        return children;
+    }
+}
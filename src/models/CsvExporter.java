@@ -0,0 +1,76 @@
+package models;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Класс, описывающий выгрузку генеалогического дерева в CSV в кодировке UTF-8.
+ * <p>
+ * Каждая строка описывает один узел: идентификатор, имя, пол и идентификаторы родителей, пустые для
+ * неизвестных родителей. Семьи восстанавливаются по парам родителей. Узлы выгружаются по возрастанию
+ * идентификаторов, поэтому родители всегда идут раньше детей, а узлы супругов тоже попадают в выгрузку.
+ * Имена экранируются по RFC 4180.
+ */
+public class CsvExporter implements ITreeExporter {
+
+    /**
+     * Метод выгрузки генеалогического дерева в CSV.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param out Поток для записи.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    @Override
+    public void export(GenealogicalTree genealogicalTree, OutputStream out)
+            throws IllegalArgumentException, IOException {
+
+        if (genealogicalTree == null || out == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        int size = genealogicalTree.size();
+        ExportWriter writer = new ExportWriter(out);
+        writer.text("id,name,gender,father_id,mother_id").newLine();
+
+        for (int id = 1; id <= size; id++) {
+            GenealogicalTreeNode node = genealogicalTree.findNode(id);
+            Person person = node.getPerson();
+            writer.number(id).text(',');
+            writeName(writer, person.getName());
+            writer.text(',').text(person.getGender().name()).text(',');
+            if (node.getFather() != null)
+                writer.number(node.getFather().getId());
+            writer.text(',');
+            if (node.getMother() != null)
+                writer.number(node.getMother().getId());
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Метод записи имени с экранированием, если оно содержит разделители, кавычки или переводы строк.
+     * @param writer Писатель выгрузки.
+     * @param name Имя.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    private static void writeName(ExportWriter writer, String name) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < name.length() && !quote; i++) {
+            char c = name.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.text(name);
+            return;
+        }
+
+        writer.text('"');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"')
+                writer.text('"');
+            writer.text(c);
+        }
+        writer.text('"');
+    }
+}
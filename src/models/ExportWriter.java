@@ -0,0 +1,94 @@
+package models;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Класс, описывающий буферизованную запись текста выгрузки в кодировке UTF-8.
+ * Числа записываются через переиспользуемый буфер цифр без создания строк.
+ */
+class ExportWriter {
+
+    /**
+     * Размер буфера записи в символах.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Буферизованный писатель.
+     */
+    private final Writer writer;
+
+    /**
+     * Буфер цифр числа.
+     */
+    private final char[] digits = new char[11];
+
+    /**
+     * Инициализация писателя.
+     * @param out Поток для записи.
+     */
+    ExportWriter(OutputStream out) {
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Метод записи текста.
+     * @param text Текст.
+     * @return Этот писатель.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    ExportWriter text(String text) throws IOException {
+        writer.write(text);
+        return this;
+    }
+
+    /**
+     * Метод записи символа.
+     * @param c Символ.
+     * @return Этот писатель.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    ExportWriter text(char c) throws IOException {
+        writer.write(c);
+        return this;
+    }
+
+    /**
+     * Метод записи неотрицательного числа.
+     * @param value Число.
+     * @return Этот писатель.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    ExportWriter number(int value) throws IOException {
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        writer.write(digits, position, digits.length - position);
+        return this;
+    }
+
+    /**
+     * Метод записи конца строки.
+     * @return Этот писатель.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    ExportWriter newLine() throws IOException {
+        writer.write('\n');
+        return this;
+    }
+
+    /**
+     * Метод сброса буфера в поток без закрытия потока.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    void flush() throws IOException {
+        writer.flush();
+    }
+}
@@ -0,0 +1,70 @@
+package models;
+
+/**
+ * Класс, описывающий семью - пару родителей и количество их общих детей.
+ */
+public class Family {
+
+    /**
+     * Узел отца.
+     */
+    private final GenealogicalTreeNode father;
+
+    /**
+     * Узел матери.
+     */
+    private final GenealogicalTreeNode mother;
+
+    /**
+     * Количество общих детей.
+     */
+    private final int childCount;
+
+    /**
+     * Инициализация семьи.
+     * @param father Узел отца или null, если отец не указан.
+     * @param mother Узел матери или null, если мать не указана.
+     * @param childCount Количество общих детей.
+     */
+    Family(GenealogicalTreeNode father, GenealogicalTreeNode mother, int childCount) {
+        this.father = father;
+        this.mother = mother;
+        this.childCount = childCount;
+    }
+
+    /**
+     * Метод, возвращающий узел отца.
+     * @return Узел отца или null, если у детей указана только мать.
+     */
+    public GenealogicalTreeNode getFather() {
+        return father;
+    }
+
+    /**
+     * Метод, возвращающий узел матери.
+     * @return Узел матери или null, если у детей указан только отец.
+     */
+    public GenealogicalTreeNode getMother() {
+        return mother;
+    }
+
+    /**
+     * Метод, возвращающий количество общих детей.
+     * @return Количество детей.
+     */
+    public int getChildCount() {
+        return childCount;
+    }
+
+    /**
+     * Переопределение метода преобразования семьи в строку.
+     * @return Строка с родителями и количеством детей.
+     */
+    @Override
+    public String toString() {
+        String parents = father == null ? mother.toString()
+                : mother == null ? father.toString()
+                : father + " и " + mother;
+        return parents + ": детей " + childCount;
+    }
+}
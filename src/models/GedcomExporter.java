@@ -0,0 +1,245 @@
+package models;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Класс, описывающий выгрузку генеалогического дерева в формат GEDCOM 5.5.1 в кодировке UTF-8.
+ * <p>
+ * Узлы выгружаются по возрастанию идентификаторов, поэтому в выгрузку попадают все узлы дерева, включая
+ * узлы супругов, доступные только через {@link GenealogicalTreeNode#getFather()} и
+ * {@link GenealogicalTreeNode#getMother()}. Семья - это пара родителей и их общие дети; ее ссылка строится
+ * из наименьшего идентификатора ребенка, а запись FAM выводится сразу после записи отца или, если его нет,
+ * матери. Дети каждого узла группируются по второму родителю одной сортировкой, поэтому выгрузка линейна
+ * по количеству связей с точностью до сортировки детей одного узла. Ссылки семей родителей запоминаются
+ * в массиве по идентификаторам детей.
+ */
+public class GedcomExporter implements ITreeExporter {
+
+    /**
+     * Метод выгрузки генеалогического дерева в формат GEDCOM.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param out Поток для записи.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    @Override
+    public void export(GenealogicalTree genealogicalTree, OutputStream out)
+            throws IllegalArgumentException, IOException {
+
+        if (genealogicalTree == null || out == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        int size = genealogicalTree.size();
+        ExportWriter writer = new ExportWriter(out);
+        writer.text("0 HEAD").newLine()
+                .text("1 SOUR GenealogicalTree").newLine()
+                .text("1 GEDC").newLine()
+                .text("2 VERS 5.5.1").newLine()
+                .text("2 FORM LINEAGE-LINKED").newLine()
+                .text("1 CHAR UTF-8").newLine()
+                .text("1 FILE ").text(genealogicalTree.getName()).newLine();
+
+        Families families = new Families(size);
+        for (int id = 1; id <= size; id++) {
+            GenealogicalTreeNode node = genealogicalTree.findNode(id);
+            families.group(node, size);
+            writeIndividual(writer, node, families);
+            writeFamilies(writer, node, families);
+        }
+
+        writer.text("0 TRLR").newLine();
+        writer.flush();
+    }
+
+    /**
+     * Метод записи человека со ссылками на семью родителей и собственные семьи.
+     * @param writer Писатель выгрузки.
+     * @param node Узел человека.
+     * @param families Семьи узла.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    private static void writeIndividual(ExportWriter writer, GenealogicalTreeNode node, Families families)
+            throws IOException {
+
+        Person person = node.getPerson();
+        writer.text("0 @I").number(node.getId()).text("@ INDI").newLine()
+                .text("1 NAME ").text(person.getName()).newLine()
+                .text("1 SEX ").text(person.getGender() == Gender.male ? 'M' : 'F').newLine();
+
+        int parentFamily = families.parents[node.getId()];
+        if (parentFamily != 0)
+            writer.text("1 FAMC @F").number(parentFamily).text('@').newLine();
+
+        for (int i = 0; i < families.count; i++)
+            writer.text("1 FAMS @F").number(families.familyId(i)).text('@').newLine();
+    }
+
+    /**
+     * Метод записи семей, в которых узел является отцом, или матерью при неизвестном отце.
+     * @param writer Писатель выгрузки.
+     * @param node Узел родителя.
+     * @param families Семьи узла.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    private static void writeFamilies(ExportWriter writer, GenealogicalTreeNode node, Families families)
+            throws IOException {
+
+        for (int i = 0; i < families.count; i++) {
+            int key = families.key(i);
+            boolean father = (key & 1) != 0;
+            int other = key >>> 1;
+            if (!father && other != 0)
+                continue;
+
+            int familyId = families.familyId(i);
+            writer.text("0 @F").number(familyId).text("@ FAM").newLine();
+            if (father)
+                writer.text("1 HUSB @I").number(node.getId()).text('@').newLine();
+            if (!father || other != 0)
+                writer.text("1 WIFE @I").number(father ? other : node.getId()).text('@').newLine();
+
+            for (int j = families.start(i); j < families.end(i); j++) {
+                int childId = families.childId(j);
+                families.parents[childId] = familyId;
+                writer.text("1 CHIL @I").number(childId).text('@').newLine();
+            }
+        }
+    }
+
+    /**
+     * Метод получения идентификатора родителя.
+     * @param parent Узел родителя или null.
+     * @return Идентификатор узла или 0.
+     */
+    private static int parentId(GenealogicalTreeNode parent) {
+        return parent == null ? 0 : parent.getId();
+    }
+
+    /**
+     * Класс, описывающий семьи одного узла: его детей, сгруппированных по второму родителю.
+     * Буферы переиспользуются для всех узлов выгрузки.
+     */
+    private static final class Families {
+
+        /**
+         * Ссылки семей родителей по идентификаторам детей, 0 - родители не указаны.
+         * Заполняется при записи семьи, которая предшествует записи ее детей.
+         */
+        final int[] parents;
+
+        /**
+         * Дети узла: в старших 32 битах - ключ второго родителя, в младших - идентификатор ребенка.
+         * Ключ второго родителя - его идентификатор, сдвинутый на бит, с 1 в младшем бите, если узел - отец.
+         */
+        private long[] children = new long[16];
+
+        /**
+         * Начала семей в массиве детей, отсортированные по ссылкам семей: в старших 32 битах - ссылка,
+         * в младших - индекс первого ребенка семьи.
+         */
+        private long[] starts = new long[16];
+
+        /**
+         * Количество детей узла.
+         */
+        private int childCount;
+
+        /**
+         * Количество семей узла.
+         */
+        int count;
+
+        /**
+         * Инициализация семей.
+         * @param size Количество выгружаемых узлов.
+         */
+        Families(int size) {
+            parents = new int[size + 1];
+        }
+
+        /**
+         * Метод группировки детей узла по второму родителю.
+         * @param node Узел родителя.
+         * @param size Количество выгружаемых узлов.
+         */
+        void group(GenealogicalTreeNode node, int size) {
+            int nodeCount = node.childCount();
+            if (children.length < nodeCount)
+                children = new long[Math.max(nodeCount, children.length << 1)];
+
+            childCount = 0;
+            for (int i = 0; i < nodeCount; i++) {
+                GenealogicalTreeNode child = node.childAt(i);
+                if (child.getId() > size)
+                    continue;
+
+                boolean father = parentId(child.getFather()) == node.getId();
+                long key = (long) parentId(father ? child.getMother() : child.getFather()) << 1 | (father ? 1 : 0);
+                children[childCount++] = key << 32 | child.getId();
+            }
+            Arrays.sort(children, 0, childCount);
+
+            count = 0;
+            for (int i = 0; i < childCount; i++) {
+                if (i > 0 && children[i] >>> 32 == children[i - 1] >>> 32)
+                    continue;
+                if (count == starts.length)
+                    starts = Arrays.copyOf(starts, count << 1);
+                starts[count++] = (children[i] & 0xFFFFFFFFL) << 32 | i;
+            }
+            Arrays.sort(starts, 0, count);
+        }
+
+        /**
+         * Метод, возвращающий ссылку семьи: наименьший идентификатор ребенка.
+         * @param family Номер семьи в порядке ссылок.
+         * @return Ссылка семьи.
+         */
+        int familyId(int family) {
+            return (int) (starts[family] >>> 32);
+        }
+
+        /**
+         * Метод, возвращающий ключ второго родителя семьи.
+         * @param family Номер семьи в порядке ссылок.
+         * @return Ключ второго родителя.
+         */
+        int key(int family) {
+            return (int) (children[start(family)] >>> 32);
+        }
+
+        /**
+         * Метод, возвращающий индекс первого ребенка семьи в массиве детей.
+         * @param family Номер семьи в порядке ссылок.
+         * @return Индекс первого ребенка.
+         */
+        int start(int family) {
+            return (int) starts[family];
+        }
+
+        /**
+         * Метод, возвращающий индекс за последним ребенком семьи в массиве детей.
+         * @param family Номер семьи в порядке ссылок.
+         * @return Индекс за последним ребенком.
+         */
+        int end(int family) {
+            int start = start(family);
+            long key = children[start] >>> 32;
+            int end = start + 1;
+            while (end < childCount && children[end] >>> 32 == key)
+                end++;
+            return end;
+        }
+
+        /**
+         * Метод, возвращающий идентификатор ребенка.
+         * @param index Индекс ребенка в массиве детей.
+         * @return Идентификатор ребенка.
+         */
+        int childId(int index) {
+            return (int) children[index];
+        }
+    }
+}
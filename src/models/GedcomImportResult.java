@@ -0,0 +1,113 @@
+package models;
+
+/**
+ * Класс, описывающий результат импорта генеалогического дерева из файла GEDCOM.
+ */
+public class GedcomImportResult {
+
+    /**
+     * Построенное генеалогическое дерево.
+     */
+    private final GenealogicalTree genealogicalTree;
+
+    /**
+     * Количество прочитанных записей верхнего уровня.
+     */
+    private final long records;
+
+    /**
+     * Количество записей людей (INDI).
+     */
+    private final int individuals;
+
+    /**
+     * Количество записей семей (FAM).
+     */
+    private final int families;
+
+    /**
+     * Количество ссылок на родителей, которые не удалось восстановить.
+     */
+    private final int brokenLinks;
+
+    /**
+     * Длительность импорта в наносекундах.
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Инициализация результата импорта.
+     * @param genealogicalTree Построенное генеалогическое дерево.
+     * @param records Количество записей верхнего уровня.
+     * @param individuals Количество записей людей.
+     * @param families Количество записей семей.
+     * @param brokenLinks Количество невосстановленных ссылок на родителей.
+     * @param elapsedNanos Длительность импорта в наносекундах.
+     */
+    GedcomImportResult(GenealogicalTree genealogicalTree, long records, int individuals, int families,
+                       int brokenLinks, long elapsedNanos) {
+        this.genealogicalTree = genealogicalTree;
+        this.records = records;
+        this.individuals = individuals;
+        this.families = families;
+        this.brokenLinks = brokenLinks;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Метод, возвращающий построенное генеалогическое дерево.
+     * @return Генеалогическое дерево.
+     */
+    public GenealogicalTree getGenealogicalTree() {
+        return genealogicalTree;
+    }
+
+    /**
+     * Метод, возвращающий количество прочитанных записей верхнего уровня.
+     * @return Количество записей.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Метод, возвращающий количество записей людей.
+     * @return Количество записей INDI.
+     */
+    public int getIndividuals() {
+        return individuals;
+    }
+
+    /**
+     * Метод, возвращающий количество записей семей.
+     * @return Количество записей FAM.
+     */
+    public int getFamilies() {
+        return families;
+    }
+
+    /**
+     * Метод, возвращающий количество ссылок на родителей, которые не удалось восстановить:
+     * ссылок на отсутствующих людей и связей, образующих цикл.
+     * @return Количество невосстановленных ссылок.
+     */
+    public int getBrokenLinks() {
+        return brokenLinks;
+    }
+
+    /**
+     * Метод, возвращающий длительность импорта.
+     * @return Длительность импорта в наносекундах.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Метод, возвращающий скорость импорта.
+     * @return Количество записей в секунду.
+     */
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+    }
+}
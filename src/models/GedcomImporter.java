@@ -0,0 +1,643 @@
+package models;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Класс, описывающий импорт генеалогического дерева из файла GEDCOM в кодировке UTF-8.
+ * <p>
+ * Файл читается построчно одним потоком и делится на блоки целых записей, которые разбираются параллельно.
+ * Из блока сохраняются только ссылки, имена и пол людей (INDI) и состав семей (HUSB, WIFE, CHIL в FAM),
+ * строки блока отбрасываются сразу после разбора. Разобранные блоки обрабатываются по порядку: ссылки
+ * заменяются плотными индексами, а родители детей записываются в примитивные массивы. Количество блоков
+ * в обработке ограничено, поэтому файл целиком в памяти не хранится.
+ * <p>
+ * После чтения люди упорядочиваются так, чтобы родители шли раньше детей, и добавляются в дерево через
+ * {@link GenealogicalTree#restoreNode(int, Person, int, int)} без проверок обычного добавления.
+ * Главой дерева становится человек без родителей с наибольшим числом потомков.
+ * Люди без родителей и дети с одним известным родителем сохраняются как есть.
+ */
+public class GedcomImporter {
+
+    /**
+     * Минимальное количество строк в блоке, передаваемом на разбор.
+     */
+    private static final int CHUNK_LINES = 8192;
+
+    /**
+     * Код неизвестного пола.
+     */
+    private static final byte UNKNOWN = -1;
+
+    /**
+     * Количество потоков разбора.
+     */
+    private final int parallelism;
+
+    /**
+     * Способ хранения узлов создаваемого дерева.
+     */
+    private final StorageMode storageMode;
+
+    /**
+     * Инициализация импорта с потоком разбора на каждый процессор и столбцовым хранением узлов.
+     */
+    public GedcomImporter() {
+        this(Runtime.getRuntime().availableProcessors(), StorageMode.columnar);
+    }
+
+    /**
+     * Инициализация импорта.
+     * @param parallelism Количество потоков разбора.
+     * @param storageMode Способ хранения узлов создаваемого дерева.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или невалиден.
+     */
+    public GedcomImporter(int parallelism, StorageMode storageMode) throws IllegalArgumentException {
+        if (storageMode == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        if (parallelism <= 0 || storageMode == StorageMode.mapped)
+            throw new IllegalArgumentException("Невалидные параметры импорта.");
+
+        this.parallelism = parallelism;
+        this.storageMode = storageMode;
+    }
+
+    /**
+     * Метод импорта генеалогического дерева из файла GEDCOM.
+     * @param file Путь к файлу.
+     * @param name Название дерева.
+     * @return Результат импорта с построенным деревом и статистикой.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке чтения или если в файле нет записей людей.
+     */
+    public GedcomImportResult importFile(Path file, String name) throws IllegalArgumentException, IOException {
+        if (file == null || name == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        long start = System.nanoTime();
+        Individuals individuals = new Individuals();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "gedcom-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            List<String> lines = new ArrayList<>(CHUNK_LINES);
+            String line = reader.readLine();
+            if (line != null && !line.isEmpty() && line.charAt(0) == '\uFEFF')
+                line = line.substring(1);
+
+            for (; line != null; line = reader.readLine()) {
+                if (lines.size() >= CHUNK_LINES && isRecordStart(line)) {
+                    List<String> chunk = lines;
+                    inFlight.add(executor.submit(() -> parse(chunk)));
+                    lines = new ArrayList<>(CHUNK_LINES);
+                    if (inFlight.size() > 2 * parallelism)
+                        individuals.resolve(await(inFlight.poll()));
+                }
+                lines.add(line);
+            }
+
+            if (!lines.isEmpty()) {
+                List<String> chunk = lines;
+                inFlight.add(executor.submit(() -> parse(chunk)));
+            }
+            while (!inFlight.isEmpty())
+                individuals.resolve(await(inFlight.poll()));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        GenealogicalTree genealogicalTree = individuals.build(name, storageMode);
+        return new GedcomImportResult(genealogicalTree, individuals.records, individuals.defined,
+                individuals.families, individuals.brokenLinks, System.nanoTime() - start);
+    }
+
+    /**
+     * Метод ожидания разбора блока.
+     * @param future Результат разбора блока.
+     * @return Разобранный блок.
+     * @throws IOException Возбуждается, если ожидание прервано.
+     */
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Импорт прерван.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Метод проверки, начинает ли строка запись верхнего уровня.
+     * @param line Строка файла.
+     * @return true, если уровень строки равен 0.
+     */
+    private static boolean isRecordStart(String line) {
+        int i = 0;
+        while (i < line.length() && line.charAt(i) == ' ')
+            i++;
+        return i + 1 < line.length() && line.charAt(i) == '0' && line.charAt(i + 1) == ' ';
+    }
+
+    /**
+     * Метод разбора блока строк, начинающегося с записи верхнего уровня.
+     * @param lines Строки блока.
+     * @return Разобранный блок.
+     */
+    private static Chunk parse(List<String> lines) {
+        Chunk chunk = new Chunk();
+        byte record = Chunk.OTHER;
+
+        for (String line: lines) {
+            int length = line.length();
+            int i = 0;
+            while (i < length && line.charAt(i) == ' ')
+                i++;
+
+            int level = 0;
+            int levelStart = i;
+            while (i < length && line.charAt(i) >= '0' && line.charAt(i) <= '9')
+                level = level * 10 + line.charAt(i++) - '0';
+            if (i == levelStart || i >= length || line.charAt(i) != ' ')
+                continue;
+            i++;
+
+            String xref = null;
+            if (i < length && line.charAt(i) == '@') {
+                int end = line.indexOf('@', i + 1);
+                if (end < 0)
+                    continue;
+                xref = line.substring(i, end + 1);
+                i = end + 2;
+            }
+            if (i >= length)
+                continue;
+
+            int tagEnd = line.indexOf(' ', i);
+            if (tagEnd < 0)
+                tagEnd = length;
+            int tagLength = tagEnd - i;
+            String value = tagEnd < length ? line.substring(tagEnd + 1).strip() : "";
+
+            if (level == 0) {
+                chunk.records++;
+                if (xref != null && isTag(line, i, tagLength, "INDI")) {
+                    record = Chunk.INDIVIDUAL;
+                    chunk.addIndividual(xref);
+                } else if (isTag(line, i, tagLength, "FAM")) {
+                    record = Chunk.FAMILY;
+                    chunk.addFamily();
+                } else {
+                    record = Chunk.OTHER;
+                }
+            } else if (level == 1 && record == Chunk.INDIVIDUAL) {
+                if (isTag(line, i, tagLength, "NAME"))
+                    chunk.setName(personName(value));
+                else if (isTag(line, i, tagLength, "SEX") && !value.isEmpty())
+                    chunk.setGender(value.charAt(0) == 'M' ? GenealogicalTreeFormat.MALE
+                            : value.charAt(0) == 'F' ? GenealogicalTreeFormat.FEMALE : UNKNOWN);
+            } else if (level == 1 && record == Chunk.FAMILY && value.startsWith("@")) {
+                if (isTag(line, i, tagLength, "HUSB"))
+                    chunk.setHusband(value);
+                else if (isTag(line, i, tagLength, "WIFE"))
+                    chunk.setWife(value);
+                else if (isTag(line, i, tagLength, "CHIL"))
+                    chunk.addChild(value);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Метод сравнения тега строки без выделения подстроки.
+     * @param line Строка файла.
+     * @param start Начало тега.
+     * @param length Длина тега.
+     * @param tag Ожидаемый тег.
+     * @return true, если тег совпадает.
+     */
+    private static boolean isTag(String line, int start, int length, String tag) {
+        return length == tag.length() && line.regionMatches(start, tag, 0, length);
+    }
+
+    /**
+     * Метод преобразования имени GEDCOM вида "Иван /Иванов/" в "Иван Иванов".
+     * @param value Значение тега NAME.
+     * @return Имя человека.
+     */
+    private static String personName(String value) {
+        StringBuilder name = new StringBuilder(value.length());
+        boolean space = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '/')
+                continue;
+            if (c == ' ') {
+                space = name.length() > 0;
+                continue;
+            }
+            if (space)
+                name.append(' ');
+            name.append(c);
+            space = false;
+        }
+        return name.toString();
+    }
+
+    /**
+     * Класс, описывающий разобранный блок записей.
+     */
+    private static final class Chunk {
+
+        /**
+         * Тип записи: человек.
+         */
+        static final byte INDIVIDUAL = 0;
+
+        /**
+         * Тип записи: семья.
+         */
+        static final byte FAMILY = 1;
+
+        /**
+         * Тип записи: прочие записи, которые пропускаются.
+         */
+        static final byte OTHER = 2;
+
+        /**
+         * Количество записей верхнего уровня.
+         */
+        long records;
+
+        /**
+         * Ссылки людей.
+         */
+        final List<String> xrefs = new ArrayList<>();
+
+        /**
+         * Имена людей.
+         */
+        final List<String> names = new ArrayList<>();
+
+        /**
+         * Коды пола людей.
+         */
+        byte[] genders = new byte[64];
+
+        /**
+         * Ссылки на мужей в семьях.
+         */
+        final List<String> husbands = new ArrayList<>();
+
+        /**
+         * Ссылки на жен в семьях.
+         */
+        final List<String> wives = new ArrayList<>();
+
+        /**
+         * Концы списков детей семей в {@link #children}.
+         */
+        int[] childEnds = new int[64];
+
+        /**
+         * Ссылки на детей всех семей подряд.
+         */
+        final List<String> children = new ArrayList<>();
+
+        /**
+         * Метод начала записи человека.
+         * @param xref Ссылка человека.
+         */
+        void addIndividual(String xref) {
+            int index = xrefs.size();
+            if (index == genders.length)
+                genders = Arrays.copyOf(genders, index << 1);
+            genders[index] = UNKNOWN;
+            xrefs.add(xref);
+            names.add(null);
+        }
+
+        /**
+         * Метод установки имени текущего человека. Учитывается только первое имя.
+         * @param name Имя.
+         */
+        void setName(String name) {
+            int last = names.size() - 1;
+            if (names.get(last) == null)
+                names.set(last, name);
+        }
+
+        /**
+         * Метод установки пола текущего человека.
+         * @param gender Код пола.
+         */
+        void setGender(byte gender) {
+            genders[xrefs.size() - 1] = gender;
+        }
+
+        /**
+         * Метод начала записи семьи.
+         */
+        void addFamily() {
+            int index = husbands.size();
+            if (index == childEnds.length)
+                childEnds = Arrays.copyOf(childEnds, index << 1);
+            childEnds[index] = children.size();
+            husbands.add(null);
+            wives.add(null);
+        }
+
+        /**
+         * Метод установки мужа текущей семьи.
+         * @param xref Ссылка человека.
+         */
+        void setHusband(String xref) {
+            husbands.set(husbands.size() - 1, xref);
+        }
+
+        /**
+         * Метод установки жены текущей семьи.
+         * @param xref Ссылка человека.
+         */
+        void setWife(String xref) {
+            wives.set(wives.size() - 1, xref);
+        }
+
+        /**
+         * Метод добавления ребенка в текущую семью.
+         * @param xref Ссылка человека.
+         */
+        void addChild(String xref) {
+            children.add(xref);
+            childEnds[husbands.size() - 1] = children.size();
+        }
+    }
+
+    /**
+     * Класс, описывающий людей, собранных из разобранных блоков, и построение дерева из них.
+     */
+    private static final class Individuals {
+
+        /**
+         * Индексы людей по ссылкам.
+         */
+        private Map<String, Integer> indexes = new HashMap<>();
+
+        /**
+         * Количество индексов, включая людей, на которых есть только ссылки.
+         */
+        private int count;
+
+        /**
+         * Имена людей по индексам. null - запись человека еще не встречалась.
+         */
+        private String[] names = new String[1024];
+
+        /**
+         * Коды пола по индексам.
+         */
+        private byte[] genders = new byte[1024];
+
+        /**
+         * Индексы отцов или -1.
+         */
+        private int[] fathers = new int[1024];
+
+        /**
+         * Индексы матерей или -1.
+         */
+        private int[] mothers = new int[1024];
+
+        /**
+         * Количество записей верхнего уровня.
+         */
+        long records;
+
+        /**
+         * Количество записей людей.
+         */
+        int defined;
+
+        /**
+         * Количество записей семей.
+         */
+        int families;
+
+        /**
+         * Количество невосстановленных ссылок на родителей.
+         */
+        int brokenLinks;
+
+        /**
+         * Метод обработки разобранного блока. Блоки обрабатываются в порядке следования в файле.
+         * @param chunk Разобранный блок.
+         */
+        void resolve(Chunk chunk) {
+            records += chunk.records;
+
+            for (int i = 0; i < chunk.xrefs.size(); i++) {
+                int index = indexOf(chunk.xrefs.get(i));
+                if (names[index] != null)
+                    continue;
+                String name = chunk.names.get(i);
+                names[index] = name == null ? "" : name;
+                if (chunk.genders[i] != UNKNOWN)
+                    genders[index] = chunk.genders[i];
+                defined++;
+            }
+
+            int childStart = 0;
+            for (int f = 0; f < chunk.husbands.size(); f++) {
+                families++;
+                int father = chunk.husbands.get(f) == null ? -1 : indexOf(chunk.husbands.get(f));
+                int mother = chunk.wives.get(f) == null ? -1 : indexOf(chunk.wives.get(f));
+                if (father >= 0 && genders[father] == UNKNOWN)
+                    genders[father] = GenealogicalTreeFormat.MALE;
+                if (mother >= 0 && genders[mother] == UNKNOWN)
+                    genders[mother] = GenealogicalTreeFormat.FEMALE;
+
+                int childEnd = chunk.childEnds[f];
+                for (int c = childStart; c < childEnd; c++) {
+                    int child = indexOf(chunk.children.get(c));
+                    if (fathers[child] < 0 && mothers[child] < 0) {
+                        fathers[child] = father;
+                        mothers[child] = mother;
+                    }
+                }
+                childStart = childEnd;
+            }
+        }
+
+        /**
+         * Метод получения индекса человека по ссылке с выдачей нового индекса при первой встрече.
+         * @param xref Ссылка человека.
+         * @return Индекс человека.
+         */
+        private int indexOf(String xref) {
+            Integer index = indexes.get(xref);
+            if (index != null)
+                return index;
+
+            if (count == names.length) {
+                int capacity = count << 1;
+                names = Arrays.copyOf(names, capacity);
+                genders = Arrays.copyOf(genders, capacity);
+                fathers = Arrays.copyOf(fathers, capacity);
+                mothers = Arrays.copyOf(mothers, capacity);
+            }
+            genders[count] = UNKNOWN;
+            fathers[count] = -1;
+            mothers[count] = -1;
+            indexes.put(xref, count);
+            return count++;
+        }
+
+        /**
+         * Метод построения дерева: родители упорядочиваются раньше детей, глава выбирается по числу потомков.
+         * @param name Название дерева.
+         * @param storageMode Способ хранения узлов.
+         * @return Построенное дерево.
+         * @throws IOException Возбуждается, если в файле нет записей людей.
+         */
+        GenealogicalTree build(String name, StorageMode storageMode) throws IOException {
+            if (defined == 0)
+                throw new IOException("В файле нет записей людей.");
+            indexes = null;
+
+            int[] childOffsets = new int[count + 1];
+            int[] pending = new int[count];
+            for (int i = 0; i < count; i++) {
+                if (names[i] == null)
+                    continue;
+                if (fathers[i] >= 0 && names[fathers[i]] == null) {
+                    fathers[i] = -1;
+                    brokenLinks++;
+                }
+                if (mothers[i] >= 0 && names[mothers[i]] == null) {
+                    mothers[i] = -1;
+                    brokenLinks++;
+                }
+                if (fathers[i] >= 0) {
+                    childOffsets[fathers[i] + 1]++;
+                    pending[i]++;
+                }
+                if (mothers[i] >= 0) {
+                    childOffsets[mothers[i] + 1]++;
+                    pending[i]++;
+                }
+            }
+            for (int i = 0; i < count; i++)
+                childOffsets[i + 1] += childOffsets[i];
+
+            int[] childIds = new int[childOffsets[count]];
+            int[] fill = Arrays.copyOf(childOffsets, count);
+            for (int i = 0; i < count; i++) {
+                if (names[i] == null)
+                    continue;
+                if (fathers[i] >= 0)
+                    childIds[fill[fathers[i]]++] = i;
+                if (mothers[i] >= 0)
+                    childIds[fill[mothers[i]]++] = i;
+            }
+            fill = null;
+
+            int[] order = new int[defined];
+            int ordered = 0;
+            for (int i = 0; i < count; i++) {
+                if (names[i] != null && pending[i] == 0)
+                    order[ordered++] = i;
+            }
+            for (int head = 0; head < ordered; head++) {
+                int parent = order[head];
+                for (int c = childOffsets[parent]; c < childOffsets[parent + 1]; c++) {
+                    if (--pending[childIds[c]] == 0)
+                        order[ordered++] = childIds[c];
+                }
+            }
+            int acyclic = ordered;
+            for (int i = 0; i < count && ordered < defined; i++) {
+                if (names[i] != null && pending[i] > 0)
+                    order[ordered++] = i;
+            }
+
+            long[] descendants = new long[count];
+            int root = order[0];
+            for (int k = acyclic - 1; k >= 0; k--) {
+                int i = order[k];
+                long weight = 1;
+                for (int c = childOffsets[i]; c < childOffsets[i + 1]; c++)
+                    weight = Math.min(Long.MAX_VALUE >> 1, weight + descendants[childIds[c]]);
+                descendants[i] = weight;
+                if (fathers[i] < 0 && mothers[i] < 0 && weight >= descendants[root])
+                    root = i;
+            }
+            descendants = null;
+
+            int[] nodeIds = pending;
+            Arrays.fill(nodeIds, 0);
+            GenealogicalTree genealogicalTree = new GenealogicalTree(name, person(root), storageMode);
+            nodeIds[root] = GenealogicalTree.HEAD_ID;
+
+            int nextId = GenealogicalTree.HEAD_ID + 1;
+            for (int k = 0; k < ordered; k++) {
+                int i = order[k];
+                if (i == root)
+                    continue;
+
+                int fatherId = parentId(fathers[i], nodeIds);
+                int motherId = parentId(mothers[i], nodeIds);
+                genealogicalTree.restoreNode(nextId, person(i), fatherId, motherId);
+                nodeIds[i] = nextId++;
+            }
+            return genealogicalTree;
+        }
+
+        /**
+         * Метод получения идентификатора узла родителя. Ссылка на родителя, еще не добавленного в дерево
+         * из-за цикла в данных, считается невосстановленной.
+         * @param parent Индекс родителя или -1.
+         * @param nodeIds Идентификаторы узлов по индексам людей.
+         * @return Идентификатор узла родителя или 0.
+         */
+        private int parentId(int parent, int[] nodeIds) {
+            if (parent < 0)
+                return 0;
+            if (nodeIds[parent] == 0)
+                brokenLinks++;
+            return nodeIds[parent];
+        }
+
+        /**
+         * Метод создания объекта человека. Имя после создания освобождается.
+         * @param index Индекс человека.
+         * @return Объект человека. Человек неизвестного пола считается мужчиной.
+         */
+        private Person person(int index) {
+            String name = names[index];
+            names[index] = "";
+            return genders[index] == GenealogicalTreeFormat.FEMALE ? new Female(name) : new Male(name);
+        }
+    }
+}
@@ -1,37 +1,120 @@
 package models;
 
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
 /**
  * Класс, описывающий генеалогическое дерево.
+ * <p>
+ * Люди могут добавляться из нескольких потоков одновременно, а чтение узлов не требует блокировок.
+ * Хранилище объектов добавляет узлы под блокировками родителей и выдает идентификаторы атомарным счетчиком
+ * без общей блокировки, в столбцовое хранилище узлы добавляются под блокировкой хранилища. В обоих случаях
+ * идентификатор расходуется, только если память под узел уже выделена, поэтому ошибка добавления
+ * не оставляет пропуска, которого ждали бы следующие узлы. После добавления узлы фиксируются строго
+ * по порядку идентификаторов: {@link #size()} возвращает количество узлов, все предшественники которых
+ * уже добавлены, а подписчики уведомляются о узлах в порядке их идентификаторов. Последовательно
+ * выполняется только фиксация - добавление в списки поколений и уведомление подписчиков.
  */
 public class GenealogicalTree implements INamed {
 
+    /**
+     * Идентификатор корневого узла дерева.
+     */
+    static final int HEAD_ID = 1;
+
     /**
      * Название генеалогического дерева.
      */
     private final String name;
 
     /**
-     * Счетчик иднтфикаторов узлов.
+     * Счетчик иднтфикаторов узлов: наибольший выданный идентификатор. Изменяется хранилищем объектов
+     * после выделения памяти под узлы, а для столбцового хранилища - под его блокировкой после добавления узла.
      */
-    private int idCounter;
+    private final AtomicInteger idCounter = new AtomicInteger();
 
     /**
-     * Корневой узел дерева.
+     * Наибольший идентификатор узла, все узлы до которого включительно добавлены и зафиксированы.
      */
-    private final GenealogicalTreeNode head;
+    private volatile int committed;
 
     /**
-     * Инициализация объекта генеалогического дерева.
+     * Способ хранения узлов дерева.
+     */
+    private final StorageMode storageMode;
+
+    /**
+     * Хранилище узлов дерева.
+     */
+    private final INodeStorage storage;
+
+    /**
+     * Подписчики на изменения дерева.
+     */
+    private final List<IGenealogicalTreeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Списки узлов по поколениям, дополняемые при фиксации узлов.
+     */
+    private final GenerationIndex generations = new GenerationIndex(this);
+
+    /**
+     * Запросы о предках и потомках, создаваемые при первом обращении.
+     */
+    private volatile GenealogicalTreeQueries queries;
+
+    /**
+     * Индекс имен людей, создаваемый при первом обращении.
+     */
+    private volatile PersonNameIndex nameIndex;
+
+    /**
+     * Инициализация объекта генеалогического дерева с хранением каждого узла отдельным объектом.
      * @param name Название генеалогического дерева.
      * @param head Объект человека для хранения в корневом узле дерева.
      * @throws IllegalArgumentException Возбуждается, если передан неинициализированный параметр.
      */
     public GenealogicalTree(String name, Person head) throws IllegalArgumentException  {
-        if (name == null || head == null)
+        this(name, head, StorageMode.objects);
+    }
+
+    /**
+     * Инициализация объекта генеалогического дерева.
+     * @param name Название генеалогического дерева.
+     * @param head Объект человека для хранения в корневом узле дерева.
+     * @param storageMode Способ хранения узлов дерева.
+     * @throws IllegalArgumentException Возбуждается, если передан неинициализированный параметр.
+     */
+    public GenealogicalTree(String name, Person head, StorageMode storageMode) throws IllegalArgumentException  {
+        if (name == null || head == null || storageMode == null)
             throw new IllegalArgumentException("Передан неинициализированный объект.");
 
         this.name = name;
-        this.head = new GenealogicalTreeNode(++idCounter, this, head);
+        this.storageMode = storageMode;
+        storage = storageMode == StorageMode.columnar ? new ColumnarNodeStorage(this) : new ObjectNodeStorage(this);
+        storage.add(HEAD_ID, head, null, null);
+        idCounter.set(HEAD_ID);
+        committed = HEAD_ID;
+    }
+
+    /**
+     * Инициализация дерева над готовым хранилищем, доступным только для чтения.
+     * @param name Название генеалогического дерева.
+     * @param size Количество узлов в хранилище.
+     * @param storageFactory Функция создания хранилища для дерева.
+     */
+    GenealogicalTree(String name, int size, Function<GenealogicalTree, INodeStorage> storageFactory) {
+        this.name = name;
+        storageMode = StorageMode.mapped;
+        storage = storageFactory.apply(this);
+        idCounter.set(size);
+        committed = size;
     }
 
     /**
@@ -42,12 +125,112 @@ public class GenealogicalTree implements INamed {
         return name;
     }
 
+    /**
+     * Метод, возвращающий способ хранения узлов дерева.
+     * @return Способ хранения узлов дерева.
+     */
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    /**
+     * Метод, проверяющий, доступно ли дерево только для чтения.
+     * @return true, если добавление людей в дерево не поддерживается.
+     */
+    public boolean isReadOnly() {
+        return storageMode == StorageMode.mapped;
+    }
+
+    /**
+     * Метод, возвращающий количество зафиксированных узлов дерева.
+     * @return Количество узлов дерева, оно же наибольший идентификатор узла, до которого добавлены все узлы.
+     */
+    public int size() {
+        return committed;
+    }
+
+    /**
+     * Метод создания неизменяемого снимка дерева из узлов, зафиксированных к моменту вызова.
+     * @return Снимок дерева.
+     */
+    public GenealogicalTreeSnapshot snapshot() {
+        return new GenealogicalTreeSnapshot(this, committed);
+    }
+
     /**
      * Метод, возвращающий корневой узел дереваю
      * @return Корневой узел дерева.
      */
     public GenealogicalTreeNode getHead() {
-        return head;
+        return storage.get(HEAD_ID);
+    }
+
+    /**
+     * Метод, возвращающий наибольшее поколение дерева без обхода узлов.
+     * @return Наибольшее поколение зафиксированных узлов, 0 - только люди без родителей.
+     */
+    public int getMaxGeneration() {
+        return generations.maxGeneration(committed);
+    }
+
+    /**
+     * Метод, возвращающий количество людей поколения без обхода узлов.
+     * @param generation Номер поколения, 0 - люди без родителей.
+     * @return Количество зафиксированных узлов поколения.
+     */
+    public int generationSize(int generation) {
+        return generations.count(generation, committed);
+    }
+
+    /**
+     * Метод, возвращающий людей поколения без обхода узлов.
+     * @param generation Номер поколения, 0 - люди без родителей.
+     * @return Неизменяемый список зафиксированных узлов поколения в порядке возрастания идентификаторов.
+     * Пустой, если поколения нет.
+     */
+    public List<GenealogicalTreeNode> getGeneration(int generation) {
+        return generations.nodes(generation, committed);
+    }
+
+    /**
+     * Метод, возвращающий списки узлов по поколениям для снимков дерева.
+     * @return Индекс поколений.
+     */
+    GenerationIndex generations() {
+        return generations;
+    }
+
+    /**
+     * Метод, возвращающий запросы о предках и потомках узлов дерева с общим кэшем.
+     * @return Объект запросов.
+     */
+    public GenealogicalTreeQueries getQueries() {
+        GenealogicalTreeQueries queries = this.queries;
+        if (queries == null) {
+            synchronized (listeners) {
+                queries = this.queries;
+                if (queries == null)
+                    this.queries = queries = new GenealogicalTreeQueries(this);
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Метод, возвращающий индекс имен людей дерева.
+     * Индекс строится при первом обращении и затем дополняется при каждом добавлении человека.
+     * @return Объект индекса.
+     */
+    public PersonNameIndex getNameIndex() {
+        PersonNameIndex nameIndex = this.nameIndex;
+        if (nameIndex == null) {
+            synchronized (listeners) {
+                nameIndex = this.nameIndex;
+                if (nameIndex == null)
+                    this.nameIndex = nameIndex = new PersonNameIndex(this);
+            }
+        }
+        return nameIndex;
     }
 
     /**
@@ -57,9 +240,12 @@ public class GenealogicalTree implements INamed {
      * @param mother Узел дерева, содержащий объект матери.
      * @return Узел дерева, содержащий объект добавленного человека.
      * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws UnsupportedOperationException Возбуждается, если дерево доступно только для чтения.
      */
     public GenealogicalTreeNode addPerson(Person person, GenealogicalTreeNode father, GenealogicalTreeNode mother)
-            throws IllegalArgumentException {
+            throws IllegalArgumentException, UnsupportedOperationException {
+
+        checkWritable();
 
         if (person == null || father == null || mother == null)
             throw new IllegalArgumentException("Передан неинициализированный объект.");
@@ -73,10 +259,7 @@ public class GenealogicalTree implements INamed {
         if (mother.getPerson().getGender() != Gender.female)
             throw new IllegalArgumentException("Невалидный пол матери.");
 
-        GenealogicalTreeNode child = new GenealogicalTreeNode(++idCounter, this, person, father, mother);
-        father.addChild(child);
-        mother.addChild(child);
-        return child;
+        return create(person, father, mother);
     }
 
     /**
@@ -86,14 +269,19 @@ public class GenealogicalTree implements INamed {
      * @param mother Объект матери, с которым будет создан новый узел.
      * @return Узел дерева, содержащий объект добавленного человека.
      * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws UnsupportedOperationException Возбуждается, если дерево доступно только для чтения.
      */
     public GenealogicalTreeNode addPerson(Person person, GenealogicalTreeNode father, Female mother)
-            throws IllegalArgumentException {
+            throws IllegalArgumentException, UnsupportedOperationException {
+
+        checkWritable();
 
-        if (mother == null)
+        if (person == null || mother == null)
             throw new IllegalArgumentException("Передан неинициализированный объект.");
 
-        GenealogicalTreeNode motherNode = new GenealogicalTreeNode(++idCounter, this, mother);
+        checkParent(father, Gender.male);
+
+        GenealogicalTreeNode motherNode = create(mother, null, null);
         return addPerson(person, father, motherNode);
     }
 
@@ -104,58 +292,374 @@ public class GenealogicalTree implements INamed {
      * @param mother Узел дерева, содержащий объект матери.
      * @return Узел дерева, содержащий объект добавленного человека.
      * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws UnsupportedOperationException Возбуждается, если дерево доступно только для чтения.
      */
     public GenealogicalTreeNode addPerson(Person person, Male father, GenealogicalTreeNode mother)
-            throws IllegalArgumentException {
+            throws IllegalArgumentException, UnsupportedOperationException {
 
-        if (father == null)
+        checkWritable();
+
+        if (person == null || father == null)
             throw new IllegalArgumentException("Передан неинициализированный объект.");
 
-        GenealogicalTreeNode fatherNode = new GenealogicalTreeNode(++idCounter, this, father);
+        checkParent(mother, Gender.female);
+
+        GenealogicalTreeNode fatherNode = create(father, null, null);
         return addPerson(person, fatherNode, mother);
     }
 
+    /**
+     * Метод пакетного добавления людей в генеалогическое дерево.
+     * Все записи проверяются до добавления первого узла, поэтому при ошибке дерево не изменяется.
+     * Идентификаторы выдаются одним блоком, место под узлы и детей родителей резервируется заранее.
+     * Если добавление прервано ошибкой хранилища, например нехваткой памяти, ошибка передается вызывающему:
+     * хранилище объектов в этом случае не добавляет ни одного узла пакета, а узлы, добавленные в столбцовое
+     * хранилище до ошибки, фиксируются. Ошибка подписчика на одном из узлов
+     * не прерывает фиксацию остальных и передается вызывающему после нее.
+     * @param batch Пакет людей.
+     * @return Созданные узлы в порядке записей пакета.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или записи пакета невалидны.
+     * @throws UnsupportedOperationException Возбуждается, если дерево доступно только для чтения.
+     */
+    public List<GenealogicalTreeNode> addPersons(GenealogicalTreeBatch batch)
+            throws IllegalArgumentException, UnsupportedOperationException {
+
+        checkWritable();
+
+        if (batch == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        if (batch.getGenealogicalTree() != null && batch.getGenealogicalTree() != this)
+            throw new IllegalArgumentException("Переданный узел не содержится в этом экземпляре генеалогического дерева.");
+
+        int count = batch.size();
+        int[] childCounts = new int[count];
+        int[] parentIds = new int[count << 1];
+        int parents = 0;
+        for (int i = 0; i < count; i++) {
+            int father = batch.father(i);
+            int mother = batch.mother(i);
+            if ((father == 0) != (mother == 0))
+                throw new IllegalArgumentException("Невалидная пара родителей: указан только один из родителей.");
+            if (father == 0)
+                continue;
+
+            if (batchGender(batch, father) != Gender.male)
+                throw new IllegalArgumentException("Невалидный пол отца.");
+            if (batchGender(batch, mother) != Gender.female)
+                throw new IllegalArgumentException("Невалидный пол матери.");
+
+            if (father < 0)
+                childCounts[-father - 1]++;
+            else
+                parentIds[parents++] = father;
+            if (mother < 0)
+                childCounts[-mother - 1]++;
+            else
+                parentIds[parents++] = mother;
+        }
+
+        if (count == 0)
+            return List.of();
+
+        Arrays.sort(parentIds, 0, parents);
+        Throwable failure = null;
+        int base = 0;
+        int last = 0;
+        if (storage instanceof IConcurrentNodeStorage concurrent) {
+            try {
+                base = concurrent.addAll(idCounter, batch, childCounts, parentIds, parents);
+                last = base + count;
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+        } else {
+            synchronized (storage) {
+                base = idCounter.get();
+                try {
+                    createAll(batch, base, childCounts, parentIds, parents);
+                } catch (RuntimeException | Error e) {
+                    failure = e;
+                }
+                last = idCounter.get();
+            }
+        }
+
+        for (int id = base + 1; id <= last; id++) {
+            try {
+                commit(storage.get(id));
+            } catch (RuntimeException | Error e) {
+                if (failure == null)
+                    failure = e;
+                else if (failure != e)
+                    failure.addSuppressed(e);
+            }
+        }
+        if (failure instanceof RuntimeException e)
+            throw e;
+        if (failure instanceof Error e)
+            throw e;
+        return new NodeRange(base, count);
+    }
+
     /**
      * Метод получения узла генеалогического дерева.
      * @param id Идентификатор узда.
      * @return Узел генеалогического дерева.
-     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
      */
     public GenealogicalTreeNode findNode(int id) {
-        if (id <= 0 || id > idCounter)
+        if (id <= 0 || id > idCounter.get())
             return null;
 
-        return findNode(id, head);
+        return storage.get(id);
     }
 
     /**
-     * Рекурсивный метод поиска узла.
-     * @param id Идентификатор узла.
-     * @param node Текущий узел.
-     * @return Результат поиска.
+     * Метод, возвращающий столбцовое хранилище узлов для чтения столбцов без создания узлов.
+     * @return Хранилище или null, если узлы хранятся объектами.
      */
-    private GenealogicalTreeNode findNode(int id, GenealogicalTreeNode node) {
-        if (node.getId() == id)
-            return node;
+    IColumnarStorage columns() {
+        return storage instanceof IColumnarStorage columns ? columns : null;
+    }
 
-        GenealogicalTreeNode[] children = node.getChildren();
-        if (children.length == 0)
-            return null;
+    /**
+     * Метод восстановления узла с известным идентификатором, например при загрузке дерева или повторе журнала.
+     * Узлы восстанавливаются в порядке возрастания идентификаторов, пол родителей не проверяется.
+     * @param id Идентификатор узла, следующий за наибольшим выданным.
+     * @param person Объект человека.
+     * @param fatherId Идентификатор отца или 0.
+     * @param motherId Идентификатор матери или 0.
+     * @return Восстановленный узел.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или идентификаторы невалидны.
+     * @throws UnsupportedOperationException Возбуждается, если дерево доступно только для чтения.
+     */
+    public GenealogicalTreeNode restoreNode(int id, Person person, int fatherId, int motherId)
+            throws IllegalArgumentException, UnsupportedOperationException {
+
+        checkWritable();
+
+        if (person == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        if (fatherId < 0 || fatherId >= id || motherId < 0 || motherId >= id)
+            throw new IllegalArgumentException("Невалидный идентификатор узла.");
+
+        GenealogicalTreeNode father = storage.get(fatherId);
+        GenealogicalTreeNode mother = storage.get(motherId);
+        if ((fatherId != 0 && father == null) || (motherId != 0 && mother == null))
+            throw new IllegalArgumentException("Невалидный идентификатор узла.");
+
+        GenealogicalTreeNode node;
+        if (storage instanceof IConcurrentNodeStorage concurrent) {
+            node = concurrent.add(idCounter, id, person, father, mother);
+        } else {
+            synchronized (storage) {
+                node = idCounter.get() == id - 1 ? storage.add(id, person, father, mother) : null;
+                if (node != null)
+                    idCounter.set(id);
+            }
+        }
+        if (node == null)
+            throw new IllegalArgumentException("Невалидный идентификатор узла.");
+        return commit(node);
+    }
+
+    /**
+     * Метод добавления подписчика на изменения дерева.
+     * @param listener Подписчик.
+     */
+    public void addListener(IGenealogicalTreeListener listener) {
+        if (listener != null)
+            listeners.add(listener);
+    }
+
+    /**
+     * Метод удаления подписчика на изменения дерева.
+     * @param listener Подписчик.
+     */
+    public void removeListener(IGenealogicalTreeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Метод создания узла с новым идентификатором.
+     * Хранилище объектов выдает идентификатор само после выделения памяти под узел, для остальных хранилищ
+     * он выдается под блокировкой хранилища после добавления узла, поэтому при ошибке добавления
+     * идентификатор не расходуется.
+     * @param person Объект человека.
+     * @param father Узел отца или null.
+     * @param mother Узел матери или null.
+     * @return Созданный узел.
+     */
+    private GenealogicalTreeNode create(Person person, GenealogicalTreeNode father, GenealogicalTreeNode mother) {
+        GenealogicalTreeNode node;
+        if (storage instanceof IConcurrentNodeStorage concurrent) {
+            node = concurrent.add(idCounter, 0, person, father, mother);
+        } else {
+            synchronized (storage) {
+                node = storage.add(idCounter.get() + 1, person, father, mother);
+                idCounter.set(node.getId());
+            }
+        }
+        return commit(node);
+    }
 
-        for (GenealogicalTreeNode child: children) {
+    /**
+     * Метод создания узлов пакета с блоком идентификаторов, следующим за base, в хранилище, не допускающем
+     * одновременного добавления. Вызывается под блокировкой хранилища. Счетчик идентификаторов сдвигается после каждого добавленного узла, поэтому при ошибке
+     * он указывает на последний добавленный узел.
+     * @param batch Пакет людей.
+     * @param base Идентификатор, предшествующий блоку.
+     * @param childCounts Количество детей записей пакета.
+     * @param parentIds Отсортированные идентификаторы узлов дерева, указанных родителями, с повторами.
+     * @param parents Количество идентификаторов в parentIds.
+     */
+    private void createAll(GenealogicalTreeBatch batch, int base, int[] childCounts, int[] parentIds, int parents) {
+        int count = batch.size();
+        storage.reserve(base + count);
+        int i = 0;
+        while (i < parents) {
+            int j = i + 1;
+            while (j < parents && parentIds[j] == parentIds[i])
+                j++;
+            storage.reserveChildren(storage.get(parentIds[i]), j - i);
+            i = j;
+        }
 
-            GenealogicalTreeNode secondParent = node.getPerson().getGender() == Gender.male
-                    ? child.getMother() : child.getFather();
+        for (i = 0; i < count; i++) {
+            GenealogicalTreeNode father = batchNode(base, batch.father(i));
+            GenealogicalTreeNode mother = batchNode(base, batch.mother(i));
+            GenealogicalTreeNode node = storage.add(base + 1 + i, batch.person(i), father, mother);
+            idCounter.set(node.getId());
+            if (childCounts[i] > GenealogicalTreeNode.INITIAL_CHILDREN)
+                storage.reserveChildren(node, childCounts[i]);
+        }
+    }
 
-            if (secondParent.getId() == id)
-                return secondParent;
+    /**
+     * Метод получения пола родителя, указанного в пакете.
+     * @param batch Пакет людей.
+     * @param parent Родитель во внутреннем представлении пакета.
+     * @return Пол родителя.
+     * @throws IllegalArgumentException Возбуждается, если узел родителя не найден.
+     */
+    private Gender batchGender(GenealogicalTreeBatch batch, int parent) throws IllegalArgumentException {
+        if (parent < 0)
+            return batch.person(-parent - 1).getGender();
+
+        GenealogicalTreeNode node = findNode(parent);
+        if (node == null)
+            throw new IllegalArgumentException("Невалидный идентификатор узла.");
+        return node.getPerson().getGender();
+    }
 
-            GenealogicalTreeNode result = findNode(id, child);
-            if (result != null)
-                return result;
+    /**
+     * Метод получения узла родителя, указанного в пакете.
+     * @param base Идентификатор, предшествующий блоку пакета.
+     * @param parent Родитель во внутреннем представлении пакета.
+     * @return Узел родителя или null.
+     */
+    private GenealogicalTreeNode batchNode(int base, int parent) {
+        if (parent == 0)
+            return null;
+        return storage.get(parent < 0 ? base - parent : parent);
+    }
+
+    /**
+     * Метод фиксации узла: дожидается фиксации всех узлов с меньшими идентификаторами,
+     * добавляет узел в списки поколений, уведомляет подписчиков и сдвигает границу зафиксированных узлов.
+     * @param node Добавленный узел.
+     * @return Добавленный узел.
+     */
+    private GenealogicalTreeNode commit(GenealogicalTreeNode node) {
+        int id = node.getId();
+        for (int spins = 0; committed != id - 1; spins++) {
+            if (spins < 64)
+                Thread.onSpinWait();
+            else
+                Thread.yield();
         }
 
-        return null;
+        try {
+            generations.add(node);
+            for (IGenealogicalTreeListener listener: listeners)
+                listener.nodeAdded(node);
+        } finally {
+            committed = id;
+        }
+        return node;
+    }
+
+    /**
+     * Метод проверки возможности изменения дерева.
+     * @throws UnsupportedOperationException Возбуждается, если дерево доступно только для чтения.
+     */
+    private void checkWritable() throws UnsupportedOperationException {
+        if (isReadOnly())
+            throw new UnsupportedOperationException("Дерево доступно только для чтения.");
     }
 
+    /**
+     * Метод проверки узла родителя до создания узла второго родителя.
+     * @param parent Узел родителя.
+     * @param gender Ожидаемый пол родителя.
+     * @throws IllegalArgumentException Возбуждается, если узел невалиден.
+     */
+    private void checkParent(GenealogicalTreeNode parent, Gender gender) throws IllegalArgumentException {
+        if (parent == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        if (parent.getGenealogicalTree() != this)
+            throw new IllegalArgumentException("Переданный узел не содержится в этом экземпляре генеалогического дерева.");
+
+        if (parent.getPerson().getGender() != gender)
+            throw new IllegalArgumentException(gender == Gender.male ? "Невалидный пол отца." : "Невалидный пол матери.");
+    }
+
+    /**
+     * Класс, описывающий неизменяемый список узлов с идентификаторами из непрерывного блока.
+     * Узлы не хранятся, а берутся из хранилища при обращении.
+     */
+    private final class NodeRange extends AbstractList<GenealogicalTreeNode> implements RandomAccess {
+
+        /**
+         * Идентификатор, предшествующий блоку.
+         */
+        private final int base;
+
+        /**
+         * Количество узлов блока.
+         */
+        private final int count;
+
+        /**
+         * Инициализация списка.
+         * @param base Идентификатор, предшествующий блоку.
+         * @param count Количество узлов блока.
+         */
+        NodeRange(int base, int count) {
+            this.base = base;
+            this.count = count;
+        }
+
+        /**
+         * Метод получения узла по порядковому номеру.
+         * @param index Порядковый номер узла в блоке.
+         * @return Узел.
+         */
+        @Override
+        public GenealogicalTreeNode get(int index) {
+            Objects.checkIndex(index, count);
+            return storage.get(base + 1 + index);
+        }
+
+        /**
+         * Метод, возвращающий количество узлов.
+         * @return Количество узлов блока.
+         */
+        @Override
+        public int size() {
+            return count;
+        }
+    }
 }
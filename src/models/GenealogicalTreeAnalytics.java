@@ -0,0 +1,393 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Класс, описывающий параллельный подсчет статистики генеалогического дерева.
+ * <p>
+ * Идентификаторы узлов снимка идут подряд от 1 до размера снимка, поэтому дерево делится не по ветвям,
+ * размеры которых могут отличаться на порядки, а по диапазонам идентификаторов равного размера.
+ * Диапазоны обрабатываются задачами {@link RecursiveTask} в пуле {@link ForkJoinPool}, а частичные результаты
+ * объединяются без блокировок. Каждый узел входит ровно в один диапазон, поэтому супруги, которые достижимы
+ * только как отец или мать детей из разных ветвей, учитываются один раз без общего множества посещенных узлов.
+ * Семья - пара родителей - учитывается при обработке отца: его дети группируются по матерям. Дети с одним
+ * известным родителем, например после импорта GEDCOM, образуют семью этого родителя без второго родителя.
+ */
+public class GenealogicalTreeAnalytics {
+
+    /**
+     * Наибольшее количество узлов, обрабатываемых одной задачей без разделения.
+     */
+    private static final int THRESHOLD = 1 << 12;
+
+    /**
+     * Пул потоков.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Инициализация подсчета в общем пуле.
+     */
+    public GenealogicalTreeAnalytics() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Инициализация подсчета в заданном пуле.
+     * @param pool Пул потоков.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public GenealogicalTreeAnalytics(ForkJoinPool pool) throws IllegalArgumentException {
+        if (pool == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        this.pool = pool;
+    }
+
+    /**
+     * Метод подсчета статистики снимка дерева.
+     * @param snapshot Снимок дерева.
+     * @param largestFamilies Количество самых многодетных семей в результате.
+     * @return Статистика снимка.
+     * @throws IllegalArgumentException Возбуждается, если снимок не инициализирован или количество семей отрицательно.
+     */
+    public GenealogicalTreeStatistics analyze(GenealogicalTreeSnapshot snapshot, int largestFamilies)
+            throws IllegalArgumentException {
+
+        if (snapshot == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+        if (largestFamilies < 0)
+            throw new IllegalArgumentException("Невалидное количество семей.");
+
+        Partial result = pool.invoke(new RangeTask(snapshot, largestFamilies, 1, snapshot.size() + 1));
+
+        List<Family> families = new ArrayList<>(result.topCount);
+        for (int i = 0; i < result.topCount; i++) {
+            families.add(new Family(snapshot.findNode(result.topFathers[i]), snapshot.findNode(result.topMothers[i]),
+                    result.topChildren[i]));
+        }
+        families.sort((first, second) -> first.getChildCount() != second.getChildCount()
+                ? Integer.compare(second.getChildCount(), first.getChildCount())
+                : compareParents(id(first.getFather()), id(first.getMother()),
+                        id(second.getFather()), id(second.getMother())));
+
+        return new GenealogicalTreeStatistics(snapshot.size(), result.spouses, result.males, result.females,
+                result.maxDepth, result.families, result.children, Collections.unmodifiableList(families));
+    }
+
+    /**
+     * Метод получения идентификатора родителя.
+     * @param parent Узел родителя или null, если родитель не указан.
+     * @return Идентификатор родителя или 0, если родитель не указан.
+     */
+    private static int id(GenealogicalTreeNode parent) {
+        return parent == null ? 0 : parent.getId();
+    }
+
+    /**
+     * Метод сравнения семей с одинаковым количеством детей по идентификаторам родителей.
+     * @param firstFather Идентификатор отца первой семьи.
+     * @param firstMother Идентификатор матери первой семьи.
+     * @param secondFather Идентификатор отца второй семьи.
+     * @param secondMother Идентификатор матери второй семьи.
+     * @return Отрицательное число, если первая семья идет раньше.
+     */
+    private static int compareParents(int firstFather, int firstMother, int secondFather, int secondMother) {
+        return firstFather != secondFather
+                ? Integer.compare(firstFather, secondFather)
+                : Integer.compare(firstMother, secondMother);
+    }
+
+    /**
+     * Класс, описывающий задачу подсчета статистики узлов из диапазона идентификаторов.
+     */
+    private static final class RangeTask extends RecursiveTask<Partial> {
+
+        /**
+         * Версия сериализации задачи.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Снимок дерева.
+         */
+        private final GenealogicalTreeSnapshot snapshot;
+
+        /**
+         * Количество самых многодетных семей в результате.
+         */
+        private final int largestFamilies;
+
+        /**
+         * Первый идентификатор диапазона.
+         */
+        private final int from;
+
+        /**
+         * Идентификатор, следующий за последним идентификатором диапазона.
+         */
+        private final int to;
+
+        /**
+         * Инициализация задачи.
+         * @param snapshot Снимок дерева.
+         * @param largestFamilies Количество самых многодетных семей в результате.
+         * @param from Первый идентификатор диапазона.
+         * @param to Идентификатор, следующий за последним идентификатором диапазона.
+         */
+        RangeTask(GenealogicalTreeSnapshot snapshot, int largestFamilies, int from, int to) {
+            this.snapshot = snapshot;
+            this.largestFamilies = largestFamilies;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Метод подсчета: диапазон делится пополам, пока не станет меньше порога.
+         * @return Статистика диапазона.
+         */
+        @Override
+        protected Partial compute() {
+            if (to - from <= THRESHOLD)
+                return computeDirectly();
+
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(snapshot, largestFamilies, from, middle);
+            left.fork();
+            Partial result = new RangeTask(snapshot, largestFamilies, middle, to).compute();
+            result.merge(left.join());
+            return result;
+        }
+
+        /**
+         * Метод последовательного подсчета статистики диапазона.
+         * @return Статистика диапазона.
+         */
+        private Partial computeDirectly() {
+            Partial result = new Partial(largestFamilies);
+            int size = snapshot.size();
+            int[] mothers = new int[GenealogicalTreeNode.INITIAL_CHILDREN];
+            for (int id = from; id < to; id++) {
+                GenealogicalTreeNode node = snapshot.findNode(id);
+                result.maxDepth = Math.max(result.maxDepth, node.getGeneration());
+                if (node.getFather() != null || node.getMother() != null)
+                    result.children++;
+                else if (id != GenealogicalTree.HEAD_ID)
+                    result.spouses++;
+
+                if (node.getPerson().getGender() == Gender.female) {
+                    result.females++;
+                    countFatherless(result, node, size);
+                    continue;
+                }
+
+                result.males++;
+                int count = node.childCount();
+                if (count > mothers.length)
+                    mothers = new int[Math.max(count, mothers.length << 1)];
+                int visible = 0;
+                for (int i = 0; i < count; i++) {
+                    GenealogicalTreeNode child = node.childAt(i);
+                    if (child.getId() <= size)
+                        mothers[visible++] = id(child.getMother());
+                }
+                countFamilies(result, id, mothers, visible);
+            }
+            return result;
+        }
+
+        /**
+         * Метод подсчета семьи матери из детей, у которых не указан отец.
+         * Дети с обоими родителями учитываются при обработке отца.
+         * @param result Статистика диапазона.
+         * @param mother Узел матери.
+         * @param size Размер снимка.
+         */
+        private static void countFatherless(Partial result, GenealogicalTreeNode mother, int size) {
+            int count = 0;
+            for (int i = 0; i < mother.childCount(); i++) {
+                GenealogicalTreeNode child = mother.childAt(i);
+                if (child.getId() <= size && child.getFather() == null)
+                    count++;
+            }
+            if (count == 0)
+                return;
+
+            result.families++;
+            result.offer(count, 0, mother.getId());
+        }
+
+        /**
+         * Метод подсчета семей отца по матерям его детей.
+         * @param result Статистика диапазона.
+         * @param father Идентификатор отца.
+         * @param mothers Идентификаторы матерей детей.
+         * @param count Количество детей.
+         */
+        private static void countFamilies(Partial result, int father, int[] mothers, int count) {
+            if (count > 1)
+                Arrays.sort(mothers, 0, count);
+
+            int i = 0;
+            while (i < count) {
+                int j = i + 1;
+                while (j < count && mothers[j] == mothers[i])
+                    j++;
+                result.families++;
+                result.offer(j - i, father, mothers[i]);
+                i = j;
+            }
+        }
+    }
+
+    /**
+     * Класс, описывающий частичную статистику диапазона идентификаторов.
+     */
+    private static final class Partial {
+
+        /**
+         * Количество супругов.
+         */
+        int spouses;
+
+        /**
+         * Количество мужчин.
+         */
+        int males;
+
+        /**
+         * Количество женщин.
+         */
+        int females;
+
+        /**
+         * Наибольшее поколение.
+         */
+        int maxDepth;
+
+        /**
+         * Количество семей.
+         */
+        int families;
+
+        /**
+         * Количество детей с указанными родителями.
+         */
+        int children;
+
+        /**
+         * Количество детей самых многодетных семей.
+         */
+        final int[] topChildren;
+
+        /**
+         * Идентификаторы отцов самых многодетных семей.
+         */
+        final int[] topFathers;
+
+        /**
+         * Идентификаторы матерей самых многодетных семей.
+         */
+        final int[] topMothers;
+
+        /**
+         * Количество самых многодетных семей.
+         */
+        int topCount;
+
+        /**
+         * Позиция наименее многодетной из отобранных семей, если отобрано наибольшее количество.
+         */
+        private int weakest = -1;
+
+        /**
+         * Инициализация частичной статистики.
+         * @param largestFamilies Количество самых многодетных семей.
+         */
+        Partial(int largestFamilies) {
+            topChildren = new int[largestFamilies];
+            topFathers = new int[largestFamilies];
+            topMothers = new int[largestFamilies];
+        }
+
+        /**
+         * Метод отбора семьи в самые многодетные.
+         * @param children Количество детей семьи.
+         * @param father Идентификатор отца.
+         * @param mother Идентификатор матери.
+         */
+        void offer(int children, int father, int mother) {
+            if (topCount < topChildren.length) {
+                put(topCount++, children, father, mother);
+                if (topCount == topChildren.length)
+                    weakest = findWeakest();
+                return;
+            }
+            if (weakest < 0 || !isBetter(children, father, mother, weakest))
+                return;
+
+            put(weakest, children, father, mother);
+            weakest = findWeakest();
+        }
+
+        /**
+         * Метод объединения с частичной статистикой другого диапазона.
+         * @param other Частичная статистика.
+         */
+        void merge(Partial other) {
+            spouses += other.spouses;
+            males += other.males;
+            females += other.females;
+            maxDepth = Math.max(maxDepth, other.maxDepth);
+            families += other.families;
+            children += other.children;
+            for (int i = 0; i < other.topCount; i++)
+                offer(other.topChildren[i], other.topFathers[i], other.topMothers[i]);
+        }
+
+        /**
+         * Метод записи семьи в позицию отобранных.
+         * @param index Позиция.
+         * @param children Количество детей.
+         * @param father Идентификатор отца.
+         * @param mother Идентификатор матери.
+         */
+        private void put(int index, int children, int father, int mother) {
+            topChildren[index] = children;
+            topFathers[index] = father;
+            topMothers[index] = mother;
+        }
+
+        /**
+         * Метод проверки, многодетнее ли семья отобранной.
+         * @param children Количество детей семьи.
+         * @param father Идентификатор отца.
+         * @param mother Идентификатор матери.
+         * @param index Позиция отобранной семьи.
+         * @return true, если у семьи больше детей или столько же, но она идет раньше по идентификаторам родителей.
+         */
+        private boolean isBetter(int children, int father, int mother, int index) {
+            if (children != topChildren[index])
+                return children > topChildren[index];
+            return compareParents(father, mother, topFathers[index], topMothers[index]) < 0;
+        }
+
+        /**
+         * Метод поиска наименее многодетной из отобранных семей.
+         * @return Позиция семьи.
+         */
+        private int findWeakest() {
+            int weakest = 0;
+            for (int i = 1; i < topCount; i++) {
+                if (isBetter(topChildren[weakest], topFathers[weakest], topMothers[weakest], i))
+                    weakest = i;
+            }
+            return weakest;
+        }
+    }
+}
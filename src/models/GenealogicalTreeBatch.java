@@ -0,0 +1,223 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Класс, описывающий пакет людей для добавления в генеалогическое дерево одним вызовом
+ * {@link GenealogicalTree#addPersons(GenealogicalTreeBatch)}.
+ * <p>
+ * Родителем человека может быть узел, уже находящийся в дереве, или человек, добавленный в пакет раньше.
+ * Методы add возвращают ссылку на запись пакета - ее порядковый номер, который можно передать как родителя
+ * следующим записям и по которому в результате добавления находится созданный узел.
+ * Человек добавляется с обоими родителями или без родителей, как узел супруга.
+ */
+public class GenealogicalTreeBatch {
+
+    /**
+     * Начальная емкость пакета.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Дерево, узлы которого указаны родителями, или null, если таких узлов нет.
+     */
+    private GenealogicalTree genealogicalTree;
+
+    /**
+     * Люди в порядке добавления.
+     */
+    private Person[] persons;
+
+    /**
+     * Родители: идентификатор узла дерева, если больше 0, ссылка -(номер записи + 1), если меньше 0,
+     * и 0, если родитель не указан.
+     */
+    private int[] fathers;
+
+    /**
+     * Матери в том же представлении, что и отцы.
+     */
+    private int[] mothers;
+
+    /**
+     * Количество записей.
+     */
+    private int size;
+
+    /**
+     * Инициализация пустого пакета.
+     */
+    public GenealogicalTreeBatch() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Инициализация пустого пакета с заданной емкостью.
+     * @param capacity Ожидаемое количество записей.
+     * @throws IllegalArgumentException Возбуждается, если емкость отрицательна.
+     */
+    public GenealogicalTreeBatch(int capacity) throws IllegalArgumentException {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Невалидная емкость пакета.");
+
+        persons = new Person[Math.max(capacity, 1)];
+        fathers = new int[persons.length];
+        mothers = new int[persons.length];
+    }
+
+    /**
+     * Метод добавления человека без родителей, например супруга, на которого будут ссылаться дети.
+     * @param person Объект человека.
+     * @return Ссылка на запись.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public int add(Person person) throws IllegalArgumentException {
+        return append(person, 0, 0);
+    }
+
+    /**
+     * Метод добавления человека, родители которого уже находятся в дереве.
+     * @param person Объект человека.
+     * @param father Узел отца.
+     * @param mother Узел матери.
+     * @return Ссылка на запись.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован
+     * или узлы принадлежат разным деревьям.
+     */
+    public int add(Person person, GenealogicalTreeNode father, GenealogicalTreeNode mother)
+            throws IllegalArgumentException {
+        return append(person, node(father), node(mother));
+    }
+
+    /**
+     * Метод добавления человека, отец которого находится в дереве, а мать добавлена в пакет.
+     * @param person Объект человека.
+     * @param father Узел отца.
+     * @param mother Ссылка на запись матери.
+     * @return Ссылка на запись.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или ссылка невалидна.
+     */
+    public int add(Person person, GenealogicalTreeNode father, int mother) throws IllegalArgumentException {
+        return append(person, node(father), record(mother));
+    }
+
+    /**
+     * Метод добавления человека, мать которого находится в дереве, а отец добавлен в пакет.
+     * @param person Объект человека.
+     * @param father Ссылка на запись отца.
+     * @param mother Узел матери.
+     * @return Ссылка на запись.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или ссылка невалидна.
+     */
+    public int add(Person person, int father, GenealogicalTreeNode mother) throws IllegalArgumentException {
+        return append(person, record(father), node(mother));
+    }
+
+    /**
+     * Метод добавления человека, оба родителя которого добавлены в пакет.
+     * @param person Объект человека.
+     * @param father Ссылка на запись отца.
+     * @param mother Ссылка на запись матери.
+     * @return Ссылка на запись.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или ссылка невалидна.
+     */
+    public int add(Person person, int father, int mother) throws IllegalArgumentException {
+        return append(person, record(father), record(mother));
+    }
+
+    /**
+     * Метод, возвращающий количество записей пакета.
+     * @return Количество записей.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Метод, возвращающий дерево, узлы которого указаны родителями.
+     * @return Дерево или null.
+     */
+    GenealogicalTree getGenealogicalTree() {
+        return genealogicalTree;
+    }
+
+    /**
+     * Метод, возвращающий человека записи.
+     * @param index Номер записи.
+     * @return Объект человека.
+     */
+    Person person(int index) {
+        return persons[index];
+    }
+
+    /**
+     * Метод, возвращающий отца записи.
+     * @param index Номер записи.
+     * @return Идентификатор узла, если больше 0, -(номер записи + 1), если меньше 0, или 0.
+     */
+    int father(int index) {
+        return fathers[index];
+    }
+
+    /**
+     * Метод, возвращающий мать записи.
+     * @param index Номер записи.
+     * @return Идентификатор узла, если больше 0, -(номер записи + 1), если меньше 0, или 0.
+     */
+    int mother(int index) {
+        return mothers[index];
+    }
+
+    /**
+     * Метод добавления записи.
+     * @param person Объект человека.
+     * @param father Отец во внутреннем представлении.
+     * @param mother Мать во внутреннем представлении.
+     * @return Ссылка на запись.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    private int append(Person person, int father, int mother) throws IllegalArgumentException {
+        if (person == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        if (size == persons.length) {
+            int capacity = size << 1;
+            persons = Arrays.copyOf(persons, capacity);
+            fathers = Arrays.copyOf(fathers, capacity);
+            mothers = Arrays.copyOf(mothers, capacity);
+        }
+        persons[size] = person;
+        fathers[size] = father;
+        mothers[size] = mother;
+        return size++;
+    }
+
+    /**
+     * Метод преобразования узла дерева во внутреннее представление родителя.
+     * @param node Узел дерева.
+     * @return Идентификатор узла.
+     * @throws IllegalArgumentException Возбуждается, если узел не инициализирован или принадлежит другому дереву.
+     */
+    private int node(GenealogicalTreeNode node) throws IllegalArgumentException {
+        if (node == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        if (genealogicalTree == null)
+            genealogicalTree = node.getGenealogicalTree();
+        else if (node.getGenealogicalTree() != genealogicalTree)
+            throw new IllegalArgumentException("Узлы пакета принадлежат разным генеалогическим деревьям.");
+        return node.getId();
+    }
+
+    /**
+     * Метод преобразования ссылки на запись во внутреннее представление родителя.
+     * @param index Ссылка на запись.
+     * @return -(номер записи + 1).
+     * @throws IllegalArgumentException Возбуждается, если запись не добавлена в пакет.
+     */
+    private int record(int index) throws IllegalArgumentException {
+        if (index < 0 || index >= size)
+            throw new IllegalArgumentException("Невалидная ссылка на запись пакета.");
+        return -(index + 1);
+    }
+}
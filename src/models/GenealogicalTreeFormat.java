@@ -0,0 +1,643 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс, описывающий двоичный формат хранения генеалогического дерева.
+ * <p>
+ * Дерево записывается столбцами, индексируемыми идентификатором узла (ячейка 0 не используется),
+ * в порядке little-endian:
+ * <pre>
+ * заголовок       magic, version, mode, nodeCount, edgeCount, nameLength, poolLength
+ * название дерева UTF-8, выравнивание до 4 байт
+ * fathers         int[nodeCount + 1]
+ * mothers         int[nodeCount + 1]
+ * childOffsets    int[nodeCount + 2] - списки детей в формате CSR
+ * childIds        int[edgeCount]
+ * nameEnds        int[nodeCount + 1] - концы имен в пуле имен, пул не больше 2 ГБ
+ * genders         byte[nodeCount + 1]
+ * пул имен        UTF-8
+ * </pre>
+ */
+public class GenealogicalTreeFormat {
+
+    /**
+     * Сигнатура файла дерева.
+     */
+    static final int MAGIC = 0x45525447;
+
+    /**
+     * Версия формата.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Размер заголовка в байтах.
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * Код мужского пола.
+     */
+    static final byte MALE = 0;
+
+    /**
+     * Код женского пола.
+     */
+    static final byte FEMALE = 1;
+
+    /**
+     * Размер буфера ввода-вывода.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Метод записи генеалогического дерева в канал.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param channel Канал для записи.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    public static void write(GenealogicalTree genealogicalTree, WritableByteChannel channel)
+            throws IllegalArgumentException, IOException {
+
+        if (genealogicalTree == null || channel == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        int nodeCount = genealogicalTree.size();
+        Columns columns = new Columns(genealogicalTree, nodeCount);
+        int edgeCount = 0;
+        long poolLength = 0;
+        for (int id = 1; id <= nodeCount; id++) {
+            edgeCount += columns.childCount(id);
+            poolLength += columns.nameLength(id);
+        }
+        if (poolLength > Integer.MAX_VALUE)
+            throw new IOException("Имена людей дерева превышают допустимый размер пула имен.");
+
+        byte[] name = genealogicalTree.getName().getBytes(StandardCharsets.UTF_8);
+        ChannelWriter writer = new ChannelWriter(channel);
+        writer.putInt(MAGIC);
+        writer.putInt(VERSION);
+        StorageMode mode = genealogicalTree.isReadOnly() ? StorageMode.columnar : genealogicalTree.getStorageMode();
+        writer.putInt(mode.ordinal());
+        writer.putInt(nodeCount);
+        writer.putInt(edgeCount);
+        writer.putInt(name.length);
+        writer.putLong(poolLength);
+        writer.putBytes(name);
+        writer.pad(name.length);
+
+        writer.putInt(0);
+        for (int id = 1; id <= nodeCount; id++)
+            writer.putInt(columns.father(id));
+
+        writer.putInt(0);
+        for (int id = 1; id <= nodeCount; id++)
+            writer.putInt(columns.mother(id));
+
+        int offset = 0;
+        writer.putInt(offset);
+        writer.putInt(offset);
+        for (int id = 1; id <= nodeCount; id++) {
+            offset += columns.childCount(id);
+            writer.putInt(offset);
+        }
+
+        for (int id = 1; id <= nodeCount; id++)
+            columns.putChildIds(id, writer);
+
+        int end = 0;
+        writer.putInt(end);
+        for (int id = 1; id <= nodeCount; id++) {
+            end += columns.nameLength(id);
+            writer.putInt(end);
+        }
+
+        writer.putByte((byte) 0);
+        for (int id = 1; id <= nodeCount; id++)
+            writer.putByte(columns.gender(id) == Gender.male ? MALE : FEMALE);
+
+        for (int id = 1; id <= nodeCount; id++)
+            writer.putBytes(columns.name(id));
+
+        writer.flush();
+    }
+
+    /**
+     * Метод чтения генеалогического дерева из канала.
+     * Если канал позволяет узнать свой размер, размеры столбцов из заголовка проверяются по оставшимся
+     * в нем байтам до выделения памяти под столбцы.
+     * @param channel Канал для чтения.
+     * @return Объект генеалогического дерева.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке чтения или неверном формате данных.
+     */
+    public static GenealogicalTree read(ReadableByteChannel channel) throws IllegalArgumentException, IOException {
+        if (channel == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        if (channel instanceof SeekableByteChannel seekable)
+            return read(channel, seekable.size() - seekable.position());
+        return read(channel, Long.MAX_VALUE);
+    }
+
+    /**
+     * Метод чтения генеалогического дерева из канала с известным количеством байт. Размеры столбцов
+     * из заголовка проверяются по этому количеству до выделения памяти под столбцы, поэтому поврежденный
+     * заголовок не приводит к выделению памяти, не соответствующей данным.
+     * @param channel Канал для чтения.
+     * @param length Количество байт дерева, доступных в канале.
+     * @return Объект генеалогического дерева.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке чтения или неверном формате данных.
+     */
+    public static GenealogicalTree read(ReadableByteChannel channel, long length)
+            throws IllegalArgumentException, IOException {
+
+        if (channel == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        ChannelReader reader = new ChannelReader(channel);
+        if (reader.getInt() != MAGIC || reader.getInt() != VERSION)
+            throw new IOException("Неверный формат файла дерева.");
+
+        int mode = reader.getInt();
+        int nodeCount = reader.getInt();
+        int edgeCount = reader.getInt();
+        int nameLength = reader.getInt();
+        long poolLength = reader.getLong();
+        if (mode < 0 || mode >= StorageMode.mapped.ordinal() || nodeCount <= 0 || nodeCount > Integer.MAX_VALUE - 2
+                || edgeCount < 0 || nameLength < 0 || poolLength < 0 || poolLength > Integer.MAX_VALUE)
+            throw new IOException("Неверный формат файла дерева.");
+
+        if (length(nodeCount, edgeCount, nameLength, poolLength) > length)
+            throw new IOException("Неожиданный конец файла дерева.");
+
+        byte[] name = new byte[nameLength];
+        reader.getBytes(name);
+        reader.skip(padding(nameLength));
+
+        int[] fathers = new int[nodeCount + 1];
+        int[] mothers = new int[nodeCount + 1];
+        int[] nameEnds = new int[nodeCount + 1];
+        byte[] genders = new byte[nodeCount + 1];
+        byte[] pool = new byte[(int) poolLength];
+        reader.getInts(fathers);
+        reader.getInts(mothers);
+        reader.skip(4L * (nodeCount + 2) + 4L * edgeCount);
+        reader.getInts(nameEnds);
+        reader.getBytes(genders);
+        reader.getBytes(pool);
+
+        GenealogicalTree genealogicalTree = new GenealogicalTree(new String(name, StandardCharsets.UTF_8),
+                person(pool, nameEnds, genders, 1), StorageMode.values()[mode]);
+        for (int id = 2; id <= nodeCount; id++) {
+            if (fathers[id] >= id || mothers[id] >= id || fathers[id] < 0 || mothers[id] < 0)
+                throw new IOException("Неверный формат файла дерева.");
+
+            genealogicalTree.restoreNode(id, person(pool, nameEnds, genders, id), fathers[id], mothers[id]);
+        }
+        return genealogicalTree;
+    }
+
+    /**
+     * Метод открытия файла дерева без чтения узлов. Файл отображается в память,
+     * а узлы читаются из него при обращении к ним, поэтому время открытия не зависит от размера файла.
+     * @param file Путь к файлу дерева.
+     * @return Объект генеалогического дерева, доступный только для чтения.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке открытия или неверном формате файла.
+     */
+    public static GenealogicalTree open(Path file) throws IllegalArgumentException, IOException {
+        if (file == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return MappedNodeStorage.open(channel);
+        }
+    }
+
+    /**
+     * Метод восстановления объекта человека из столбцов.
+     * @param pool Пул имен.
+     * @param nameEnds Концы имен в пуле.
+     * @param genders Коды пола.
+     * @param id Идентификатор узла.
+     * @return Объект человека.
+     * @throws IOException Возбуждается при неверном формате данных.
+     */
+    static Person person(byte[] pool, int[] nameEnds, byte[] genders, int id) throws IOException {
+        int start = nameEnds[id - 1];
+        int end = nameEnds[id];
+        if (start < 0 || end < start || end > pool.length)
+            throw new IOException("Неверный формат файла дерева.");
+
+        String name = new String(pool, start, end - start, StandardCharsets.UTF_8);
+        return genders[id] == MALE ? new Male(name) : new Female(name);
+    }
+
+    /**
+     * Метод вычисления размера дерева в байтах по размерам из заголовка.
+     * @param nodeCount Количество узлов.
+     * @param edgeCount Количество связей родитель - ребенок.
+     * @param nameLength Длина названия дерева в байтах.
+     * @param poolLength Длина пула имен в байтах.
+     * @return Размер дерева вместе с заголовком.
+     */
+    private static long length(int nodeCount, int edgeCount, int nameLength, long poolLength) {
+        long nodes = nodeCount + 1L;
+        return HEADER_SIZE + nameLength + padding(nameLength) + 4 * nodes * 2 + 4 * (nodes + 1)
+                + 4L * edgeCount + 4 * nodes + nodes + poolLength;
+    }
+
+    /**
+     * Метод вычисления выравнивания до 4 байт.
+     * @param length Длина данных.
+     * @return Количество байт выравнивания.
+     */
+    static int padding(int length) {
+        return (4 - (length & 3)) & 3;
+    }
+
+    /**
+     * Метод вычисления длины строки в кодировке UTF-8 без кодирования.
+     * @param value Строка.
+     * @return Длина в байтах.
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Класс, описывающий чтение столбцов записываемой части дерева. Столбцовые хранилища читаются
+     * напрямую, без создания узлов и декодирования имен, а для хранилища объектов узел берется
+     * по идентификатору, что не дороже обращения к элементу массива.
+     */
+    private static class Columns {
+
+        /**
+         * Объект генеалогического дерева.
+         */
+        private final GenealogicalTree genealogicalTree;
+
+        /**
+         * Столбцовое хранилище дерева или null, если узлы хранятся объектами.
+         */
+        private final IColumnarStorage storage;
+
+        /**
+         * Количество записываемых узлов. Дети, добавляемые другими потоками во время записи,
+         * могут иметь идентификаторы больше записываемых и пропускаются.
+         */
+        private final int nodeCount;
+
+        /**
+         * Инициализация чтения столбцов.
+         * @param genealogicalTree Объект генеалогического дерева.
+         * @param nodeCount Количество записываемых узлов.
+         */
+        Columns(GenealogicalTree genealogicalTree, int nodeCount) {
+            this.genealogicalTree = genealogicalTree;
+            this.nodeCount = nodeCount;
+            storage = genealogicalTree.columns();
+        }
+
+        /**
+         * Метод, возвращающий идентификатор отца.
+         * @param id Идентификатор узла.
+         * @return Идентификатор отца или 0.
+         */
+        int father(int id) {
+            if (storage != null)
+                return storage.father(id);
+
+            GenealogicalTreeNode father = genealogicalTree.findNode(id).getFather();
+            return father == null ? 0 : father.getId();
+        }
+
+        /**
+         * Метод, возвращающий идентификатор матери.
+         * @param id Идентификатор узла.
+         * @return Идентификатор матери или 0.
+         */
+        int mother(int id) {
+            if (storage != null)
+                return storage.mother(id);
+
+            GenealogicalTreeNode mother = genealogicalTree.findNode(id).getMother();
+            return mother == null ? 0 : mother.getId();
+        }
+
+        /**
+         * Метод подсчета детей узла, вошедших в записываемую часть дерева.
+         * @param id Идентификатор узла.
+         * @return Количество детей с идентификаторами не больше количества записываемых узлов.
+         */
+        int childCount(int id) {
+            int result = 0;
+            if (storage != null) {
+                int count = storage.childCount(id);
+                for (int i = 0; i < count; i++) {
+                    if (storage.childAt(id, i) <= nodeCount)
+                        result++;
+                }
+            } else {
+                GenealogicalTreeNode node = genealogicalTree.findNode(id);
+                int count = node.childCount();
+                for (int i = 0; i < count; i++) {
+                    if (node.childAt(i).getId() <= nodeCount)
+                        result++;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Метод записи идентификаторов детей узла, вошедших в записываемую часть дерева.
+         * @param id Идентификатор узла.
+         * @param writer Объект записи.
+         * @throws IOException Возбуждается при ошибке записи.
+         */
+        void putChildIds(int id, ChannelWriter writer) throws IOException {
+            if (storage != null) {
+                int count = storage.childCount(id);
+                for (int i = 0; i < count; i++) {
+                    int childId = storage.childAt(id, i);
+                    if (childId <= nodeCount)
+                        writer.putInt(childId);
+                }
+            } else {
+                GenealogicalTreeNode node = genealogicalTree.findNode(id);
+                int count = node.childCount();
+                for (int i = 0; i < count; i++) {
+                    int childId = node.childAt(i).getId();
+                    if (childId <= nodeCount)
+                        writer.putInt(childId);
+                }
+            }
+        }
+
+        /**
+         * Метод, возвращающий пол человека.
+         * @param id Идентификатор узла.
+         * @return Пол человека.
+         */
+        Gender gender(int id) {
+            return storage != null ? storage.gender(id) : genealogicalTree.findNode(id).getPerson().getGender();
+        }
+
+        /**
+         * Метод, возвращающий длину имени человека в кодировке UTF-8.
+         * @param id Идентификатор узла.
+         * @return Длина имени в байтах.
+         */
+        int nameLength(int id) {
+            return storage != null ? storage.nameLength(id)
+                    : utf8Length(genealogicalTree.findNode(id).getPerson().getName());
+        }
+
+        /**
+         * Метод, возвращающий имя человека в кодировке UTF-8.
+         * @param id Идентификатор узла.
+         * @return Байты имени.
+         */
+        byte[] name(int id) {
+            return storage != null ? storage.name(id)
+                    : genealogicalTree.findNode(id).getPerson().getName().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Класс, описывающий буферизованную запись примитивов в канал.
+     */
+    private static class ChannelWriter {
+
+        /**
+         * Канал для записи.
+         */
+        private final WritableByteChannel channel;
+
+        /**
+         * Буфер записи.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Инициализация объекта записи.
+         * @param channel Канал для записи.
+         */
+        ChannelWriter(WritableByteChannel channel) {
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Метод записи байта.
+         * @param value Значение.
+         * @throws IOException Возбуждается при ошибке записи.
+         */
+        void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        /**
+         * Метод записи целого числа.
+         * @param value Значение.
+         * @throws IOException Возбуждается при ошибке записи.
+         */
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        /**
+         * Метод записи длинного целого числа.
+         * @param value Значение.
+         * @throws IOException Возбуждается при ошибке записи.
+         */
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        /**
+         * Метод записи массива байт.
+         * @param value Массив байт.
+         * @throws IOException Возбуждается при ошибке записи.
+         */
+        void putBytes(byte[] value) throws IOException {
+            int offset = 0;
+            while (offset < value.length) {
+                ensure(1);
+                int count = Math.min(buffer.remaining(), value.length - offset);
+                buffer.put(value, offset, count);
+                offset += count;
+            }
+        }
+
+        /**
+         * Метод записи выравнивания до 4 байт.
+         * @param length Длина выравниваемых данных.
+         * @throws IOException Возбуждается при ошибке записи.
+         */
+        void pad(int length) throws IOException {
+            for (int i = padding(length); i > 0; i--)
+                putByte((byte) 0);
+        }
+
+        /**
+         * Метод освобождения места в буфере.
+         * @param bytes Необходимое количество байт.
+         * @throws IOException Возбуждается при ошибке записи.
+         */
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+        }
+
+        /**
+         * Метод записи содержимого буфера в канал.
+         * @throws IOException Возбуждается при ошибке записи.
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Класс, описывающий буферизованное чтение примитивов из канала.
+     */
+    private static class ChannelReader {
+
+        /**
+         * Канал для чтения.
+         */
+        private final ReadableByteChannel channel;
+
+        /**
+         * Буфер чтения.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Инициализация объекта чтения.
+         * @param channel Канал для чтения.
+         */
+        ChannelReader(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+        }
+
+        /**
+         * Метод чтения целого числа.
+         * @return Значение.
+         * @throws IOException Возбуждается при ошибке чтения.
+         */
+        int getInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        /**
+         * Метод чтения длинного целого числа.
+         * @return Значение.
+         * @throws IOException Возбуждается при ошибке чтения.
+         */
+        long getLong() throws IOException {
+            ensure(8);
+            return buffer.getLong();
+        }
+
+        /**
+         * Метод чтения массива целых чисел.
+         * @param values Массив для заполнения.
+         * @throws IOException Возбуждается при ошибке чтения.
+         */
+        void getInts(int[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(4);
+                int count = Math.min(buffer.remaining() >> 2, values.length - offset);
+                buffer.asIntBuffer().get(values, offset, count);
+                buffer.position(buffer.position() + (count << 2));
+                offset += count;
+            }
+        }
+
+        /**
+         * Метод чтения массива байт.
+         * @param values Массив для заполнения.
+         * @throws IOException Возбуждается при ошибке чтения.
+         */
+        void getBytes(byte[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(1);
+                int count = Math.min(buffer.remaining(), values.length - offset);
+                buffer.get(values, offset, count);
+                offset += count;
+            }
+        }
+
+        /**
+         * Метод пропуска байт.
+         * @param bytes Количество байт.
+         * @throws IOException Возбуждается при ошибке чтения.
+         */
+        void skip(long bytes) throws IOException {
+            while (bytes > 0) {
+                ensure(1);
+                int count = (int) Math.min(buffer.remaining(), bytes);
+                buffer.position(buffer.position() + count);
+                bytes -= count;
+            }
+        }
+
+        /**
+         * Метод дочитывания буфера до необходимого количества байт.
+         * @param bytes Необходимое количество байт.
+         * @throws IOException Возбуждается при ошибке чтения или преждевременном конце данных.
+         */
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes)
+                return;
+
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0)
+                    throw new IOException("Неожиданный конец файла дерева.");
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package models;
+
+/**
+ * Класс, описывающий результат объединения дубликатов генеалогического дерева.
+ */
+public class GenealogicalTreeMergeResult {
+
+    /**
+     * Дерево без дубликатов.
+     */
+    private final GenealogicalTree genealogicalTree;
+
+    /**
+     * Идентификаторы узлов нового дерева по идентификаторам узлов исходного дерева.
+     */
+    private final int[] newIds;
+
+    /**
+     * Количество объединенных супругов.
+     */
+    private final int mergedSpouses;
+
+    /**
+     * Количество объединенных детей.
+     */
+    private final int mergedChildren;
+
+    /**
+     * Инициализация результата объединения.
+     * @param genealogicalTree Дерево без дубликатов.
+     * @param newIds Идентификаторы узлов нового дерева по идентификаторам узлов исходного дерева.
+     * @param mergedSpouses Количество объединенных супругов.
+     * @param mergedChildren Количество объединенных детей.
+     */
+    GenealogicalTreeMergeResult(GenealogicalTree genealogicalTree, int[] newIds, int mergedSpouses,
+                                int mergedChildren) {
+        this.genealogicalTree = genealogicalTree;
+        this.newIds = newIds;
+        this.mergedSpouses = mergedSpouses;
+        this.mergedChildren = mergedChildren;
+    }
+
+    /**
+     * Метод, возвращающий дерево без дубликатов.
+     * @return Генеалогическое дерево.
+     */
+    public GenealogicalTree getGenealogicalTree() {
+        return genealogicalTree;
+    }
+
+    /**
+     * Метод получения узла нового дерева, в который вошел узел исходного дерева.
+     * @param oldId Идентификатор узла исходного дерева.
+     * @return Узел нового дерева или null, если узла не было в объединяемом снимке исходного дерева.
+     */
+    public GenealogicalTreeNode findNode(int oldId) {
+        if (oldId <= 0 || oldId >= newIds.length)
+            return null;
+
+        return genealogicalTree.findNode(newIds[oldId]);
+    }
+
+    /**
+     * Метод, возвращающий количество объединенных супругов - узлов без родителей, удаленных как дубликаты.
+     * @return Количество супругов.
+     */
+    public int getMergedSpouses() {
+        return mergedSpouses;
+    }
+
+    /**
+     * Метод, возвращающий количество объединенных детей - узлов с родителями, удаленных как дубликаты.
+     * @return Количество детей.
+     */
+    public int getMergedChildren() {
+        return mergedChildren;
+    }
+
+    /**
+     * Метод, возвращающий общее количество удаленных дубликатов.
+     * @return Разница размеров исходного и нового деревьев.
+     */
+    public int getMerged() {
+        return mergedSpouses + mergedChildren;
+    }
+}
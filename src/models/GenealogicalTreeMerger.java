@@ -0,0 +1,410 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Класс, описывающий объединение дубликатов генеалогического дерева.
+ * <p>
+ * При каждом добавлении человека с новым супругом создается новый узел супруга, поэтому повторный ввод
+ * или импорт тех же семей порождает одинаковых супругов, а у каждого из них - одинаковых детей.
+ * Дубликаты находятся по подписи - нормализованному имени, полу и родственным связям:
+ * <ul>
+ *     <li>супруги - люди без родителей, кроме главы дерева, - совпадают, если совпадают имена, пол и хотя бы
+ *     один партнер, с которым у них есть общие дети;</li>
+ *     <li>пары супругов, оба из которых встречаются впервые, совпадают, если совпадают имена и пол обоих
+ *     супругов независимо от порядка и имя и пол хотя бы одного их общего ребенка;</li>
+ *     <li>дети совпадают, если совпадают имена, пол и оба родителя после объединения родителей.</li>
+ * </ul>
+ * Подписи хранятся в хэш-таблице, поэтому дерево обходится один раз в порядке идентификаторов без попарного
+ * сравнения узлов, и время объединения почти линейно. Родители имеют меньшие идентификаторы, чем дети,
+ * поэтому к моменту обработки ребенка его родители уже объединены, а дети объединенных родителей
+ * объединяются по той же подписи.
+ * <p>
+ * Узлы дерева не изменяются после добавления, а снимки, индексы и журналы репозиториев опираются на это,
+ * поэтому результат объединения - новое дерево: дети дубликатов становятся детьми оставшегося узла,
+ * а ссылки на родителей указывают на оставшиеся узлы.
+ */
+public class GenealogicalTreeMerger {
+
+    /**
+     * Метод объединения дубликатов дерева.
+     * @param genealogicalTree Объект генеалогического дерева. Объединяются узлы, зафиксированные к моменту вызова.
+     * @return Результат объединения с новым деревом и соответствием идентификаторов.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public GenealogicalTreeMergeResult merge(GenealogicalTree genealogicalTree) throws IllegalArgumentException {
+        if (genealogicalTree == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        GenealogicalTreeSnapshot snapshot = genealogicalTree.snapshot();
+        Resolution resolution = new Resolution(snapshot.size());
+        for (int id = GenealogicalTree.HEAD_ID + 1; id <= snapshot.size(); id++)
+            resolution.resolve(snapshot.findNode(id));
+        resolution.complete();
+        return build(genealogicalTree, snapshot, resolution);
+    }
+
+    /**
+     * Метод построения нового дерева из оставшихся узлов.
+     * Дети добавляются в порядке исходных идентификаторов, супруг - перед первым ребенком или на своем месте,
+     * если детей у него нет.
+     * @param genealogicalTree Исходное дерево.
+     * @param snapshot Объединяемый снимок исходного дерева.
+     * @param resolution Оставшиеся узлы по идентификаторам.
+     * @return Результат объединения.
+     */
+    private static GenealogicalTreeMergeResult build(GenealogicalTree genealogicalTree,
+                                                     GenealogicalTreeSnapshot snapshot, Resolution resolution) {
+        int size = snapshot.size();
+        StorageMode storageMode = genealogicalTree.isReadOnly() ? StorageMode.objects : genealogicalTree.getStorageMode();
+        GenealogicalTree merged = new GenealogicalTree(genealogicalTree.getName(), snapshot.getHead().getPerson(),
+                storageMode);
+        int[] canonical = resolution.canonical;
+        int[] newIds = new int[size + 1];
+        newIds[GenealogicalTree.HEAD_ID] = GenealogicalTree.HEAD_ID;
+
+        for (int id = GenealogicalTree.HEAD_ID + 1; id <= size; id++) {
+            if (canonical[id] != id || newIds[id] != 0)
+                continue;
+
+            GenealogicalTreeNode node = snapshot.findNode(id);
+            GenealogicalTreeNode father = node.getFather();
+            GenealogicalTreeNode mother = node.getMother();
+            int fatherId = father == null ? 0 : newId(merged, snapshot, newIds, canonical[father.getId()]);
+            int motherId = mother == null ? 0 : newId(merged, snapshot, newIds, canonical[mother.getId()]);
+            newIds[id] = merged.restoreNode(merged.size() + 1, node.getPerson(), fatherId, motherId).getId();
+        }
+
+        for (int id = GenealogicalTree.HEAD_ID + 1; id <= size; id++)
+            newIds[id] = newIds[canonical[id]];
+        return new GenealogicalTreeMergeResult(merged, newIds, resolution.mergedSpouses, resolution.mergedChildren);
+    }
+
+    /**
+     * Метод получения идентификатора оставшегося узла в новом дереве.
+     * Супруг, оставшийся вместо дубликата с меньшим идентификатором, добавляется при первом обращении.
+     * @param merged Новое дерево.
+     * @param snapshot Объединяемый снимок исходного дерева.
+     * @param newIds Идентификаторы нового дерева по исходным идентификаторам.
+     * @param id Исходный идентификатор оставшегося узла.
+     * @return Идентификатор в новом дереве.
+     */
+    private static int newId(GenealogicalTree merged, GenealogicalTreeSnapshot snapshot, int[] newIds, int id) {
+        if (newIds[id] == 0)
+            newIds[id] = merged.restoreNode(merged.size() + 1, snapshot.findNode(id).getPerson(), 0, 0).getId();
+        return newIds[id];
+    }
+
+    /**
+     * Класс, описывающий поиск оставшихся узлов по подписям.
+     */
+    private static final class Resolution {
+
+        /**
+         * Идентификаторы оставшихся узлов по исходным идентификаторам. 0 - супруг, еще не встреченный
+         * как родитель.
+         */
+        final int[] canonical;
+
+        /**
+         * Оставшиеся узлы по подписям.
+         */
+        private final Map<Signature, Integer> signatures;
+
+        /**
+         * Оставшиеся пары супругов, встреченных впервые вместе, по подписям супругов. Пары с одинаковыми
+         * подписями, но без общих детей, хранятся в одном списке.
+         */
+        private final Map<Couple, List<Couple>> couples;
+
+        /**
+         * Количество объединенных супругов.
+         */
+        int mergedSpouses;
+
+        /**
+         * Количество объединенных детей.
+         */
+        int mergedChildren;
+
+        /**
+         * Инициализация поиска.
+         * @param size Размер снимка исходного дерева.
+         */
+        Resolution(int size) {
+            canonical = new int[size + 1];
+            canonical[GenealogicalTree.HEAD_ID] = GenealogicalTree.HEAD_ID;
+            signatures = new HashMap<>(Math.max(16, size / 3 * 4));
+            couples = new HashMap<>();
+        }
+
+        /**
+         * Метод поиска оставшегося узла для узла и его родителей. Супруги определяются при обработке
+         * их детей, так как только через детей видны их партнеры.
+         * @param node Узел.
+         */
+        void resolve(GenealogicalTreeNode node) {
+            GenealogicalTreeNode father = node.getFather();
+            GenealogicalTreeNode mother = node.getMother();
+            if (father == null || mother == null)
+                return;
+
+            if (canonical[father.getId()] == 0 && canonical[mother.getId()] == 0)
+                resolveCouple(father, mother);
+            resolveSpouse(father, canonical[mother.getId()]);
+            resolveSpouse(mother, canonical[father.getId()]);
+            resolveChild(node, canonical[father.getId()], canonical[mother.getId()]);
+        }
+
+        /**
+         * Метод объединения пары супругов, оба из которых встречаются впервые, по подписям обоих супругов.
+         * Такие супруги не имеют других партнеров, по которым их можно было бы объединить поодиночке, поэтому
+         * пары объединяются, только если у них есть ребенок с одинаковыми именем и полом: однофамильцы
+         * из разных ветвей без таких детей остаются разными людьми.
+         * @param father Узел отца.
+         * @param mother Узел матери.
+         */
+        private void resolveCouple(GenealogicalTreeNode father, GenealogicalTreeNode mother) {
+            Couple couple = new Couple(father, mother);
+            List<Couple> candidates = couples.computeIfAbsent(couple, key -> new ArrayList<>(1));
+            for (Couple existing: candidates) {
+                if (!sharesChild(existing, couple))
+                    continue;
+
+                boolean swapped = !existing.first.equals(couple.first);
+                canonical[father.getId()] = swapped ? existing.secondNode.getId() : existing.firstNode.getId();
+                canonical[mother.getId()] = swapped ? existing.firstNode.getId() : existing.secondNode.getId();
+                mergedSpouses += 2;
+                return;
+            }
+
+            candidates.add(couple);
+            canonical[father.getId()] = father.getId();
+            canonical[mother.getId()] = mother.getId();
+        }
+
+        /**
+         * Метод проверки, что у двух пар супругов есть общие дети с одинаковыми именем и полом.
+         * @param existing Оставшаяся пара.
+         * @param couple Проверяемая пара.
+         * @return true, если такой ребенок есть.
+         */
+        private boolean sharesChild(Couple existing, Couple couple) {
+            Set<Signature> children = new HashSet<>();
+            int size = canonical.length - 1;
+            GenealogicalTreeNode parent = existing.firstNode;
+            for (int i = 0; i < parent.childCount(); i++) {
+                GenealogicalTreeNode child = parent.childAt(i);
+                if (child.getId() <= size && existing.isParentOf(child))
+                    children.add(new Signature(child.getPerson(), 0, 0));
+            }
+
+            parent = couple.firstNode;
+            for (int i = 0; i < parent.childCount(); i++) {
+                GenealogicalTreeNode child = parent.childAt(i);
+                if (child.getId() <= size && couple.isParentOf(child)
+                        && children.contains(new Signature(child.getPerson(), 0, 0)))
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Метод завершения поиска: супруги без детей остаются без объединения.
+         */
+        void complete() {
+            for (int id = GenealogicalTree.HEAD_ID + 1; id < canonical.length; id++) {
+                if (canonical[id] == 0)
+                    canonical[id] = id;
+            }
+        }
+
+        /**
+         * Метод объединения ребенка по подписи из имени, пола и оставшихся узлов родителей.
+         * @param node Узел ребенка.
+         * @param father Исходный идентификатор оставшегося узла отца.
+         * @param mother Исходный идентификатор оставшегося узла матери.
+         */
+        private void resolveChild(GenealogicalTreeNode node, int father, int mother) {
+            Person person = node.getPerson();
+            Integer existing = signatures.putIfAbsent(new Signature(person, father, mother), node.getId());
+            canonical[node.getId()] = existing == null ? node.getId() : existing;
+            if (existing != null)
+                mergedChildren++;
+        }
+
+        /**
+         * Метод объединения супруга по подписи из имени, пола и оставшегося узла партнера.
+         * Если супруг уже объединен, подпись с новым партнером указывает на тот же оставшийся узел,
+         * поэтому дубликаты, встреченные с любым из его партнеров, объединяются с ним.
+         * @param spouse Узел родителя.
+         * @param partner Исходный идентификатор оставшегося узла второго родителя.
+         */
+        private void resolveSpouse(GenealogicalTreeNode spouse, int partner) {
+            int id = spouse.getId();
+            if (id == GenealogicalTree.HEAD_ID || spouse.getFather() != null || spouse.getMother() != null)
+                return;
+
+            Signature signature = new Signature(spouse.getPerson(), -partner, 0);
+            if (canonical[id] != 0) {
+                signatures.putIfAbsent(signature, canonical[id]);
+                return;
+            }
+
+            Integer existing = signatures.putIfAbsent(signature, id);
+            canonical[id] = existing == null ? id : existing;
+            if (existing != null)
+                mergedSpouses++;
+        }
+    }
+
+    /**
+     * Класс, описывающий неупорядоченную пару супругов: подписи из имени и пола обоих супругов и их узлы.
+     */
+    private static final class Couple {
+
+        /**
+         * Подпись первого супруга.
+         */
+        final Signature first;
+
+        /**
+         * Подпись второго супруга.
+         */
+        final Signature second;
+
+        /**
+         * Узел первого супруга.
+         */
+        final GenealogicalTreeNode firstNode;
+
+        /**
+         * Узел второго супруга.
+         */
+        final GenealogicalTreeNode secondNode;
+
+        /**
+         * Инициализация пары.
+         * @param first Узел первого супруга.
+         * @param second Узел второго супруга.
+         */
+        Couple(GenealogicalTreeNode first, GenealogicalTreeNode second) {
+            this.first = new Signature(first.getPerson(), 0, 0);
+            this.second = new Signature(second.getPerson(), 0, 0);
+            this.firstNode = first;
+            this.secondNode = second;
+        }
+
+        /**
+         * Метод проверки, что супруги пары - родители узла.
+         * @param child Узел.
+         * @return true, если отец и мать узла - супруги пары.
+         */
+        boolean isParentOf(GenealogicalTreeNode child) {
+            GenealogicalTreeNode father = child.getFather();
+            GenealogicalTreeNode mother = child.getMother();
+            return father != null && mother != null
+                    && (father.getId() == firstNode.getId() && mother.getId() == secondNode.getId()
+                    || father.getId() == secondNode.getId() && mother.getId() == firstNode.getId());
+        }
+
+        /**
+         * Переопределение метода сравнения пар. Порядок супругов не учитывается.
+         * @param obj Объект для сравнения.
+         * @return true, если подписи супругов совпадают.
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Couple couple))
+                return false;
+            return first.equals(couple.first) && second.equals(couple.second)
+                    || first.equals(couple.second) && second.equals(couple.first);
+        }
+
+        /**
+         * Переопределение метода вычисления хэш-кода пары, не зависящего от порядка супругов.
+         * @return Хэш-код.
+         */
+        @Override
+        public int hashCode() {
+            return first.hashCode() + second.hashCode();
+        }
+    }
+
+    /**
+     * Класс, описывающий подпись узла: нормализованное имя, пол и идентификаторы родственников.
+     * Хэш-код вычисляется один раз при создании.
+     */
+    private static final class Signature {
+
+        /**
+         * Нормализованное имя: слова имени в нижнем регистре через пробел.
+         */
+        private final String name;
+
+        /**
+         * Пол.
+         */
+        private final Gender gender;
+
+        /**
+         * Первый родственник: отец для ребенка, партнер со знаком минус для супруга.
+         */
+        private final int first;
+
+        /**
+         * Второй родственник: мать для ребенка, 0 для супруга.
+         */
+        private final int second;
+
+        /**
+         * Хэш-код подписи.
+         */
+        private final int hash;
+
+        /**
+         * Инициализация подписи.
+         * @param person Объект человека.
+         * @param first Первый родственник.
+         * @param second Второй родственник.
+         */
+        Signature(Person person, int first, int second) {
+            this.name = String.join(" ", PersonNameIndex.tokens(person.getName()));
+            this.gender = person.getGender();
+            this.first = first;
+            this.second = second;
+            hash = ((name.hashCode() * 31 + gender.hashCode()) * 31 + first) * 31 + second;
+        }
+
+        /**
+         * Переопределение метода сравнения подписей.
+         * @param obj Объект для сравнения.
+         * @return true, если совпадают все части подписи.
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Signature signature))
+                return false;
+            return hash == signature.hash && first == signature.first && second == signature.second
+                    && gender == signature.gender && name.equals(signature.name);
+        }
+
+        /**
+         * Переопределение метода вычисления хэш-кода подписи.
+         * @return Хэш-код.
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
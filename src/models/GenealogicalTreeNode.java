@@ -1,7 +1,6 @@
 package models;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
 
 /**
  * Класс, описывающий узел генеалогичского дерева.
@@ -9,9 +8,20 @@ import java.util.Set;
 public class GenealogicalTreeNode {
 
     /**
-     * Идетификатор узла.
+     * Пустой массив детей, общий для всех узлов без детей.
      */
-    private final int id;
+    private static final GenealogicalTreeNode[] NO_CHILDREN = new GenealogicalTreeNode[0];
+
+    /**
+     * Емкость списка детей при добавлении первого ребенка.
+     */
+    static final int INITIAL_CHILDREN = 2;
+
+    /**
+     * Идетификатор узла. Узел хранилища объектов может получить его после создания, но до публикации,
+     * после которой идентификатор не изменяется.
+     */
+    private int id;
 
     /**
      * Объект генеалогического дерева, к которому принадлежит узел.
@@ -26,17 +36,38 @@ public class GenealogicalTreeNode {
     /**
      * Узел, хранящий объект отца.
      */
-    private GenealogicalTreeNode father;
+    private final GenealogicalTreeNode father;
 
     /**
      * Узел, хранящий объект матери.
      */
-    private GenealogicalTreeNode mother;
+    private final GenealogicalTreeNode mother;
+
+    /**
+     * Поколение узла: 0, если родители не указаны, иначе на единицу больше поколения старшего из родителей.
+     */
+    private final int generation;
 
     /**
-     * Сэт, хранящий узлы с объектами детей.
+     * Массив, хранящий узлы с объектами детей в порядке добавления.
+     * Заменяется целиком при расширении и публикуется до увеличения счетчика детей,
+     * поэтому чтение детей не требует блокировки.
+     */
+    private volatile GenealogicalTreeNode[] children;
+
+    /**
+     * Количество детей.
+     */
+    private volatile int childCount;
+
+    /**
+     * Инициализация узла-представления, данные которого хранятся вне объекта узла.
+     * @param id Идентификатор узла.
+     * @param genealogicalTree Объект генеалогического дерева, к которому относится узел.
      */
-    private final Set<GenealogicalTreeNode> children;
+    GenealogicalTreeNode(int id, GenealogicalTree genealogicalTree) {
+        this(id, genealogicalTree, null);
+    }
 
     /**
      * Инициализация узла.
@@ -45,10 +76,7 @@ public class GenealogicalTreeNode {
      * @param person Объект человека, хранящийся в узле.
      */
     GenealogicalTreeNode(int id, GenealogicalTree genealogicalTree, Person person) {
-        this.id = id;
-        this.genealogicalTree = genealogicalTree;
-        this.person = person;
-        children = new HashSet<>();
+        this(id, genealogicalTree, person, null, null);
     }
 
     /**
@@ -62,9 +90,26 @@ public class GenealogicalTreeNode {
     GenealogicalTreeNode(int id, GenealogicalTree genealogicalTree, Person person,
                          GenealogicalTreeNode father, GenealogicalTreeNode mother) {
 
-        this(id, genealogicalTree, person);
+        this.id = id;
+        this.genealogicalTree = genealogicalTree;
+        this.person = person;
         this.father = father;
         this.mother = mother;
+        generation = generation(father, mother);
+        children = NO_CHILDREN;
+    }
+
+    /**
+     * Метод вычисления поколения узла по родителям.
+     * @param father Узел отца или null.
+     * @param mother Узел матери или null.
+     * @return 0, если родители не указаны, иначе на единицу больше наибольшего поколения родителей.
+     */
+    static int generation(GenealogicalTreeNode father, GenealogicalTreeNode mother) {
+        if (father == null && mother == null)
+            return 0;
+
+        return Math.max(father == null ? 0 : father.getGeneration(), mother == null ? 0 : mother.getGeneration()) + 1;
     }
 
     /**
@@ -75,6 +120,15 @@ public class GenealogicalTreeNode {
         return id;
     }
 
+    /**
+     * Метод назначения идентификатора узлу, созданному до выдачи идентификатора.
+     * Вызывается хранилищем до публикации узла.
+     * @param id Идентификатор узла.
+     */
+    void assignId(int id) {
+        this.id = id;
+    }
+
     /**
      * Метод, возвращающий объект генеалогического дерева, к которому относится узел.
      * @return Объект генеалогического дерева, к которому относится узел.
@@ -107,24 +161,110 @@ public class GenealogicalTreeNode {
         return mother;
     }
 
+    /**
+     * Метод, возвращающий поколение узла. Поколение вычисляется при добавлении узла и не изменяется.
+     * Люди без родителей - глава дерева и супруги потомков - относятся к поколению 0.
+     * @return 0, если родители не указаны, иначе на единицу больше поколения старшего из родителей.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
     /**
      * Метод добавления объекта ребенка.
+     * Вызывается под блокировкой хранилища или блокировкой родителя в хранилище объектов,
+     * поэтому одновременно добавляет детей узлу один поток.
      * @param child Узел, хранящий объект ребенка.
      */
     void addChild(GenealogicalTreeNode child) {
-        children.add(child);
+        GenealogicalTreeNode[] children = this.children;
+        int count = childCount;
+        if (count == children.length)
+            children = Arrays.copyOf(children, count == 0 ? INITIAL_CHILDREN : count << 1);
+
+        children[count] = child;
+        this.children = children;
+        childCount = count + 1;
     }
 
     /**
-     * Метод, возвращающий массив узлов, хранящих объекты детей.
-     * @return Массив узлов, хранящих объекты детей.
+     * Метод резервирования места в списке детей.
+     * Вызывается под той же блокировкой, что и {@link #addChild(GenealogicalTreeNode)}.
+     * @param additional Количество добавляемых детей.
+     */
+    void reserveChildren(int additional) {
+        GenealogicalTreeNode[] children = this.children;
+        int count = childCount;
+        if (count + additional > children.length)
+            this.children = Arrays.copyOf(children, count + additional);
+    }
+
+    /**
+     * Метод обеспечения места под детей без точного резервирования: при нехватке места список
+     * расширяется вдвое, как при добавлении. Вызывается под той же блокировкой, что и
+     * {@link #addChild(GenealogicalTreeNode)}, чтобы выделить память до публикации ребенка.
+     * @param additional Количество добавляемых детей.
+     */
+    void ensureChildCapacity(int additional) {
+        GenealogicalTreeNode[] children = this.children;
+        int required = childCount + additional;
+        if (required > children.length)
+            this.children = Arrays.copyOf(children,
+                    Math.max(required, children.length == 0 ? INITIAL_CHILDREN : children.length << 1));
+    }
+
+    /**
+     * Метод, возвращающий количество детей.
+     * @return Количество детей.
+     */
+    public int childCount() {
+        return childCount;
+    }
+
+    /**
+     * Метод, возвращающий узел ребенка по порядковому номеру без копирования списка детей.
+     * @param index Порядковый номер ребенка в порядке добавления.
+     * @return Узел, хранящий объект ребенка.
+     * @throws IndexOutOfBoundsException Возбуждается, если номер вне диапазона.
+     */
+    public GenealogicalTreeNode childAt(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= childCount)
+            throw new IndexOutOfBoundsException(index);
+
+        return children[index];
+    }
+
+    /**
+     * Метод, возвращающий копию массива узлов, хранящих объекты детей.
+     * Для обхода без копирования следует использовать {@link #childCount()} и {@link #childAt(int)}.
+     * @return Массив узлов, хранящих объекты детей, в порядке добавления.
      */
     public GenealogicalTreeNode[] getChildren() {
-        GenealogicalTreeNode[] children = new GenealogicalTreeNode[this.children.size()];
-        int i = 0;
-        for (GenealogicalTreeNode node: this.children)
-            children[i++] = node;
-        return children;
+        int count = childCount;
+        return Arrays.copyOf(children, count);
+    }
+
+    /**
+     * Переопределение метода сравнения узлов. Узлы равны, если относятся к одному дереву и имеют один идентификатор.
+     * @param obj Объект для сравнения.
+     * @return Результат сравнения.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof GenealogicalTreeNode node))
+            return false;
+        return id == node.id && genealogicalTree == node.genealogicalTree;
+    }
+
+    /**
+     * Переопределение метода вычисления хэш-кода узла.
+     * @return Хэш-код узла.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(genealogicalTree) + id;
     }
 
     /**
@@ -133,6 +273,6 @@ public class GenealogicalTreeNode {
      */
     @Override
     public String toString() {
-        return person.toString() + '(' + id + ')';
+        return getPerson().toString() + '(' + id + ')';
     }
 }
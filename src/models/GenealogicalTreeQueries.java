@@ -0,0 +1,326 @@
+package models;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Класс, описывающий запросы о предках и потомках узлов генеалогического дерева.
+ * <p>
+ * Множества предков и потомков хранятся битовыми множествами, индексируемыми идентификатором узла,
+ * и кэшируются для последних запрошенных узлов. Родители узла не меняются после добавления, поэтому
+ * множества предков не устаревают. Множество потомков запоминает размер дерева, для которого вычислено:
+ * если с тех пор люди добавлялись, оно дополняется только новыми узлами - родители всегда имеют
+ * меньшие идентификаторы, поэтому узел является потомком, если потомком или исходным узлом является
+ * один из его родителей.
+ */
+public class GenealogicalTreeQueries {
+
+    /**
+     * Количество узлов, множества которых хранятся в кэше.
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    /**
+     * Объект генеалогического дерева.
+     */
+    private final GenealogicalTree genealogicalTree;
+
+    /**
+     * Множества предков по идентификаторам узлов в порядке последнего обращения.
+     */
+    private final Map<Integer, BitSet> ancestors;
+
+    /**
+     * Множества потомков по идентификаторам узлов в порядке последнего обращения.
+     */
+    private final Map<Integer, Closure> descendants;
+
+    /**
+     * Вычисление родства с собственными массивами поиска.
+     */
+    private final KinshipCalculator kinshipCalculator;
+
+    /**
+     * Стек идентификаторов обхода, переиспользуемый между запросами.
+     */
+    private int[] stack = new int[64];
+
+    /**
+     * Инициализация запросов к дереву.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public GenealogicalTreeQueries(GenealogicalTree genealogicalTree) throws IllegalArgumentException {
+        if (genealogicalTree == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        this.genealogicalTree = genealogicalTree;
+        kinshipCalculator = new KinshipCalculator(genealogicalTree);
+        ancestors = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BitSet> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        descendants = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Closure> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Метод получения всех предков узла.
+     * @param node Узел дерева.
+     * @return Идентификаторы предков без самого узла. Возвращается копия, которую можно изменять.
+     * @throws IllegalArgumentException Возбуждается, если узел не инициализирован или не принадлежит дереву.
+     */
+    public BitSet getAncestors(GenealogicalTreeNode node) throws IllegalArgumentException {
+        checkNode(node);
+        synchronized (this) {
+            return (BitSet) ancestors(node).clone();
+        }
+    }
+
+    /**
+     * Метод получения всех потомков узла.
+     * @param node Узел дерева.
+     * @return Идентификаторы потомков без самого узла. Возвращается копия, которую можно изменять.
+     * @throws IllegalArgumentException Возбуждается, если узел не инициализирован или не принадлежит дереву.
+     */
+    public BitSet getDescendants(GenealogicalTreeNode node) throws IllegalArgumentException {
+        checkNode(node);
+        synchronized (this) {
+            return (BitSet) descendants(node).clone();
+        }
+    }
+
+    /**
+     * Метод проверки, является ли один узел предком другого.
+     * @param ancestor Предполагаемый предок.
+     * @param node Узел дерева.
+     * @return true, если ancestor - предок node.
+     * @throws IllegalArgumentException Возбуждается, если узел не инициализирован или не принадлежит дереву.
+     */
+    public boolean isAncestor(GenealogicalTreeNode ancestor, GenealogicalTreeNode node)
+            throws IllegalArgumentException {
+
+        checkNode(ancestor);
+        checkNode(node);
+        if (ancestor.getId() >= node.getId())
+            return false;
+
+        synchronized (this) {
+            return ancestors(node).get(ancestor.getId());
+        }
+    }
+
+    /**
+     * Метод проверки кровного родства: один узел является предком другого или у них есть общий предок.
+     * Супруги, не имеющие общих предков, родственниками не считаются.
+     * @param first Первый узел.
+     * @param second Второй узел.
+     * @return true, если узлы - кровные родственники или один и тот же узел.
+     * @throws IllegalArgumentException Возбуждается, если узел не инициализирован или не принадлежит дереву.
+     */
+    public boolean isRelated(GenealogicalTreeNode first, GenealogicalTreeNode second)
+            throws IllegalArgumentException {
+
+        checkNode(first);
+        checkNode(second);
+        if (first.getId() == second.getId())
+            return true;
+
+        synchronized (this) {
+            BitSet firstAncestors = ancestors(first);
+            BitSet secondAncestors = ancestors(second);
+            return firstAncestors.get(second.getId()) || secondAncestors.get(first.getId())
+                    || firstAncestors.intersects(secondAncestors);
+        }
+    }
+
+    /**
+     * Метод поиска ближайшего общего предка.
+     * Если один узел - предок другого, возвращается он. Общий предок с наибольшим идентификатором
+     * не может быть предком другого общего предка, поэтому он и является ближайшим.
+     * @param first Первый узел.
+     * @param second Второй узел.
+     * @return Ближайший общий предок или null, если узлы не родственники.
+     * @throws IllegalArgumentException Возбуждается, если узел не инициализирован или не принадлежит дереву.
+     */
+    public GenealogicalTreeNode getLowestCommonAncestor(GenealogicalTreeNode first, GenealogicalTreeNode second)
+            throws IllegalArgumentException {
+
+        checkNode(first);
+        checkNode(second);
+        if (first.getId() == second.getId())
+            return first;
+
+        int id;
+        synchronized (this) {
+            BitSet firstAncestors = ancestors(first);
+            BitSet secondAncestors = ancestors(second);
+            if (secondAncestors.get(first.getId()))
+                return first;
+            if (firstAncestors.get(second.getId()))
+                return second;
+
+            BitSet common = (BitSet) firstAncestors.clone();
+            common.and(secondAncestors);
+            id = common.length() - 1;
+        }
+        return id > 0 ? genealogicalTree.findNode(id) : null;
+    }
+
+    /**
+     * Метод вычисления родства второго человека по отношению к первому.
+     * @param first Первый узел.
+     * @param second Второй узел.
+     * @return Родство с путем между узлами или null, если узлы никак не связаны.
+     * @throws IllegalArgumentException Возбуждается, если узел не инициализирован или не принадлежит дереву.
+     * @see KinshipCalculator
+     */
+    public Kinship getKinship(GenealogicalTreeNode first, GenealogicalTreeNode second)
+            throws IllegalArgumentException {
+        return kinshipCalculator.calculate(first, second);
+    }
+
+    /**
+     * Метод получения множества предков из кэша с вычислением при отсутствии.
+     * Вызывается под блокировкой объекта запросов.
+     * @param node Узел дерева.
+     * @return Множество предков из кэша.
+     */
+    private BitSet ancestors(GenealogicalTreeNode node) {
+        BitSet result = ancestors.get(node.getId());
+        if (result != null)
+            return result;
+
+        result = new BitSet(node.getId());
+        int top = 0;
+        stack = push(stack, top++, node.getId());
+        while (top > 0) {
+            GenealogicalTreeNode current = genealogicalTree.findNode(stack[--top]);
+            GenealogicalTreeNode father = current.getFather();
+            GenealogicalTreeNode mother = current.getMother();
+            if (father != null && !result.get(father.getId())) {
+                result.set(father.getId());
+                stack = push(stack, top++, father.getId());
+            }
+            if (mother != null && !result.get(mother.getId())) {
+                result.set(mother.getId());
+                stack = push(stack, top++, mother.getId());
+            }
+        }
+        ancestors.put(node.getId(), result);
+        return result;
+    }
+
+    /**
+     * Метод получения множества потомков из кэша с вычислением или дополнением новыми узлами.
+     * Если дерево выросло больше чем вдвое, множество вычисляется заново обходом детей.
+     * Вызывается под блокировкой объекта запросов.
+     * @param node Узел дерева.
+     * @return Множество потомков из кэша.
+     */
+    private BitSet descendants(GenealogicalTreeNode node) {
+        int size = genealogicalTree.size();
+        Closure closure = descendants.get(node.getId());
+        if (closure != null && size - closure.size > closure.size)
+            closure = null;
+
+        if (closure == null) {
+            closure = new Closure(new BitSet(), size);
+            int top = 0;
+            stack = push(stack, top++, node.getId());
+            while (top > 0) {
+                GenealogicalTreeNode current = genealogicalTree.findNode(stack[--top]);
+                int count = current.childCount();
+                for (int i = 0; i < count; i++) {
+                    int childId = current.childAt(i).getId();
+                    if (childId <= size && !closure.set.get(childId)) {
+                        closure.set.set(childId);
+                        stack = push(stack, top++, childId);
+                    }
+                }
+            }
+            descendants.put(node.getId(), closure);
+        } else if (closure.size < size) {
+            for (int id = closure.size + 1; id <= size; id++) {
+                GenealogicalTreeNode current = genealogicalTree.findNode(id);
+                if (isParentIn(current.getFather(), node, closure.set)
+                        || isParentIn(current.getMother(), node, closure.set))
+                    closure.set.set(id);
+            }
+            closure.size = size;
+        }
+        return closure.set;
+    }
+
+    /**
+     * Метод проверки, что родитель является исходным узлом или его потомком.
+     * @param parent Узел родителя или null.
+     * @param node Исходный узел.
+     * @param set Множество потомков исходного узла.
+     * @return true, если родитель - исходный узел или его потомок.
+     */
+    private static boolean isParentIn(GenealogicalTreeNode parent, GenealogicalTreeNode node, BitSet set) {
+        return parent != null && (parent.getId() == node.getId() || set.get(parent.getId()));
+    }
+
+    /**
+     * Метод добавления идентификатора в стек обхода с увеличением стека при необходимости.
+     * @param stack Стек.
+     * @param top Позиция для записи.
+     * @param id Идентификатор узла.
+     * @return Стек, возможно увеличенный.
+     */
+    private static int[] push(int[] stack, int top, int id) {
+        if (top == stack.length)
+            stack = Arrays.copyOf(stack, top << 1);
+        stack[top] = id;
+        return stack;
+    }
+
+    /**
+     * Метод проверки принадлежности узла дереву.
+     * @param node Узел.
+     * @throws IllegalArgumentException Возбуждается, если узел не инициализирован или не принадлежит дереву.
+     */
+    private void checkNode(GenealogicalTreeNode node) throws IllegalArgumentException {
+        if (node == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        if (node.getGenealogicalTree() != genealogicalTree)
+            throw new IllegalArgumentException("Переданный узел не содержится в этом экземпляре генеалогического дерева.");
+    }
+
+    /**
+     * Класс, описывающий множество потомков и размер дерева, для которого оно вычислено.
+     */
+    private static final class Closure {
+
+        /**
+         * Множество потомков.
+         */
+        final BitSet set;
+
+        /**
+         * Размер дерева при последнем вычислении.
+         */
+        int size;
+
+        /**
+         * Инициализация множества.
+         * @param set Множество потомков.
+         * @param size Размер дерева.
+         */
+        Closure(BitSet set, int size) {
+            this.set = set;
+            this.size = size;
+        }
+    }
+}
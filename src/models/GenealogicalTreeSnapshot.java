@@ -0,0 +1,165 @@
+package models;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Класс, описывающий неизменяемый снимок генеалогического дерева.
+ * <p>
+ * Узлы только добавляются, а их люди и родители не меняются, поэтому снимок - это дерево вместе с количеством
+ * зафиксированных узлов в момент создания. Снимок создается за постоянное время без копирования и блокировок.
+ * Узлы с большими идентификаторами, добавленные позже, и дети, еще не зафиксированные в момент создания,
+ * снимку не видны, поэтому чтение снимка дает одну и ту же картину, пока в дерево продолжают добавляться люди.
+ */
+public class GenealogicalTreeSnapshot {
+
+    /**
+     * Объект генеалогического дерева.
+     */
+    private final GenealogicalTree genealogicalTree;
+
+    /**
+     * Количество узлов снимка, оно же наибольший видимый идентификатор.
+     */
+    private final int size;
+
+    /**
+     * Инициализация снимка.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param size Количество зафиксированных узлов дерева.
+     */
+    GenealogicalTreeSnapshot(GenealogicalTree genealogicalTree, int size) {
+        this.genealogicalTree = genealogicalTree;
+        this.size = size;
+    }
+
+    /**
+     * Метод, возвращающий дерево, снимок которого сделан.
+     * @return Объект генеалогического дерева.
+     */
+    public GenealogicalTree getGenealogicalTree() {
+        return genealogicalTree;
+    }
+
+    /**
+     * Метод, возвращающий количество узлов снимка.
+     * Узлы не изменяются после добавления, поэтому количество узлов служит версией дерева.
+     * @return Количество узлов.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Метод, возвращающий корневой узел дерева.
+     * @return Корневой узел.
+     */
+    public GenealogicalTreeNode getHead() {
+        return genealogicalTree.getHead();
+    }
+
+    /**
+     * Метод получения узла снимка.
+     * @param id Идентификатор узла.
+     * @return Узел или null, если узла нет в снимке.
+     */
+    public GenealogicalTreeNode findNode(int id) {
+        if (id <= 0 || id > size)
+            return null;
+
+        return genealogicalTree.findNode(id);
+    }
+
+    /**
+     * Метод проверки принадлежности узла снимку.
+     * @param node Узел.
+     * @return true, если узел относится к дереву снимка и был зафиксирован в момент создания снимка.
+     */
+    public boolean contains(GenealogicalTreeNode node) {
+        return node != null && node.getGenealogicalTree() == genealogicalTree && node.getId() <= size;
+    }
+
+    /**
+     * Метод, возвращающий количество детей узла в снимке.
+     * @param node Узел снимка.
+     * @return Количество детей.
+     * @throws IllegalArgumentException Возбуждается, если узел не принадлежит снимку.
+     */
+    public int childCount(GenealogicalTreeNode node) throws IllegalArgumentException {
+        checkNode(node);
+        int count = node.childCount();
+        int visible = 0;
+        for (int i = 0; i < count; i++) {
+            if (node.childAt(i).getId() <= size)
+                visible++;
+        }
+        return visible;
+    }
+
+    /**
+     * Метод, возвращающий детей узла в снимке.
+     * @param node Узел снимка.
+     * @return Новый массив детей в порядке добавления.
+     * @throws IllegalArgumentException Возбуждается, если узел не принадлежит снимку.
+     */
+    public GenealogicalTreeNode[] getChildren(GenealogicalTreeNode node) throws IllegalArgumentException {
+        checkNode(node);
+        GenealogicalTreeNode[] children = node.getChildren();
+        int visible = 0;
+        for (GenealogicalTreeNode child : children) {
+            if (child.getId() <= size)
+                children[visible++] = child;
+        }
+        return visible == children.length ? children : Arrays.copyOf(children, visible);
+    }
+
+    /**
+     * Метод, возвращающий наибольшее поколение снимка.
+     * @return Наибольшее поколение узлов снимка, 0 - только люди без родителей.
+     */
+    public int getMaxGeneration() {
+        return genealogicalTree.generations().maxGeneration(size);
+    }
+
+    /**
+     * Метод, возвращающий количество людей поколения в снимке.
+     * @param generation Номер поколения, 0 - люди без родителей.
+     * @return Количество узлов поколения.
+     */
+    public int generationSize(int generation) {
+        return genealogicalTree.generations().count(generation, size);
+    }
+
+    /**
+     * Метод, возвращающий людей поколения в снимке.
+     * @param generation Номер поколения, 0 - люди без родителей.
+     * @return Неизменяемый список узлов поколения в порядке возрастания идентификаторов. Пустой, если поколения нет.
+     */
+    public List<GenealogicalTreeNode> getGeneration(int generation) {
+        return genealogicalTree.generations().nodes(generation, size);
+    }
+
+    /**
+     * Метод создания обхода узлов снимка.
+     * @param root Узел снимка, с которого начинается обход.
+     * @param order Порядок обхода.
+     * @return Объект обхода.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или узел не принадлежит снимку.
+     */
+    public GenealogicalTreeTraversal traversal(GenealogicalTreeNode root, TraversalOrder order)
+            throws IllegalArgumentException {
+
+        checkNode(root);
+        return new GenealogicalTreeTraversal(root, order, size);
+    }
+
+    /**
+     * Метод проверки принадлежности узла снимку.
+     * @param node Узел.
+     * @throws IllegalArgumentException Возбуждается, если узел не принадлежит снимку.
+     */
+    private void checkNode(GenealogicalTreeNode node) throws IllegalArgumentException {
+        if (!contains(node))
+            throw new IllegalArgumentException("Переданный узел не содержится в этом снимке генеалогического дерева.");
+    }
+}
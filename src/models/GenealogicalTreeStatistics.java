@@ -0,0 +1,136 @@
+package models;
+
+import java.util.List;
+
+/**
+ * Класс, описывающий статистику генеалогического дерева.
+ */
+public class GenealogicalTreeStatistics {
+
+    /**
+     * Количество людей.
+     */
+    private final int population;
+
+    /**
+     * Количество супругов - людей без родителей, кроме главы дерева.
+     */
+    private final int spouses;
+
+    /**
+     * Количество мужчин.
+     */
+    private final int males;
+
+    /**
+     * Количество женщин.
+     */
+    private final int females;
+
+    /**
+     * Наибольшая глубина - наибольшее поколение.
+     */
+    private final int maxDepth;
+
+    /**
+     * Количество семей - различных пар родителей.
+     */
+    private final int families;
+
+    /**
+     * Количество детей, у которых указаны родители.
+     */
+    private final int children;
+
+    /**
+     * Самые многодетные семьи.
+     */
+    private final List<Family> largestFamilies;
+
+    /**
+     * Инициализация статистики.
+     * @param population Количество людей.
+     * @param spouses Количество супругов.
+     * @param males Количество мужчин.
+     * @param females Количество женщин.
+     * @param maxDepth Наибольшая глубина.
+     * @param families Количество семей.
+     * @param children Количество детей с указанными родителями.
+     * @param largestFamilies Самые многодетные семьи в порядке убывания количества детей.
+     */
+    GenealogicalTreeStatistics(int population, int spouses, int males, int females, int maxDepth, int families,
+                               int children, List<Family> largestFamilies) {
+        this.population = population;
+        this.spouses = spouses;
+        this.males = males;
+        this.females = females;
+        this.maxDepth = maxDepth;
+        this.families = families;
+        this.children = children;
+        this.largestFamilies = largestFamilies;
+    }
+
+    /**
+     * Метод, возвращающий количество людей. Каждый супруг учитывается один раз.
+     * @return Количество людей.
+     */
+    public int getPopulation() {
+        return population;
+    }
+
+    /**
+     * Метод, возвращающий количество супругов - людей без родителей, кроме главы дерева.
+     * @return Количество супругов.
+     */
+    public int getSpouses() {
+        return spouses;
+    }
+
+    /**
+     * Метод, возвращающий количество мужчин.
+     * @return Количество мужчин.
+     */
+    public int getMales() {
+        return males;
+    }
+
+    /**
+     * Метод, возвращающий количество женщин.
+     * @return Количество женщин.
+     */
+    public int getFemales() {
+        return females;
+    }
+
+    /**
+     * Метод, возвращающий наибольшую глубину дерева.
+     * @return Наибольшее поколение, 0 - только люди без родителей.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Метод, возвращающий количество семей - различных пар родителей, у которых есть общие дети.
+     * @return Количество семей.
+     */
+    public int getFamilies() {
+        return families;
+    }
+
+    /**
+     * Метод, возвращающий среднее количество детей в семье.
+     * @return Среднее количество детей или 0, если семей нет.
+     */
+    public double getAverageChildren() {
+        return families == 0 ? 0 : (double) children / families;
+    }
+
+    /**
+     * Метод, возвращающий самые многодетные семьи.
+     * @return Неизменяемый список семей в порядке убывания количества детей, при равенстве - по идентификатору отца.
+     */
+    public List<Family> getLargestFamilies() {
+        return largestFamilies;
+    }
+}
@@ -0,0 +1,321 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Класс, описывающий обход генеалогического дерева от узла к детям.
+ * Вместо рекурсии используется явный стек (или очередь для обхода в ширину),
+ * поэтому глубина дерева ограничена только размером кучи.
+ */
+public class GenealogicalTreeTraversal {
+
+    /**
+     * Начальная емкость стека.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Порядок обхода.
+     */
+    private final TraversalOrder order;
+
+    /**
+     * Наибольший идентификатор обходимых узлов. Дети с большими идентификаторами пропускаются.
+     */
+    private final int maxId;
+
+    /**
+     * Узлы, ожидающие посещения.
+     */
+    private GenealogicalTreeNode[] nodes;
+
+    /**
+     * Глубины узлов, ожидающих посещения.
+     */
+    private int[] depths;
+
+    /**
+     * Признаки последнего ребенка для узлов, ожидающих посещения.
+     */
+    private boolean[] lasts;
+
+    /**
+     * Индексы следующего ребенка для обратного обхода.
+     */
+    private int[] cursors;
+
+    /**
+     * Начало очереди для обхода в ширину.
+     */
+    private int head;
+
+    /**
+     * Размер стека или конец очереди.
+     */
+    private int size;
+
+    /**
+     * Текущий узел.
+     */
+    private GenealogicalTreeNode node;
+
+    /**
+     * Глубина текущего узла.
+     */
+    private int depth;
+
+    /**
+     * Является ли текущий узел последним в списке детей.
+     */
+    private boolean last;
+
+    /**
+     * Нужно ли обходить детей текущего узла.
+     */
+    private boolean expand;
+
+    /**
+     * Инициализация обхода.
+     * @param root Узел, с которого начинается обход.
+     * @param order Порядок обхода.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public GenealogicalTreeTraversal(GenealogicalTreeNode root, TraversalOrder order) throws IllegalArgumentException {
+        this(root, order, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Инициализация обхода узлов с идентификаторами не больше заданного, например узлов снимка дерева.
+     * @param root Узел, с которого начинается обход.
+     * @param order Порядок обхода.
+     * @param maxId Наибольший идентификатор обходимых узлов.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public GenealogicalTreeTraversal(GenealogicalTreeNode root, TraversalOrder order, int maxId)
+            throws IllegalArgumentException {
+
+        if (root == null || order == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        this.order = order;
+        this.maxId = maxId;
+        nodes = new GenealogicalTreeNode[INITIAL_CAPACITY];
+        depths = new int[INITIAL_CAPACITY];
+        lasts = new boolean[INITIAL_CAPACITY];
+        if (order == TraversalOrder.postOrder)
+            cursors = new int[INITIAL_CAPACITY];
+
+        push(root, 0, true);
+    }
+
+    /**
+     * Метод обхода дерева с посещением каждого узла.
+     * @param root Узел, с которого начинается обход.
+     * @param order Порядок обхода.
+     * @param visitor Объект, посещающий узлы.
+     * @return true, если обход завершен полностью, false, если он был прерван посетителем.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public static boolean traverse(GenealogicalTreeNode root, TraversalOrder order, ITreeVisitor visitor)
+            throws IllegalArgumentException {
+
+        if (visitor == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        GenealogicalTreeTraversal traversal = new GenealogicalTreeTraversal(root, order);
+        while (traversal.next()) {
+            if (!visitor.visit(traversal.node, traversal.depth, traversal.last))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Метод перехода к следующему узлу.
+     * @return true, если следующий узел найден, false, если обход завершен.
+     */
+    public boolean next() {
+        return switch (order) {
+            case preOrder -> nextPreOrder();
+            case postOrder -> nextPostOrder();
+            case breadthFirst -> nextBreadthFirst();
+        };
+    }
+
+    /**
+     * Метод, запрещающий обход детей текущего узла.
+     * Для обратного обхода не действует, так как дети уже посещены.
+     */
+    public void skipChildren() {
+        expand = false;
+    }
+
+    /**
+     * Метод, возвращающий текущий узел.
+     * @return Текущий узел.
+     */
+    public GenealogicalTreeNode getNode() {
+        return node;
+    }
+
+    /**
+     * Метод, возвращающий глубину текущего узла.
+     * @return Глубина текущего узла относительно корня обхода.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Метод, возвращающий признак последнего ребенка для текущего узла.
+     * @return Является ли текущий узел последним в списке детей своего родителя.
+     */
+    public boolean isLast() {
+        return last;
+    }
+
+    /**
+     * Шаг прямого обхода.
+     * @return Результат перехода.
+     */
+    private boolean nextPreOrder() {
+        if (node != null && expand) {
+            int lastIndex = lastChild(node);
+            for (int i = lastIndex; i >= 0; i--) {
+                GenealogicalTreeNode child = node.childAt(i);
+                if (child.getId() <= maxId)
+                    push(child, depth + 1, i == lastIndex);
+            }
+        }
+
+        if (size == 0)
+            return finish();
+
+        size--;
+        return select(size);
+    }
+
+    /**
+     * Шаг обратного обхода.
+     * @return Результат перехода.
+     */
+    private boolean nextPostOrder() {
+        while (size > 0) {
+            int top = size - 1;
+            GenealogicalTreeNode parent = nodes[top];
+            int lastIndex = lastChild(parent);
+            int cursor = cursors[top];
+            if (cursor <= lastIndex) {
+                cursors[top]++;
+                GenealogicalTreeNode child = parent.childAt(cursor);
+                if (child.getId() <= maxId)
+                    push(child, depths[top] + 1, cursor == lastIndex);
+                continue;
+            }
+
+            size--;
+            return select(size);
+        }
+
+        return finish();
+    }
+
+    /**
+     * Шаг обхода в ширину.
+     * @return Результат перехода.
+     */
+    private boolean nextBreadthFirst() {
+        if (node != null && expand) {
+            int lastIndex = lastChild(node);
+            for (int i = 0; i <= lastIndex; i++) {
+                GenealogicalTreeNode child = node.childAt(i);
+                if (child.getId() <= maxId)
+                    push(child, depth + 1, i == lastIndex);
+            }
+        }
+
+        if (head == size)
+            return finish();
+
+        return select(head++);
+    }
+
+    /**
+     * Метод поиска последнего обходимого ребенка.
+     * Дети с идентификаторами не больше наибольшего добавлены до создания снимка, поэтому они всегда
+     * находятся среди первых childCount() детей, сколько бы детей ни добавлялось во время обхода.
+     * @param parent Узел родителя.
+     * @return Порядковый номер последнего ребенка с допустимым идентификатором или -1.
+     */
+    private int lastChild(GenealogicalTreeNode parent) {
+        int index = parent.childCount() - 1;
+        if (maxId != Integer.MAX_VALUE) {
+            while (index >= 0 && parent.childAt(index).getId() > maxId)
+                index--;
+        }
+        return index;
+    }
+
+    /**
+     * Метод, делающий текущим узел из указанной ячейки.
+     * @param index Индекс ячейки.
+     * @return true.
+     */
+    private boolean select(int index) {
+        node = nodes[index];
+        depth = depths[index];
+        last = lasts[index];
+        expand = true;
+        nodes[index] = null;
+        return true;
+    }
+
+    /**
+     * Метод завершения обхода.
+     * @return false.
+     */
+    private boolean finish() {
+        node = null;
+        return false;
+    }
+
+    /**
+     * Метод добавления узла в стек или очередь.
+     * @param child Узел.
+     * @param depth Глубина узла.
+     * @param last Является ли узел последним в списке детей.
+     */
+    private void push(GenealogicalTreeNode child, int depth, boolean last) {
+        if (order == TraversalOrder.breadthFirst && head > 0 && size == nodes.length)
+            compact();
+
+        if (size == nodes.length) {
+            int capacity = nodes.length << 1;
+            nodes = Arrays.copyOf(nodes, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+            lasts = Arrays.copyOf(lasts, capacity);
+            if (cursors != null)
+                cursors = Arrays.copyOf(cursors, capacity);
+        }
+
+        nodes[size] = child;
+        depths[size] = depth;
+        lasts[size] = last;
+        if (cursors != null)
+            cursors[size] = 0;
+        size++;
+    }
+
+    /**
+     * Метод сдвига очереди обхода в ширину к началу массивов.
+     */
+    private void compact() {
+        int count = size - head;
+        System.arraycopy(nodes, head, nodes, 0, count);
+        System.arraycopy(depths, head, depths, 0, count);
+        System.arraycopy(lasts, head, lasts, 0, count);
+        Arrays.fill(nodes, count, size, null);
+        head = 0;
+        size = count;
+    }
+}
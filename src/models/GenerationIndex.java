@@ -0,0 +1,252 @@
+package models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Класс, описывающий списки идентификаторов узлов генеалогического дерева по поколениям.
+ * <p>
+ * Дерево дополняет индекс при фиксации каждого узла, то есть строго в порядке идентификаторов, поэтому
+ * списки отсортированы, а узлы с меньшими идентификаторами, чем граница снимка, находятся двоичным поиском.
+ * Индекс изменяет один поток под блокировкой индекса. Массивы публикуются до увеличения счетчиков,
+ * а записанные ячейки не изменяются, поэтому чтение без блокировки, читающее счетчик раньше массива,
+ * всегда видит заполненные ячейки.
+ * Узлы дерева, открытого только для чтения, индексируются при первом обращении.
+ */
+final class GenerationIndex {
+
+    /**
+     * Начальная емкость массива поколений.
+     */
+    private static final int INITIAL_GENERATIONS = 8;
+
+    /**
+     * Начальная емкость списка идентификаторов поколения.
+     */
+    private static final int INITIAL_IDS = 4;
+
+    /**
+     * Объект генеалогического дерева.
+     */
+    private final GenealogicalTree genealogicalTree;
+
+    /**
+     * Списки идентификаторов по номерам поколений.
+     */
+    private volatile Generation[] generations = new Generation[INITIAL_GENERATIONS];
+
+    /**
+     * Количество поколений, в которых есть узлы.
+     */
+    private volatile int generationCount;
+
+    /**
+     * Наибольший проиндексированный идентификатор узла.
+     */
+    private volatile int indexed;
+
+    /**
+     * Инициализация индекса.
+     * @param genealogicalTree Объект генеалогического дерева.
+     */
+    GenerationIndex(GenealogicalTree genealogicalTree) {
+        this.genealogicalTree = genealogicalTree;
+    }
+
+    /**
+     * Метод индексирования фиксируемого узла.
+     * @param node Узел, все предшественники которого уже зафиксированы.
+     */
+    synchronized void add(GenealogicalTreeNode node) {
+        catchUp(node.getId() - 1);
+        if (node.getId() > indexed)
+            append(node.getId(), node.getGeneration());
+    }
+
+    /**
+     * Метод, возвращающий наибольшее поколение среди узлов с идентификаторами не больше заданного.
+     * @param size Наибольший учитываемый идентификатор.
+     * @return Наибольшее поколение или -1, если таких узлов нет.
+     */
+    int maxGeneration(int size) {
+        ensureIndexed(size);
+        int count = generationCount;
+        Generation[] generations = this.generations;
+        for (int generation = count - 1; generation >= 0; generation--) {
+            if (generations[generation].ids[0] <= size)
+                return generation;
+        }
+        return -1;
+    }
+
+    /**
+     * Метод, возвращающий количество узлов поколения с идентификаторами не больше заданного.
+     * @param generation Номер поколения.
+     * @param size Наибольший учитываемый идентификатор.
+     * @return Количество узлов.
+     */
+    int count(int generation, int size) {
+        ensureIndexed(size);
+        if (generation < 0 || generation >= generationCount)
+            return 0;
+
+        Generation level = generations[generation];
+        int count = level.count;
+        return visible(level.ids, count, size);
+    }
+
+    /**
+     * Метод, возвращающий узлы поколения с идентификаторами не больше заданного.
+     * @param generation Номер поколения.
+     * @param size Наибольший учитываемый идентификатор.
+     * @return Неизменяемый список узлов в порядке возрастания идентификаторов. Узлы берутся из дерева
+     * при обращении, идентификаторы не копируются.
+     */
+    List<GenealogicalTreeNode> nodes(int generation, int size) {
+        ensureIndexed(size);
+        if (generation < 0 || generation >= generationCount)
+            return List.of();
+
+        Generation level = generations[generation];
+        int count = level.count;
+        int[] ids = level.ids;
+        return new NodeList(ids, visible(ids, count, size));
+    }
+
+    /**
+     * Метод индексирования узлов, зафиксированных до создания индекса, например узлов дерева,
+     * открытого только для чтения.
+     * @param size Наибольший идентификатор, который должен быть проиндексирован.
+     */
+    private void ensureIndexed(int size) {
+        if (indexed < size) {
+            synchronized (this) {
+                catchUp(size);
+            }
+        }
+    }
+
+    /**
+     * Метод индексирования узлов с идентификаторами до заданного включительно.
+     * Вызывается под блокировкой индекса.
+     * @param size Наибольший идентификатор.
+     */
+    private void catchUp(int size) {
+        for (int id = indexed + 1; id <= size; id++)
+            append(id, genealogicalTree.findNode(id).getGeneration());
+    }
+
+    /**
+     * Метод добавления идентификатора в список поколения. Вызывается под блокировкой индекса.
+     * @param id Идентификатор узла.
+     * @param generation Поколение узла.
+     */
+    private void append(int id, int generation) {
+        Generation[] generations = this.generations;
+        int count = generationCount;
+        while (generation >= count) {
+            if (count == generations.length)
+                generations = Arrays.copyOf(generations, count << 1);
+            generations[count++] = new Generation();
+        }
+        generations[generation].add(id);
+        this.generations = generations;
+        generationCount = count;
+        indexed = id;
+    }
+
+    /**
+     * Метод подсчета идентификаторов списка, не больших заданного.
+     * @param ids Отсортированные идентификаторы.
+     * @param count Количество идентификаторов.
+     * @param size Наибольший учитываемый идентификатор.
+     * @return Количество идентификаторов.
+     */
+    private static int visible(int[] ids, int count, int size) {
+        if (count == 0 || ids[count - 1] <= size)
+            return count;
+
+        int index = Arrays.binarySearch(ids, 0, count, size);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Класс, описывающий список идентификаторов узлов одного поколения.
+     * Массив заменяется целиком при расширении и публикуется до увеличения счетчика.
+     */
+    private static final class Generation {
+
+        /**
+         * Идентификаторы узлов в порядке возрастания.
+         */
+        volatile int[] ids = new int[INITIAL_IDS];
+
+        /**
+         * Количество идентификаторов.
+         */
+        volatile int count;
+
+        /**
+         * Метод добавления идентификатора. Вызывается под блокировкой индекса.
+         * @param id Идентификатор, больший всех добавленных.
+         */
+        void add(int id) {
+            int[] ids = this.ids;
+            int count = this.count;
+            if (count == ids.length)
+                ids = Arrays.copyOf(ids, count << 1);
+            ids[count] = id;
+            this.ids = ids;
+            this.count = count + 1;
+        }
+    }
+
+    /**
+     * Класс, описывающий неизменяемый список узлов по началу массива идентификаторов.
+     */
+    private final class NodeList extends AbstractList<GenealogicalTreeNode> implements RandomAccess {
+
+        /**
+         * Идентификаторы узлов.
+         */
+        private final int[] ids;
+
+        /**
+         * Количество узлов.
+         */
+        private final int count;
+
+        /**
+         * Инициализация списка.
+         * @param ids Идентификаторы узлов.
+         * @param count Количество узлов.
+         */
+        NodeList(int[] ids, int count) {
+            this.ids = ids;
+            this.count = count;
+        }
+
+        /**
+         * Метод получения узла по порядковому номеру.
+         * @param index Порядковый номер узла.
+         * @return Узел.
+         */
+        @Override
+        public GenealogicalTreeNode get(int index) {
+            Objects.checkIndex(index, count);
+            return genealogicalTree.findNode(ids[index]);
+        }
+
+        /**
+         * Метод, возвращающий количество узлов.
+         * @return Количество узлов.
+         */
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
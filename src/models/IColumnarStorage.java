@@ -0,0 +1,71 @@
+package models;
+
+/**
+ * Хранилище узлов, данные которых хранятся в столбцах, а объекты узлов создаются по запросу.
+ */
+interface IColumnarStorage extends INodeStorage {
+
+    /**
+     * Метод восстановления объекта человека из столбцов.
+     * @param id Идентификатор узла.
+     * @return Объект человека.
+     */
+    Person person(int id);
+
+    /**
+     * Метод, возвращающий пол человека без восстановления объекта.
+     * @param id Идентификатор узла.
+     * @return Пол человека.
+     */
+    Gender gender(int id);
+
+    /**
+     * Метод, возвращающий длину имени человека в кодировке UTF-8.
+     * @param id Идентификатор узла.
+     * @return Длина имени в байтах.
+     */
+    int nameLength(int id);
+
+    /**
+     * Метод, возвращающий имя человека в кодировке UTF-8 без декодирования строки.
+     * @param id Идентификатор узла.
+     * @return Байты имени.
+     */
+    byte[] name(int id);
+
+    /**
+     * Метод, возвращающий идентификатор отца.
+     * @param id Идентификатор узла.
+     * @return Идентификатор отца или 0.
+     */
+    int father(int id);
+
+    /**
+     * Метод, возвращающий идентификатор матери.
+     * @param id Идентификатор узла.
+     * @return Идентификатор матери или 0.
+     */
+    int mother(int id);
+
+    /**
+     * Метод, возвращающий поколение узла.
+     * @param id Идентификатор узла.
+     * @return 0, если родители не указаны, иначе на единицу больше поколения старшего из родителей.
+     */
+    int generation(int id);
+
+    /**
+     * Метод, возвращающий количество детей узла.
+     * @param id Идентификатор узла.
+     * @return Количество детей.
+     */
+    int childCount(int id);
+
+    /**
+     * Метод, возвращающий идентификатор ребенка по порядковому номеру.
+     * @param id Идентификатор узла.
+     * @param index Порядковый номер ребенка.
+     * @return Идентификатор ребенка.
+     */
+    int childAt(int id, int index);
+}
@@ -0,0 +1,37 @@
+package models;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Хранилище узлов, в которое узлы добавляются из нескольких потоков без блокировки хранилища.
+ * Идентификаторы выдает само хранилище из счетчика дерева, и только после выделения всей памяти под
+ * добавляемые узлы, поэтому ошибка добавления не расходует идентификаторов и не оставляет пропуска.
+ */
+interface IConcurrentNodeStorage extends INodeStorage {
+
+    /**
+     * Метод добавления узла со следующим идентификатором.
+     * Проверка параметров выполняется деревом до вызова метода.
+     * @param ids Счетчик идентификаторов: наибольший выданный идентификатор.
+     * @param id Требуемый идентификатор узла или 0, если подходит любой следующий.
+     * @param person Объект человека.
+     * @param father Узел отца или null.
+     * @param mother Узел матери или null.
+     * @return Добавленный узел или null, если требуемый идентификатор не следует за наибольшим выданным.
+     */
+    GenealogicalTreeNode add(AtomicInteger ids, int id, Person person,
+                             GenealogicalTreeNode father, GenealogicalTreeNode mother);
+
+    /**
+     * Метод добавления узлов пакета с блоком идентификаторов, следующим за наибольшим выданным.
+     * Проверка пакета выполняется деревом до вызова метода. Пакет добавляется целиком: если метод
+     * возбуждает исключение, ни один узел пакета не становится видимым и идентификаторы не выдаются.
+     * @param ids Счетчик идентификаторов: наибольший выданный идентификатор.
+     * @param batch Пакет людей.
+     * @param childCounts Количество детей записей пакета.
+     * @param parentIds Отсортированные идентификаторы узлов дерева, указанных родителями, с повторами.
+     * @param parents Количество идентификаторов в parentIds.
+     * @return Идентификатор, предшествующий блоку.
+     */
+    int addAll(AtomicInteger ids, GenealogicalTreeBatch batch, int[] childCounts, int[] parentIds, int parents);
+}
@@ -0,0 +1,16 @@
+package models;
+
+/**
+ * Объект, получающий уведомления об изменении генеалогического дерева.
+ */
+public interface IGenealogicalTreeListener {
+
+    /**
+     * Метод, вызываемый после добавления узла в дерево.
+     * При добавлении человека вместе с новым узлом второго родителя метод вызывается для каждого из узлов.
+     * Уведомления приходят строго в порядке идентификаторов узлов, и следующий узел не фиксируется,
+     * пока метод не вернет управление, поэтому обработчик должен быть коротким.
+     * @param node Добавленный узел.
+     */
+    void nodeAdded(GenealogicalTreeNode node);
+}
@@ -0,0 +1,42 @@
+package models;
+
+/**
+ * Хранилище узлов генеалогического дерева.
+ */
+interface INodeStorage {
+
+    /**
+     * Метод добавления узла.
+     * Проверка параметров выполняется деревом до вызова метода. Хранилища, не реализующие
+     * {@link IConcurrentNodeStorage}, вызываются под блокировкой хранилища.
+     * Если метод возбуждает исключение, например при нехватке памяти, узел не должен стать видимым
+     * ни по идентификатору, ни в списках детей родителей.
+     * @param id Идентификатор нового узла.
+     * @param person Объект человека.
+     * @param father Узел отца или null.
+     * @param mother Узел матери или null.
+     * @return Добавленный узел.
+     */
+    GenealogicalTreeNode add(int id, Person person, GenealogicalTreeNode father, GenealogicalTreeNode mother);
+
+    /**
+     * Метод резервирования места под узлы с идентификаторами до указанного включительно.
+     * Вызывается перед пакетным добавлением узлов.
+     * @param lastId Наибольший идентификатор добавляемых узлов.
+     */
+    void reserve(int lastId);
+
+    /**
+     * Метод резервирования места под детей узла перед пакетным добавлением.
+     * @param parent Узел родителя.
+     * @param additional Количество добавляемых детей.
+     */
+    void reserveChildren(GenealogicalTreeNode parent, int additional);
+
+    /**
+     * Метод получения узла по идентификатору.
+     * @param id Идентификатор узла.
+     * @return Узел или null, если узел с таким идентификатором не хранится.
+     */
+    GenealogicalTreeNode get(int id);
+}
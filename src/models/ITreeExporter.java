@@ -0,0 +1,20 @@
+package models;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Объект, выгружающий генеалогическое дерево в поток в текстовом формате для других программ.
+ */
+public interface ITreeExporter {
+
+    /**
+     * Метод выгрузки генеалогического дерева.
+     * Выгружаются узлы, зафиксированные на момент начала выгрузки. Поток после выгрузки не закрывается.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param out Поток для записи.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    void export(GenealogicalTree genealogicalTree, OutputStream out) throws IllegalArgumentException, IOException;
+}
@@ -0,0 +1,16 @@
+package models;
+
+/**
+ * Объект, посещающий узлы генеалогического дерева при обходе.
+ */
+public interface ITreeVisitor {
+
+    /**
+     * Метод посещения узла.
+     * @param node Посещаемый узел.
+     * @param depth Глубина узла относительно корня обхода.
+     * @param last Является ли узел последним в списке детей своего родителя.
+     * @return true, если обход нужно продолжить, иначе false.
+     */
+    boolean visit(GenealogicalTreeNode node, int depth, boolean last);
+}
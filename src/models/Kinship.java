@@ -0,0 +1,110 @@
+package models;
+
+import java.util.List;
+
+/**
+ * Класс, описывающий родство двух людей: путь между ними и название родства.
+ */
+public class Kinship {
+
+    /**
+     * Узлы пути от первого человека ко второму включительно.
+     */
+    private final List<GenealogicalTreeNode> path;
+
+    /**
+     * Количество шагов от первого человека вверх до общего предка. -1, если родство не кровное.
+     */
+    private final int up;
+
+    /**
+     * Количество шагов от общего предка вниз до второго человека. -1, если родство не кровное.
+     */
+    private final int down;
+
+    /**
+     * Название родства второго человека по отношению к первому.
+     */
+    private final String name;
+
+    /**
+     * Инициализация родства.
+     * @param path Узлы пути от первого человека ко второму.
+     * @param up Шаги вверх до общего предка или -1.
+     * @param down Шаги вниз от общего предка или -1.
+     * @param name Название родства.
+     */
+    Kinship(List<GenealogicalTreeNode> path, int up, int down, String name) {
+        this.path = path;
+        this.up = up;
+        this.down = down;
+        this.name = name;
+    }
+
+    /**
+     * Метод, возвращающий путь между людьми.
+     * @return Неизменяемый список узлов от первого человека ко второму включительно.
+     */
+    public List<GenealogicalTreeNode> getPath() {
+        return path;
+    }
+
+    /**
+     * Метод, возвращающий количество поколений от первого человека до общего предка.
+     * @return Количество шагов вверх или -1, если родство не кровное.
+     */
+    public int getUp() {
+        return up;
+    }
+
+    /**
+     * Метод, возвращающий количество поколений от общего предка до второго человека.
+     * @return Количество шагов вниз или -1, если родство не кровное.
+     */
+    public int getDown() {
+        return down;
+    }
+
+    /**
+     * Метод, возвращающий степень кровного родства - количество рождений между людьми через общего предка.
+     * @return Степень родства или -1, если родство не кровное.
+     */
+    public int getDegree() {
+        return up < 0 ? -1 : up + down;
+    }
+
+    /**
+     * Метод проверки кровного родства.
+     * @return true, если у людей есть общий предок или один из них - предок другого.
+     */
+    public boolean isBlood() {
+        return up >= 0;
+    }
+
+    /**
+     * Метод, возвращающий название родства второго человека по отношению к первому,
+     * например "троюродный брат" или "двоюродная внучатая племянница".
+     * @return Название родства.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Метод получения строкового представления родства.
+     * @return Название родства и путь.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(name);
+        if (isBlood())
+            builder.append(", степень родства ").append(getDegree());
+        builder.append(": ");
+        for (int i = 0; i < path.size(); i++) {
+            if (i > 0)
+                builder.append(" - ");
+            builder.append(path.get(i));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,313 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Класс, описывающий вычисление родства двух людей двунаправленным поиском в ширину.
+ * <p>
+ * Сначала поиск идет только вверх по родителям от обоих людей навстречу друг другу и находит общего предка
+ * с наименьшей суммой поколений - это кровное родство. Если общего предка нет, поиск идет по ребрам
+ * родителей и детей в обе стороны и находит кратчайшую цепочку через браки - свойство.
+ * <p>
+ * Очереди и отметки посещения - примитивные массивы, индексируемые идентификатором узла. Они переиспользуются
+ * между запросами: отметка посещения - номер запроса, поэтому массивы не очищаются. Каждый поиск
+ * расширяет меньший фронт на целый уровень. Поиск свойства останавливается, как только сумма пройденных
+ * уровней достигает длины найденного пути. Поиск кровного родства идет только вверх, и при пересечении
+ * ветвей в родословной ближний общий предок может найтись позже дальнего, поэтому он останавливается,
+ * только когда любой еще не найденный предок оказался бы не ближе найденного.
+ */
+public class KinshipCalculator {
+
+    /**
+     * Основы прилагательных степени двоюродности, начиная с "двоюродный".
+     */
+    private static final String[] COUSIN_STEMS = { "двоюродн", "троюродн", "четвероюродн", "пятиюродн",
+            "шестиюродн", "семиюродн", "восьмиюродн", "девятиюродн", "десятиюродн" };
+
+    /**
+     * Объект генеалогического дерева.
+     */
+    private final GenealogicalTree genealogicalTree;
+
+    /**
+     * Номер текущего поиска.
+     */
+    private int stamp;
+
+    /**
+     * Номера поисков, в которых узел посещен от первого человека и от второго.
+     */
+    private int[] stampFirst = new int[0], stampSecond = new int[0];
+
+    /**
+     * Расстояния до узлов от первого человека и от второго.
+     */
+    private int[] distFirst = new int[0], distSecond = new int[0];
+
+    /**
+     * Предыдущие узлы на пути от первого человека и от второго.
+     */
+    private int[] predFirst = new int[0], predSecond = new int[0];
+
+    /**
+     * Очереди поиска от первого человека и от второго.
+     */
+    private int[] queueFirst = new int[0], queueSecond = new int[0];
+
+    /**
+     * Инициализация вычисления родства.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public KinshipCalculator(GenealogicalTree genealogicalTree) throws IllegalArgumentException {
+        if (genealogicalTree == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        this.genealogicalTree = genealogicalTree;
+    }
+
+    /**
+     * Метод вычисления родства второго человека по отношению к первому.
+     * @param first Узел первого человека.
+     * @param second Узел второго человека.
+     * @return Родство или null, если люди никак не связаны.
+     * @throws IllegalArgumentException Возбуждается, если узел не инициализирован или не принадлежит дереву.
+     */
+    public synchronized Kinship calculate(GenealogicalTreeNode first, GenealogicalTreeNode second)
+            throws IllegalArgumentException {
+
+        if (first == null || second == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        if (first.getGenealogicalTree() != genealogicalTree || second.getGenealogicalTree() != genealogicalTree)
+            throw new IllegalArgumentException("Переданный узел не содержится в этом экземпляре генеалогического дерева.");
+
+        int size = genealogicalTree.size();
+        ensureCapacity(size);
+
+        int meet = search(first.getId(), second.getId(), true, size);
+        if (meet > 0) {
+            int up = distFirst[meet];
+            int down = distSecond[meet];
+            return new Kinship(path(meet), up, down, bloodName(up, down, second.getPerson().getGender()));
+        }
+
+        meet = search(first.getId(), second.getId(), false, size);
+        if (meet == 0)
+            return null;
+
+        List<GenealogicalTreeNode> path = path(meet);
+        boolean spouse = path.size() == 3 && isParent(path.get(1), path.get(0)) && isParent(path.get(1), path.get(2));
+        boolean male = second.getPerson().getGender() == Gender.male;
+        String name = spouse ? (male ? "супруг" : "супруга") : (male ? "свойственник" : "свойственница");
+        return new Kinship(path, -1, -1, name);
+    }
+
+    /**
+     * Метод двунаправленного поиска в ширину.
+     * @param from Идентификатор первого человека.
+     * @param to Идентификатор второго человека.
+     * @param upOnly true - поиск только по родителям, false - по родителям и детям.
+     * @param size Количество узлов дерева, участвующих в поиске.
+     * @return Идентификатор узла встречи на кратчайшем пути или 0, если путь не найден.
+     */
+    private int search(int from, int to, boolean upOnly, int size) {
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stampFirst, 0);
+            Arrays.fill(stampSecond, 0);
+            stamp = 0;
+        }
+        int current = ++stamp;
+        stampFirst[from] = current;
+        distFirst[from] = 0;
+        predFirst[from] = 0;
+        stampSecond[to] = current;
+        distSecond[to] = 0;
+        predSecond[to] = 0;
+        if (from == to)
+            return from;
+
+        queueFirst[0] = from;
+        queueSecond[0] = to;
+        int headFirst = 0, tailFirst = 1, levelFirst = 0;
+        int headSecond = 0, tailSecond = 1, levelSecond = 0;
+        int best = Integer.MAX_VALUE;
+        int meet = 0;
+
+        while (true) {
+            boolean firstEmpty = headFirst == tailFirst;
+            boolean secondEmpty = headSecond == tailSecond;
+            if (firstEmpty && secondEmpty || !upOnly && (firstEmpty || secondEmpty))
+                break;
+            if (upOnly ? lowerBound(firstEmpty, levelFirst, secondEmpty, levelSecond) >= best
+                    : levelFirst + levelSecond >= best)
+                break;
+
+            boolean expandFirst = secondEmpty || !firstEmpty && tailFirst - headFirst <= tailSecond - headSecond;
+            int[] stamps = expandFirst ? stampFirst : stampSecond;
+            int[] dists = expandFirst ? distFirst : distSecond;
+            int[] preds = expandFirst ? predFirst : predSecond;
+            int[] queue = expandFirst ? queueFirst : queueSecond;
+            int[] otherStamps = expandFirst ? stampSecond : stampFirst;
+            int[] otherDists = expandFirst ? distSecond : distFirst;
+            int head = expandFirst ? headFirst : headSecond;
+            int tail = expandFirst ? tailFirst : tailSecond;
+            int levelEnd = tail;
+
+            while (head < levelEnd) {
+                int id = queue[head++];
+                GenealogicalTreeNode node = genealogicalTree.findNode(id);
+                int distance = dists[id] + 1;
+                int neighbours = upOnly ? 2 : 2 + node.childCount();
+                for (int i = 0; i < neighbours; i++) {
+                    GenealogicalTreeNode next = i == 0 ? node.getFather() : i == 1 ? node.getMother() : node.childAt(i - 2);
+                    if (next == null || next.getId() > size || stamps[next.getId()] == current)
+                        continue;
+
+                    int nextId = next.getId();
+                    stamps[nextId] = current;
+                    dists[nextId] = distance;
+                    preds[nextId] = id;
+                    queue[tail++] = nextId;
+                    if (otherStamps[nextId] == current && distance + otherDists[nextId] < best) {
+                        best = distance + otherDists[nextId];
+                        meet = nextId;
+                    }
+                }
+            }
+
+            if (expandFirst) {
+                headFirst = head;
+                tailFirst = tail;
+                levelFirst++;
+            } else {
+                headSecond = head;
+                tailSecond = tail;
+                levelSecond++;
+            }
+        }
+        return meet;
+    }
+
+    /**
+     * Метод оценки снизу длины еще не найденного пути при поиске только по родителям.
+     * Поиск по родителям не может вернуться вниз, поэтому общий предок, не найденный одной стороной,
+     * находится от нее дальше пройденных уровней, а от другой стороны может быть на любом расстоянии,
+     * в том числе уже пройденном. Сумма уровней обеих сторон здесь не оценка: при пересечении
+     * ветвей ближний общий предок может быть еще не найден.
+     * @param firstEmpty Поиск от первого человека исчерпан.
+     * @param levelFirst Пройденные уровни от первого человека.
+     * @param secondEmpty Поиск от второго человека исчерпан.
+     * @param levelSecond Пройденные уровни от второго человека.
+     * @return Наименьшая возможная длина пути через еще не найденного общего предка.
+     */
+    private static int lowerBound(boolean firstEmpty, int levelFirst, boolean secondEmpty, int levelSecond) {
+        if (firstEmpty)
+            return levelSecond + 1;
+        if (secondEmpty)
+            return levelFirst + 1;
+        return Math.min(levelFirst, levelSecond) + 1;
+    }
+
+    /**
+     * Метод восстановления пути через узел встречи.
+     * @param meet Идентификатор узла встречи.
+     * @return Неизменяемый список узлов от первого человека ко второму.
+     */
+    private List<GenealogicalTreeNode> path(int meet) {
+        List<GenealogicalTreeNode> path = new ArrayList<>(distFirst[meet] + distSecond[meet] + 1);
+        for (int id = meet; id != 0; id = predFirst[id])
+            path.add(genealogicalTree.findNode(id));
+        Collections.reverse(path);
+        for (int id = predSecond[meet]; id != 0; id = predSecond[id])
+            path.add(genealogicalTree.findNode(id));
+        return Collections.unmodifiableList(path);
+    }
+
+    /**
+     * Метод проверки, что второй узел - родитель первого.
+     * @param child Узел ребенка.
+     * @param parent Узел предполагаемого родителя.
+     * @return true, если parent - отец или мать child.
+     */
+    private static boolean isParent(GenealogicalTreeNode child, GenealogicalTreeNode parent) {
+        return parent.equals(child.getFather()) || parent.equals(child.getMother());
+    }
+
+    /**
+     * Метод увеличения массивов поиска под размер дерева.
+     * @param size Количество узлов дерева.
+     */
+    private void ensureCapacity(int size) {
+        if (size < stampFirst.length)
+            return;
+
+        int capacity = Math.max(size + 1, stampFirst.length + (stampFirst.length >> 1));
+        stampFirst = Arrays.copyOf(stampFirst, capacity);
+        stampSecond = Arrays.copyOf(stampSecond, capacity);
+        distFirst = new int[capacity];
+        distSecond = new int[capacity];
+        predFirst = new int[capacity];
+        predSecond = new int[capacity];
+        queueFirst = new int[capacity];
+        queueSecond = new int[capacity];
+    }
+
+    /**
+     * Метод получения названия кровного родства.
+     * @param up Количество поколений от первого человека до общего предка.
+     * @param down Количество поколений от общего предка до второго человека.
+     * @param gender Пол второго человека.
+     * @return Название родства второго человека по отношению к первому.
+     */
+    static String bloodName(int up, int down, Gender gender) {
+        boolean male = gender == Gender.male;
+        if (up == 0 && down == 0)
+            return "тот же человек";
+        if (up == 0)
+            return down == 1 ? (male ? "сын" : "дочь") : pra(down - 2) + (male ? "внук" : "внучка");
+        if (down == 0)
+            return up == 1 ? (male ? "отец" : "мать") : pra(up - 2) + (male ? "дед" : "бабушка");
+        if (up == down)
+            return cousin(up - 1, male, male ? "брат" : "сестра");
+
+        if (down > up) {
+            int generations = down - up;
+            String base = generations == 1 ? (male ? "племянник" : "племянница")
+                    : pra(generations - 2) + (male ? "внучатый племянник" : "внучатая племянница");
+            return cousin(up - 1, male, base);
+        }
+
+        int generations = up - down;
+        if (generations == 1)
+            return cousin(down - 1, male, male ? "дядя" : "тётя");
+        return cousin(down, male, pra(generations - 2) + (male ? "дед" : "бабушка"));
+    }
+
+    /**
+     * Метод добавления к названию степени двоюродности.
+     * @param degree 0 - родной, 1 - двоюродный, 2 - троюродный и так далее.
+     * @param male Мужской род.
+     * @param base Название родства.
+     * @return Название со степенью двоюродности.
+     */
+    private static String cousin(int degree, boolean male, String base) {
+        if (degree == 0)
+            return base;
+
+        String stem = degree <= COUSIN_STEMS.length ? COUSIN_STEMS[degree - 1] : (degree + 1) + "-юродн";
+        return stem + (male ? "ый " : "ая ") + base;
+    }
+
+    /**
+     * Метод построения приставки "пра", повторенной несколько раз.
+     * @param count Количество повторов.
+     * @return Приставка.
+     */
+    private static String pra(int count) {
+        return "пра".repeat(count);
+    }
+}
@@ -0,0 +1,349 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Класс, описывающий хранилище узлов, читаемое по запросу из отображенного в память файла
+ * в формате {@link GenealogicalTreeFormat}. Хранилище доступно только для чтения.
+ * Файл отображается сегментами, поэтому его размер не ограничен 2 ГБ.
+ */
+class MappedNodeStorage implements IColumnarStorage {
+
+    /**
+     * Двоичный логарифм размера сегмента отображения.
+     */
+    private static final int SEGMENT_SHIFT = 30;
+
+    /**
+     * Размер сегмента отображения.
+     */
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    /**
+     * Перекрытие соседних сегментов, позволяющее читать числа на границе сегментов из одного сегмента.
+     */
+    private static final int OVERLAP = Long.BYTES;
+
+    /**
+     * Объект генеалогического дерева, к которому относятся узлы.
+     */
+    private final GenealogicalTree genealogicalTree;
+
+    /**
+     * Сегменты отображения файла.
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Количество узлов.
+     */
+    private final int nodeCount;
+
+    /**
+     * Смещение столбца отцов.
+     */
+    private final long fathers;
+
+    /**
+     * Смещение столбца матерей.
+     */
+    private final long mothers;
+
+    /**
+     * Смещение столбца смещений списков детей.
+     */
+    private final long childOffsets;
+
+    /**
+     * Смещение столбца идентификаторов детей.
+     */
+    private final long childIds;
+
+    /**
+     * Смещение столбца концов имен.
+     */
+    private final long nameEnds;
+
+    /**
+     * Смещение столбца пола.
+     */
+    private final long genders;
+
+    /**
+     * Смещение пула имен.
+     */
+    private final long pool;
+
+    /**
+     * Поколения узлов, вычисляемые при первом обращении за один проход по столбцам родителей.
+     */
+    private volatile int[] generations;
+
+    /**
+     * Инициализация хранилища.
+     * @param genealogicalTree Объект генеалогического дерева, к которому относятся узлы.
+     * @param segments Сегменты отображения файла.
+     * @param nodeCount Количество узлов.
+     * @param edgeCount Количество связей родитель-ребенок.
+     * @param nameLength Длина названия дерева в байтах.
+     */
+    private MappedNodeStorage(GenealogicalTree genealogicalTree, MappedByteBuffer[] segments,
+                              int nodeCount, int edgeCount, int nameLength) {
+        this.genealogicalTree = genealogicalTree;
+        this.segments = segments;
+        this.nodeCount = nodeCount;
+        fathers = GenealogicalTreeFormat.HEADER_SIZE + nameLength + GenealogicalTreeFormat.padding(nameLength);
+        mothers = fathers + 4L * (nodeCount + 1);
+        childOffsets = mothers + 4L * (nodeCount + 1);
+        childIds = childOffsets + 4L * (nodeCount + 2);
+        nameEnds = childIds + 4L * edgeCount;
+        genders = nameEnds + 4L * (nodeCount + 1);
+        pool = genders + nodeCount + 1;
+    }
+
+    /**
+     * Метод открытия дерева, отображенного в память. Читается только заголовок файла.
+     * @param channel Канал файла дерева. Может быть закрыт после возврата из метода.
+     * @return Объект генеалогического дерева, доступный только для чтения.
+     * @throws IOException Возбуждается при ошибке отображения или неверном формате файла.
+     */
+    static GenealogicalTree open(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < GenealogicalTreeFormat.HEADER_SIZE)
+            throw new IOException("Неверный формат файла дерева.");
+
+        MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            long length = Math.min(size - start, SEGMENT_SIZE + OVERLAP);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        MappedByteBuffer header = segments[0];
+        if (header.getInt(0) != GenealogicalTreeFormat.MAGIC || header.getInt(4) != GenealogicalTreeFormat.VERSION)
+            throw new IOException("Неверный формат файла дерева.");
+
+        int nodeCount = header.getInt(12);
+        int edgeCount = header.getInt(16);
+        int nameLength = header.getInt(20);
+        long poolLength = header.getLong(24);
+        if (nodeCount <= 0 || edgeCount < 0 || nameLength < 0 || poolLength < 0 || poolLength > Integer.MAX_VALUE)
+            throw new IOException("Неверный формат файла дерева.");
+
+        if (GenealogicalTreeFormat.HEADER_SIZE + (long) nameLength > header.limit())
+            throw new IOException("Неверный формат файла дерева.");
+
+        byte[] name = new byte[nameLength];
+        header.get(GenealogicalTreeFormat.HEADER_SIZE, name);
+
+        MappedNodeStorage[] storage = new MappedNodeStorage[1];
+        GenealogicalTree genealogicalTree = new GenealogicalTree(new String(name, StandardCharsets.UTF_8), nodeCount,
+                tree -> storage[0] = new MappedNodeStorage(tree, segments, nodeCount, edgeCount, nameLength));
+
+        if (storage[0].pool + poolLength != size)
+            throw new IOException("Неверный формат файла дерева.");
+        return genealogicalTree;
+    }
+
+    /**
+     * Метод добавления узла. Не поддерживается.
+     * @throws UnsupportedOperationException Возбуждается всегда.
+     */
+    @Override
+    public GenealogicalTreeNode add(int id, Person person, GenealogicalTreeNode father, GenealogicalTreeNode mother)
+            throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("Дерево доступно только для чтения.");
+    }
+
+    /**
+     * Метод резервирования места под узлы. Хранилище доступно только для чтения.
+     * @param lastId Наибольший идентификатор добавляемых узлов.
+     * @throws UnsupportedOperationException Возбуждается всегда.
+     */
+    @Override
+    public void reserve(int lastId) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("Дерево доступно только для чтения.");
+    }
+
+    /**
+     * Метод резервирования места под детей. Хранилище доступно только для чтения.
+     * @param parent Узел родителя.
+     * @param additional Количество добавляемых детей.
+     * @throws UnsupportedOperationException Возбуждается всегда.
+     */
+    @Override
+    public void reserveChildren(GenealogicalTreeNode parent, int additional) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("Дерево доступно только для чтения.");
+    }
+
+    /**
+     * Метод получения узла по идентификатору.
+     * @param id Идентификатор узла.
+     * @return Легковесное представление узла или null, если узел с таким идентификатором не хранится.
+     */
+    @Override
+    public GenealogicalTreeNode get(int id) {
+        if (id <= 0 || id > nodeCount)
+            return null;
+
+        return new ColumnarTreeNode(id, genealogicalTree, this);
+    }
+
+    /**
+     * Метод чтения объекта человека из файла.
+     * @param id Идентификатор узла.
+     * @return Объект человека.
+     */
+    @Override
+    public Person person(int id) {
+        String name = new String(name(id), StandardCharsets.UTF_8);
+        return getByte(genders + id) == GenealogicalTreeFormat.MALE ? new Male(name) : new Female(name);
+    }
+
+    /**
+     * Метод, возвращающий пол человека без чтения имени.
+     * @param id Идентификатор узла.
+     * @return Пол человека.
+     */
+    @Override
+    public Gender gender(int id) {
+        return getByte(genders + id) == GenealogicalTreeFormat.MALE ? Gender.male : Gender.female;
+    }
+
+    /**
+     * Метод, возвращающий длину имени человека в кодировке UTF-8.
+     * @param id Идентификатор узла.
+     * @return Длина имени в байтах.
+     */
+    @Override
+    public int nameLength(int id) {
+        return getInt(nameEnds + 4L * id) - getInt(nameEnds + 4L * (id - 1));
+    }
+
+    /**
+     * Метод чтения имени человека из пула имен файла.
+     * @param id Идентификатор узла.
+     * @return Байты имени в кодировке UTF-8.
+     */
+    @Override
+    public byte[] name(int id) {
+        int start = getInt(nameEnds + 4L * (id - 1));
+        byte[] name = new byte[getInt(nameEnds + 4L * id) - start];
+        getBytes(pool + start, name);
+        return name;
+    }
+
+    /**
+     * Метод, возвращающий идентификатор отца.
+     * @param id Идентификатор узла.
+     * @return Идентификатор отца или 0.
+     */
+    @Override
+    public int father(int id) {
+        return getInt(fathers + 4L * id);
+    }
+
+    /**
+     * Метод, возвращающий идентификатор матери.
+     * @param id Идентификатор узла.
+     * @return Идентификатор матери или 0.
+     */
+    @Override
+    public int mother(int id) {
+        return getInt(mothers + 4L * id);
+    }
+
+    /**
+     * Метод, возвращающий поколение узла. Поколения не хранятся в файле и вычисляются при первом обращении.
+     * @param id Идентификатор узла.
+     * @return Поколение узла.
+     */
+    @Override
+    public int generation(int id) {
+        int[] generations = this.generations;
+        if (generations == null)
+            generations = computeGenerations();
+        return generations[id];
+    }
+
+    /**
+     * Метод вычисления поколений всех узлов. Родители имеют меньшие идентификаторы, чем дети,
+     * поэтому поколения вычисляются в порядке идентификаторов.
+     * @return Поколения по идентификаторам узлов.
+     */
+    private synchronized int[] computeGenerations() {
+        if (generations != null)
+            return generations;
+
+        int[] values = new int[nodeCount + 1];
+        for (int id = 1; id <= nodeCount; id++) {
+            int father = father(id);
+            int mother = mother(id);
+            if (father != 0 || mother != 0)
+                values[id] = Math.max(values[father], values[mother]) + 1;
+        }
+        generations = values;
+        return values;
+    }
+
+    /**
+     * Метод, возвращающий количество детей узла.
+     * @param id Идентификатор узла.
+     * @return Количество детей.
+     */
+    @Override
+    public int childCount(int id) {
+        return getInt(childOffsets + 4L * (id + 1)) - getInt(childOffsets + 4L * id);
+    }
+
+    /**
+     * Метод, возвращающий идентификатор ребенка по порядковому номеру.
+     * @param id Идентификатор узла.
+     * @param index Порядковый номер ребенка.
+     * @return Идентификатор ребенка.
+     */
+    @Override
+    public int childAt(int id, int index) {
+        return getInt(childIds + 4L * (getInt(childOffsets + 4L * id) + index));
+    }
+
+    /**
+     * Метод чтения байта по смещению в файле.
+     * @param position Смещение.
+     * @return Значение.
+     */
+    private byte getByte(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    /**
+     * Метод чтения целого числа по смещению в файле.
+     * @param position Смещение.
+     * @return Значение.
+     */
+    private int getInt(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getInt((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    /**
+     * Метод чтения массива байт по смещению в файле, в том числе через границу сегментов.
+     * @param position Смещение.
+     * @param values Массив для заполнения.
+     */
+    private void getBytes(long position, byte[] values) {
+        int offset = 0;
+        while (offset < values.length) {
+            MappedByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+            int start = (int) (position & (SEGMENT_SIZE - 1));
+            int count = Math.min(values.length - offset, segment.limit() - start);
+            segment.get(start, values, offset, count);
+            offset += count;
+            position += count;
+        }
+    }
+}
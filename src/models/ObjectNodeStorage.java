@@ -0,0 +1,329 @@
+package models;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Класс, описывающий хранилище, в котором каждый узел является отдельным объектом.
+ * <p>
+ * Узлы добавляются из нескольких потоков без общей блокировки: список детей родителя изменяется под одной
+ * из блокировок, на которые разбиты узлы по идентификатору, поэтому потоки, добавляющие детей разным родителям,
+ * не ждут друг друга. Индекс узлов разбит на блоки фиксированного размера, поэтому его расширение не копирует
+ * уже опубликованные узлы, а чтение узла не требует блокировки.
+ * <p>
+ * Идентификатор выдается из счетчика дерева только после выделения всей памяти под узел, место в списках детей
+ * родителей и блок индекса, поэтому при ошибке выделения идентификатор не расходуется, а узел не появляется
+ * ни в индексе, ни в списках детей родителей. Блокировки родителей держатся до публикации узла в их списках
+ * детей, поэтому дети каждого родителя следуют в порядке идентификаторов.
+ */
+class ObjectNodeStorage implements IConcurrentNodeStorage {
+
+    /**
+     * Двоичный логарифм размера блока индекса.
+     */
+    private static final int CHUNK_SHIFT = 12;
+
+    /**
+     * Размер блока индекса.
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /**
+     * Количество блокировок списков детей: степень двойки, не меньшая учетверенного количества процессоров.
+     */
+    private static final int STRIPES =
+            Integer.highestOneBit(Math.max(16, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+
+    /**
+     * Объект генеалогического дерева, к которому относятся узлы.
+     */
+    private final GenealogicalTree genealogicalTree;
+
+    /**
+     * Блокировки списков детей: список детей узла id изменяется под блокировкой id % STRIPES.
+     */
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    /**
+     * Блоки индекса узлов по идентификатору: узел id хранится в блоке id / CHUNK_SIZE.
+     */
+    private volatile AtomicReferenceArray<GenealogicalTreeNode>[] chunks;
+
+    /**
+     * Инициализация хранилища.
+     * @param genealogicalTree Объект генеалогического дерева, к которому относятся узлы.
+     */
+    ObjectNodeStorage(GenealogicalTree genealogicalTree) {
+        this.genealogicalTree = genealogicalTree;
+        for (int i = 0; i < STRIPES; i++)
+            locks[i] = new ReentrantLock();
+        chunks = newChunks(1);
+        chunks[0] = new AtomicReferenceArray<>(CHUNK_SIZE);
+    }
+
+    /**
+     * Метод добавления узла с заданным идентификатором без изменения счетчика дерева,
+     * например корневого узла при создании дерева.
+     * @param id Идентификатор нового узла.
+     * @param person Объект человека.
+     * @param father Узел отца или null.
+     * @param mother Узел матери или null.
+     * @return Добавленный узел.
+     */
+    @Override
+    public GenealogicalTreeNode add(int id, Person person, GenealogicalTreeNode father, GenealogicalTreeNode mother) {
+        return add(new AtomicInteger(id - 1), id, person, father, mother);
+    }
+
+    /**
+     * Метод добавления узла со следующим идентификатором под блокировками родителей.
+     * @param ids Счетчик идентификаторов: наибольший выданный идентификатор.
+     * @param id Требуемый идентификатор узла или 0, если подходит любой следующий.
+     * @param person Объект человека.
+     * @param father Узел отца или null.
+     * @param mother Узел матери или null.
+     * @return Добавленный узел или null, если требуемый идентификатор не следует за наибольшим выданным.
+     */
+    @Override
+    public GenealogicalTreeNode add(AtomicInteger ids, int id, Person person,
+                                    GenealogicalTreeNode father, GenealogicalTreeNode mother) {
+
+        GenealogicalTreeNode node = new GenealogicalTreeNode(0, genealogicalTree, person, father, mother);
+        int first = father == null ? -1 : stripe(father);
+        int second = mother == null ? -1 : stripe(mother);
+        if (first > second) {
+            int stripe = first;
+            first = second;
+            second = stripe;
+        }
+
+        if (first >= 0)
+            locks[first].lock();
+        try {
+            if (second != first)
+                locks[second].lock();
+            try {
+                if (father != null)
+                    father.ensureChildCapacity(father == mother ? 2 : 1);
+                if (mother != null && mother != father)
+                    mother.ensureChildCapacity(1);
+
+                int next = take(ids, id, 1);
+                if (next == 0)
+                    return null;
+
+                node.assignId(next);
+                chunk(next).set(next & (CHUNK_SIZE - 1), node);
+                if (father != null)
+                    father.addChild(node);
+                if (mother != null)
+                    mother.addChild(node);
+                return node;
+            } finally {
+                if (second != first)
+                    locks[second].unlock();
+            }
+        } finally {
+            if (first >= 0)
+                locks[first].unlock();
+        }
+    }
+
+    /**
+     * Метод добавления узлов пакета. Узлы пакета создаются и связываются между собой до выдачи идентификаторов,
+     * пока они не видны другим потокам, затем под блокировками всех родителей из дерева резервируется место
+     * в их списках детей, выдается блок идентификаторов и узлы публикуются.
+     * @param ids Счетчик идентификаторов: наибольший выданный идентификатор.
+     * @param batch Пакет людей.
+     * @param childCounts Количество детей записей пакета.
+     * @param parentIds Отсортированные идентификаторы узлов дерева, указанных родителями, с повторами.
+     * @param parents Количество идентификаторов в parentIds.
+     * @return Идентификатор, предшествующий блоку.
+     */
+    @Override
+    public int addAll(AtomicInteger ids, GenealogicalTreeBatch batch, int[] childCounts, int[] parentIds, int parents) {
+        int count = batch.size();
+        GenealogicalTreeNode[] nodes = new GenealogicalTreeNode[count];
+        for (int i = 0; i < count; i++) {
+            GenealogicalTreeNode node = new GenealogicalTreeNode(0, genealogicalTree, batch.person(i),
+                    batchNode(nodes, batch.father(i)), batchNode(nodes, batch.mother(i)));
+            if (childCounts[i] > 0)
+                node.reserveChildren(childCounts[i]);
+            nodes[i] = node;
+        }
+        for (int i = 0; i < count; i++) {
+            if (batch.father(i) < 0)
+                nodes[-batch.father(i) - 1].addChild(nodes[i]);
+            if (batch.mother(i) < 0)
+                nodes[-batch.mother(i) - 1].addChild(nodes[i]);
+        }
+
+        boolean[] stripes = new boolean[STRIPES];
+        for (int i = 0; i < parents; i++)
+            stripes[parentIds[i] & (STRIPES - 1)] = true;
+
+        int stripe = 0;
+        try {
+            for (; stripe < STRIPES; stripe++) {
+                if (stripes[stripe])
+                    locks[stripe].lock();
+            }
+
+            int i = 0;
+            while (i < parents) {
+                int j = i + 1;
+                while (j < parents && parentIds[j] == parentIds[i])
+                    j++;
+                get(parentIds[i]).ensureChildCapacity(j - i);
+                i = j;
+            }
+
+            int base = take(ids, 0, count) - 1;
+            for (i = 0; i < count; i++) {
+                int id = base + 1 + i;
+                nodes[i].assignId(id);
+                chunk(id).set(id & (CHUNK_SIZE - 1), nodes[i]);
+            }
+            for (i = 0; i < count; i++) {
+                if (batch.father(i) > 0)
+                    get(batch.father(i)).addChild(nodes[i]);
+                if (batch.mother(i) > 0)
+                    get(batch.mother(i)).addChild(nodes[i]);
+            }
+            return base;
+        } finally {
+            while (--stripe >= 0) {
+                if (stripes[stripe])
+                    locks[stripe].unlock();
+            }
+        }
+    }
+
+    /**
+     * Метод резервирования блоков индекса под узлы с идентификаторами до указанного включительно.
+     * @param lastId Наибольший идентификатор добавляемых узлов.
+     */
+    @Override
+    public void reserve(int lastId) {
+        for (int index = lastId >>> CHUNK_SHIFT; index >= 0; index--) {
+            AtomicReferenceArray<GenealogicalTreeNode>[] chunks = this.chunks;
+            if (index < chunks.length && chunks[index] != null)
+                break;
+            chunk(index << CHUNK_SHIFT);
+        }
+    }
+
+    /**
+     * Метод резервирования места в списке детей узла под блокировкой родителя.
+     * @param parent Узел родителя.
+     * @param additional Количество добавляемых детей.
+     */
+    @Override
+    public void reserveChildren(GenealogicalTreeNode parent, int additional) {
+        ReentrantLock lock = locks[stripe(parent)];
+        lock.lock();
+        try {
+            parent.reserveChildren(additional);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Метод получения узла по идентификатору без блокировки.
+     * @param id Идентификатор узла.
+     * @return Узел или null, если узел с таким идентификатором не хранится.
+     */
+    @Override
+    public GenealogicalTreeNode get(int id) {
+        if (id <= 0)
+            return null;
+
+        AtomicReferenceArray<GenealogicalTreeNode>[] chunks = this.chunks;
+        int index = id >>> CHUNK_SHIFT;
+        if (index >= chunks.length || chunks[index] == null)
+            return null;
+
+        return chunks[index].get(id & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * Метод выдачи блока идентификаторов. Блоки индекса под выдаваемые идентификаторы создаются
+     * до изменения счетчика, поэтому публикация узлов после выдачи не выделяет памяти.
+     * @param ids Счетчик идентификаторов: наибольший выданный идентификатор.
+     * @param id Требуемый первый идентификатор блока или 0, если подходит любой следующий.
+     * @param count Количество идентификаторов блока.
+     * @return Первый идентификатор блока или 0, если требуемый идентификатор не следует за наибольшим выданным.
+     */
+    private int take(AtomicInteger ids, int id, int count) {
+        while (true) {
+            int last = ids.get();
+            if (id != 0 && id != last + 1)
+                return 0;
+
+            reserve(last + count);
+            if (ids.compareAndSet(last, last + count))
+                return last + 1;
+        }
+    }
+
+    /**
+     * Метод получения номера блокировки списка детей узла.
+     * @param parent Узел родителя.
+     * @return Номер блокировки.
+     */
+    private static int stripe(GenealogicalTreeNode parent) {
+        return parent.getId() & (STRIPES - 1);
+    }
+
+    /**
+     * Метод получения узла родителя, указанного в пакете.
+     * @param nodes Созданные узлы пакета.
+     * @param parent Родитель во внутреннем представлении пакета.
+     * @return Узел родителя или null.
+     */
+    private GenealogicalTreeNode batchNode(GenealogicalTreeNode[] nodes, int parent) {
+        if (parent == 0)
+            return null;
+        return parent < 0 ? nodes[-parent - 1] : get(parent);
+    }
+
+    /**
+     * Метод получения блока индекса для идентификатора с созданием недостающих блоков.
+     * @param id Идентификатор узла.
+     * @return Блок индекса.
+     */
+    private AtomicReferenceArray<GenealogicalTreeNode> chunk(int id) {
+        int index = id >>> CHUNK_SHIFT;
+        AtomicReferenceArray<GenealogicalTreeNode>[] chunks = this.chunks;
+        if (index < chunks.length && chunks[index] != null)
+            return chunks[index];
+
+        synchronized (this) {
+            chunks = this.chunks;
+            AtomicReferenceArray<GenealogicalTreeNode> chunk = index < chunks.length ? chunks[index] : null;
+            if (chunk != null)
+                return chunk;
+
+            chunk = new AtomicReferenceArray<>(CHUNK_SIZE);
+            if (index >= chunks.length)
+                chunks = Arrays.copyOf(chunks, Math.max(chunks.length << 1, index + 1));
+            chunks[index] = chunk;
+            this.chunks = chunks;
+            return chunk;
+        }
+    }
+
+    /**
+     * Метод создания массива блоков индекса. Массив параметризованного типа нельзя создать напрямую,
+     * поэтому создается массив с неограниченным параметром и приводится к нужному типу.
+     * @param length Длина массива.
+     * @return Массив без блоков.
+     */
+    @SuppressWarnings("unchecked")
+    private static AtomicReferenceArray<GenealogicalTreeNode>[] newChunks(int length) {
+        return (AtomicReferenceArray<GenealogicalTreeNode>[]) new AtomicReferenceArray<?>[length];
+    }
+}
@@ -0,0 +1,273 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Класс, описывающий индекс узлов генеалогического дерева по словам имен людей.
+ * <p>
+ * Имя разбивается на слова - последовательности букв и цифр, которые приводятся к нижнему регистру,
+ * буква "ё" заменяется на "е". Слова хранятся в отсортированном словаре, каждому слову соответствует
+ * список идентификаторов узлов. Узлы индексируются в порядке идентификаторов, поэтому списки
+ * отсортированы. Поиск по префиксу - диапазон словаря, его стоимость зависит от количества различных
+ * слов и найденных узлов, но не от размера дерева. Если в запросе несколько слов, по индексу ищется
+ * самое длинное, а остальные проверяются по именам найденных узлов.
+ * <p>
+ * Индекс подписывается на изменения дерева и дополняется при каждом добавлении человека.
+ */
+public class PersonNameIndex implements IGenealogicalTreeListener {
+
+    /**
+     * Начальная емкость списка идентификаторов слова.
+     */
+    private static final int INITIAL_POSTINGS = 4;
+
+    /**
+     * Если найденных идентификаторов больше размера дерева, сдвинутого на эту величину, они объединяются
+     * битовым множеством, а не сортировкой.
+     */
+    private static final int DENSE_SHIFT = 4;
+
+    /**
+     * Объект генеалогического дерева.
+     */
+    private final GenealogicalTree genealogicalTree;
+
+    /**
+     * Списки идентификаторов узлов по словам имен.
+     */
+    private final NavigableMap<String, Postings> words = new TreeMap<>();
+
+    /**
+     * Наибольший проиндексированный идентификатор узла.
+     */
+    private int indexed;
+
+    /**
+     * Инициализация индекса: подписка на изменения дерева и индексирование уже добавленных узлов.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public PersonNameIndex(GenealogicalTree genealogicalTree) throws IllegalArgumentException {
+        if (genealogicalTree == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        this.genealogicalTree = genealogicalTree;
+        synchronized (this) {
+            genealogicalTree.addListener(this);
+            catchUp(genealogicalTree.size());
+        }
+    }
+
+    /**
+     * Метод индексирования добавленного узла.
+     * Узлы, зафиксированные до подписки, но не попавшие в начальное индексирование, добавляются перед ним.
+     * @param node Добавленный узел.
+     */
+    @Override
+    public synchronized void nodeAdded(GenealogicalTreeNode node) {
+        catchUp(node.getId() - 1);
+        if (node.getId() > indexed)
+            index(node);
+    }
+
+    /**
+     * Метод поиска людей по имени.
+     * Каждое слово запроса должно быть началом какого-либо слова имени без учета регистра,
+     * например запрос "ив пет" находит "Иван Петров" и "Петра Ивановна".
+     * @param query Запрос.
+     * @return Найденные узлы в порядке возрастания идентификаторов. Пустой запрос ничего не находит.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     */
+    public List<GenealogicalTreeNode> find(String query) throws IllegalArgumentException {
+        return find(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Метод поиска людей по имени с ограничением количества результатов.
+     * @param query Запрос.
+     * @param limit Наибольшее количество найденных узлов.
+     * @return Найденные узлы в порядке возрастания идентификаторов.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или ограничение отрицательно.
+     */
+    public List<GenealogicalTreeNode> find(String query, int limit) throws IllegalArgumentException {
+        if (query == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+        if (limit < 0)
+            throw new IllegalArgumentException("Невалидное ограничение количества результатов.");
+
+        List<String> prefixes = tokens(query);
+        if (prefixes.isEmpty() || limit == 0)
+            return Collections.emptyList();
+
+        prefixes.sort(Comparator.comparingInt(String::length).reversed());
+        int[] candidates;
+        synchronized (this) {
+            candidates = matches(prefixes.get(0));
+        }
+
+        List<GenealogicalTreeNode> nodes = new ArrayList<>(Math.min(candidates.length, limit));
+        for (int i = 0; i < candidates.length && nodes.size() < limit; i++) {
+            GenealogicalTreeNode node = genealogicalTree.findNode(candidates[i]);
+            if (prefixes.size() == 1 || matchesAll(tokens(node.getPerson().getName()), prefixes))
+                nodes.add(node);
+        }
+        return nodes;
+    }
+
+    /**
+     * Метод, возвращающий количество различных слов в индексе.
+     * @return Количество слов.
+     */
+    public synchronized int wordCount() {
+        return words.size();
+    }
+
+    /**
+     * Метод получения идентификаторов узлов, имя которых содержит слово с указанным началом.
+     * Вызывается под блокировкой индекса.
+     * @param prefix Нормализованное начало слова.
+     * @return Отсортированные идентификаторы без повторов.
+     */
+    private int[] matches(String prefix) {
+        Map<String, Postings> range = words.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        Postings first = null;
+        int lists = 0, total = 0;
+        for (Postings postings : range.values()) {
+            if (lists++ == 0)
+                first = postings;
+            total += postings.size;
+        }
+
+        if (lists < 2)
+            return first == null ? new int[0] : Arrays.copyOf(first.ids, first.size);
+
+        if (total > indexed >> DENSE_SHIFT) {
+            BitSet set = new BitSet(indexed + 1);
+            for (Postings postings : range.values())
+                for (int i = 0; i < postings.size; i++)
+                    set.set(postings.ids[i]);
+            return set.stream().toArray();
+        }
+
+        int[] ids = new int[total];
+        int size = 0;
+        for (Postings postings : range.values()) {
+            System.arraycopy(postings.ids, 0, ids, size, postings.size);
+            size += postings.size;
+        }
+        Arrays.sort(ids);
+        int unique = 0;
+        for (int i = 0; i < size; i++)
+            if (unique == 0 || ids[unique - 1] != ids[i])
+                ids[unique++] = ids[i];
+        return unique == size ? ids : Arrays.copyOf(ids, unique);
+    }
+
+    /**
+     * Метод проверки, что для каждого начала слова, кроме первого, найдется слово имени с таким началом.
+     * @param words Нормализованные слова имени.
+     * @param prefixes Нормализованные начала слов запроса.
+     * @return true, если имя подходит под запрос.
+     */
+    private static boolean matchesAll(List<String> words, List<String> prefixes) {
+        for (int i = 1; i < prefixes.size(); i++) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(prefixes.get(i))) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Метод индексирования узлов, идущих за последним проиндексированным.
+     * @param lastId Наибольший идентификатор для индексирования.
+     */
+    private void catchUp(int lastId) {
+        for (int id = indexed + 1; id <= lastId; id++)
+            index(genealogicalTree.findNode(id));
+    }
+
+    /**
+     * Метод добавления узла в списки слов его имени.
+     * @param node Узел дерева.
+     */
+    private void index(GenealogicalTreeNode node) {
+        int id = node.getId();
+        for (String word : tokens(node.getPerson().getName()))
+            words.computeIfAbsent(word, key -> new Postings()).add(id);
+        indexed = id;
+    }
+
+    /**
+     * Метод разбиения строки на нормализованные слова.
+     * @param text Строка.
+     * @return Слова в нижнем регистре с заменой "ё" на "е".
+     */
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>(2);
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean letter = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(normalize(text.substring(start, i)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Метод нормализации слова.
+     * @param word Слово.
+     * @return Слово в нижнем регистре с заменой "ё" на "е".
+     */
+    private static String normalize(String word) {
+        return word.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    /**
+     * Класс, описывающий отсортированный список идентификаторов узлов одного слова.
+     */
+    private static final class Postings {
+
+        /**
+         * Идентификаторы узлов.
+         */
+        int[] ids = new int[INITIAL_POSTINGS];
+
+        /**
+         * Количество идентификаторов.
+         */
+        int size;
+
+        /**
+         * Метод добавления идентификатора. Имя может содержать слово несколько раз, повтор пропускается.
+         * @param id Идентификатор, не меньший последнего добавленного.
+         */
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id)
+                return;
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size << 1);
+            ids[size++] = id;
+        }
+    }
+}
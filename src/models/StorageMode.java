@@ -0,0 +1,22 @@
+package models;
+
+/**
+ * Способ хранения узлов генеалогического дерева.
+ */
+public enum StorageMode {
+
+    /**
+     * Каждый узел хранится отдельным объектом со ссылками на родителей и детей.
+     */
+    objects,
+
+    /**
+     * Узлы хранятся в столбцах примитивных массивов, а объекты узлов создаются по запросу.
+     */
+    columnar,
+
+    /**
+     * Узлы читаются по запросу из отображенного в память файла дерева. Дерево доступно только для чтения.
+     */
+    mapped
+}
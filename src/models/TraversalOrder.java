@@ -0,0 +1,22 @@
+package models;
+
+/**
+ * Порядок обхода генеалогического дерева.
+ */
+public enum TraversalOrder {
+
+    /**
+     * Прямой обход в глубину: узел посещается до своих детей.
+     */
+    preOrder,
+
+    /**
+     * Обратный обход в глубину: узел посещается после всех своих детей.
+     */
+    postOrder,
+
+    /**
+     * Обход в ширину: узлы посещаются по уровням.
+     */
+    breadthFirst
+}
@@ -0,0 +1,218 @@
+package repositories;
+
+import models.GenealogicalTree;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Класс, описывающий репозиторий генеалогических деревьев для одновременной работы многих потоков.
+ * <p>
+ * Состояние репозитория хранится в неизменяемом снимке, который публикуется через volatile-ссылку.
+ * Чтение не требует блокировок и не копирует данные: {@link #getAll()} и {@link #findByName(String)}
+ * возвращают неизменяемые отображения из текущего снимка. Добавление и удаление выполняются под блокировкой
+ * репозитория и публикуют новый снимок, поэтому репозиторий рассчитан на частое чтение и редкие изменения.
+ */
+public class ConcurrentGenealogicalTreeRepository implements IGenealogicalTreeRepository {
+
+    /**
+     * Текущий снимок репозитория.
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * Счетчик идентификаторов деревьев. Изменяется под блокировкой репозитория.
+     */
+    private int idCounter;
+
+    /**
+     * Инициализация объекта репозитория.
+     */
+    public ConcurrentGenealogicalTreeRepository() {
+        snapshot = Snapshot.EMPTY;
+    }
+
+    /**
+     * Метод добавления генеалогического дерева в репозиторий.
+     * @param entity Объект генеалогического дерева.
+     * @return Идентификатор добавленного дерева или -1, если дерево не инициализировано.
+     */
+    @Override
+    public synchronized int add(GenealogicalTree entity) {
+        if (entity == null)
+            return -1;
+
+        int id = idCounter++;
+        snapshot = snapshot.with(id, entity);
+        return id;
+    }
+
+    /**
+     * Метод получения объекта генеалогического дерева из репозитория.
+     * @param id Идентификатор гееалогического дерева.
+     * @return Возвращаемый объект.
+     */
+    @Override
+    public GenealogicalTree get(int id) {
+        return snapshot.trees.get(id);
+    }
+
+    /**
+     * Метод получения всех генеалогических деревьев из репозитория.
+     * @return Неизменяемое отображение генеалогических деревьев по идентификаторам на момент вызова.
+     */
+    @Override
+    public Map<Integer, GenealogicalTree> getAll() {
+        return snapshot.trees;
+    }
+
+    /**
+     * Метод поиска генеалогических деревьев по названию.
+     * @param name Название дерева.
+     * @return Неизменяемое отображение генеалогических деревьев с указанным названием по идентификаторам.
+     */
+    @Override
+    public Map<Integer, GenealogicalTree> findByName(String name) {
+        return snapshot.names.getOrDefault(name, Map.of());
+    }
+
+    /**
+     * Метод сохранения изменений генеалогического дерева.
+     * Репозиторий хранит ссылки на сами объекты, поэтому изменения уже видны.
+     * @param entity Объект генеалогического дерева.
+     */
+    @Override
+    public void update(GenealogicalTree entity) { }
+
+    /**
+     * Метод замены генеалогического дерева другим деревом с тем же идентификатором.
+     * @param id Идентификатор заменяемого дерева.
+     * @param entity Новый объект генеалогического дерева.
+     * @return true, если дерево заменено.
+     */
+    @Override
+    public synchronized boolean replace(int id, GenealogicalTree entity) {
+        if (entity == null || !snapshot.trees.containsKey(id))
+            return false;
+
+        snapshot = snapshot.replaced(id, entity);
+        return true;
+    }
+
+    /**
+     * Метод удаления генеалгического дерева из репозитория.
+     * @param id Идентификатор негеалогического дерева.
+     */
+    @Override
+    public synchronized void remove(int id) {
+        snapshot = snapshot.without(id);
+    }
+
+    /**
+     * Класс, описывающий неизменяемый снимок репозитория.
+     */
+    private static final class Snapshot {
+
+        /**
+         * Пустой снимок.
+         */
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of());
+
+        /**
+         * Деревья по идентификаторам в порядке добавления.
+         */
+        final Map<Integer, GenealogicalTree> trees;
+
+        /**
+         * Деревья по названиям, а внутри названия - по идентификаторам в порядке добавления.
+         */
+        final Map<String, Map<Integer, GenealogicalTree>> names;
+
+        /**
+         * Инициализация снимка.
+         * @param trees Неизменяемое отображение деревьев по идентификаторам.
+         * @param names Неизменяемое отображение деревьев по названиям.
+         */
+        Snapshot(Map<Integer, GenealogicalTree> trees, Map<String, Map<Integer, GenealogicalTree>> names) {
+            this.trees = trees;
+            this.names = names;
+        }
+
+        /**
+         * Метод создания снимка с добавленным деревом.
+         * Копируются отображение по идентификаторам, отображение по названиям и список деревьев с тем же
+         * названием; списки деревьев с другими названиями переиспользуются. Время добавления линейно
+         * по количеству деревьев и названий, что приемлемо при редких изменениях.
+         * @param id Идентификатор дерева.
+         * @param genealogicalTree Объект генеалогического дерева.
+         * @return Новый снимок.
+         */
+        Snapshot with(int id, GenealogicalTree genealogicalTree) {
+            Map<Integer, GenealogicalTree> trees = new LinkedHashMap<>(this.trees);
+            trees.put(id, genealogicalTree);
+
+            Map<Integer, GenealogicalTree> sameName = new LinkedHashMap<>(
+                    this.names.getOrDefault(genealogicalTree.getName(), Map.of()));
+            sameName.put(id, genealogicalTree);
+
+            Map<String, Map<Integer, GenealogicalTree>> names = new HashMap<>(this.names);
+            names.put(genealogicalTree.getName(), Collections.unmodifiableMap(sameName));
+            return new Snapshot(Collections.unmodifiableMap(trees), Collections.unmodifiableMap(names));
+        }
+
+        /**
+         * Метод создания снимка, в котором дерево заменено другим с сохранением места в порядке добавления.
+         * Копируется то же, что и при добавлении.
+         * @param id Идентификатор заменяемого дерева.
+         * @param genealogicalTree Новый объект генеалогического дерева.
+         * @return Новый снимок.
+         */
+        Snapshot replaced(int id, GenealogicalTree genealogicalTree) {
+            String previous = this.trees.get(id).getName();
+            Map<Integer, GenealogicalTree> trees = new LinkedHashMap<>(this.trees);
+            trees.put(id, genealogicalTree);
+
+            Map<String, Map<Integer, GenealogicalTree>> names = new HashMap<>(this.names);
+            Map<Integer, GenealogicalTree> sameName = new LinkedHashMap<>(names.get(previous));
+            if (previous.equals(genealogicalTree.getName())) {
+                sameName.put(id, genealogicalTree);
+            } else {
+                sameName.remove(id);
+                if (sameName.isEmpty())
+                    names.remove(previous);
+                else
+                    names.put(previous, Collections.unmodifiableMap(sameName));
+                sameName = new LinkedHashMap<>(names.getOrDefault(genealogicalTree.getName(), Map.of()));
+                sameName.put(id, genealogicalTree);
+            }
+            names.put(genealogicalTree.getName(), Collections.unmodifiableMap(sameName));
+            return new Snapshot(Collections.unmodifiableMap(trees), Collections.unmodifiableMap(names));
+        }
+
+        /**
+         * Метод создания снимка без указанного дерева. Копируется то же, что и при добавлении.
+         * @param id Идентификатор дерева.
+         * @return Новый снимок или текущий, если дерево не найдено.
+         */
+        Snapshot without(int id) {
+            GenealogicalTree genealogicalTree = this.trees.get(id);
+            if (genealogicalTree == null)
+                return this;
+
+            Map<Integer, GenealogicalTree> trees = new LinkedHashMap<>(this.trees);
+            trees.remove(id);
+
+            Map<Integer, GenealogicalTree> sameName = new LinkedHashMap<>(this.names.get(genealogicalTree.getName()));
+            sameName.remove(id);
+
+            Map<String, Map<Integer, GenealogicalTree>> names = new HashMap<>(this.names);
+            if (sameName.isEmpty())
+                names.remove(genealogicalTree.getName());
+            else
+                names.put(genealogicalTree.getName(), Collections.unmodifiableMap(sameName));
+            return new Snapshot(Collections.unmodifiableMap(trees), Collections.unmodifiableMap(names));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package repositories;
+
+import models.INamed;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Класс, описывающий индекс объектов репозитория по идентификатору и по имени.
+ * @param <T> Тип хранимых объектов.
+ */
+class EntityIndex<T extends INamed> {
+
+    /**
+     * Объекты по идентификаторам в порядке добавления.
+     */
+    private final Map<Integer, T> entities;
+
+    /**
+     * Идентификаторы объектов по именам.
+     */
+    private final Map<String, Set<Integer>> names;
+
+    /**
+     * Инициализация индекса.
+     */
+    EntityIndex() {
+        entities = new LinkedHashMap<>();
+        names = new HashMap<>();
+    }
+
+    /**
+     * Метод добавления объекта.
+     * @param id Идентификатор объекта.
+     * @param entity Объект.
+     */
+    void put(int id, T entity) {
+        entities.put(id, entity);
+        names.computeIfAbsent(entity.getName(), name -> new LinkedHashSet<>()).add(id);
+    }
+
+    /**
+     * Метод получения объекта.
+     * @param id Идентификатор объекта.
+     * @return Объект или null.
+     */
+    T get(int id) {
+        return entities.get(id);
+    }
+
+    /**
+     * Метод получения копии всех объектов.
+     * @return Объекты по идентификаторам в порядке добавления.
+     */
+    Map<Integer, T> getAll() {
+        return new LinkedHashMap<>(entities);
+    }
+
+    /**
+     * Метод поиска объектов по имени.
+     * @param name Имя объекта.
+     * @return Объекты с указанным именем по идентификаторам в порядке добавления.
+     */
+    Map<Integer, T> findByName(String name) {
+        Map<Integer, T> result = new LinkedHashMap<>();
+        for (int id: names.getOrDefault(name, Set.of()))
+            result.put(id, entities.get(id));
+        return result;
+    }
+
+    /**
+     * Метод поиска идентификатора объекта.
+     * @param entity Объект.
+     * @return Идентификатор объекта или -1, если объект не найден.
+     */
+    int idOf(T entity) {
+        for (int id: names.getOrDefault(entity.getName(), Set.of())) {
+            if (entities.get(id) == entity)
+                return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Метод замены объекта с сохранением его места в порядке добавления.
+     * @param id Идентификатор объекта.
+     * @param entity Новый объект.
+     * @return Замененный объект или null, если объект не найден.
+     */
+    T replace(int id, T entity) {
+        T previous = entities.get(id);
+        if (previous == null)
+            return null;
+
+        entities.put(id, entity);
+        if (!previous.getName().equals(entity.getName())) {
+            Set<Integer> ids = names.get(previous.getName());
+            ids.remove(id);
+            if (ids.isEmpty())
+                names.remove(previous.getName());
+            names.computeIfAbsent(entity.getName(), name -> new LinkedHashSet<>()).add(id);
+        }
+        return previous;
+    }
+
+    /**
+     * Метод удаления объекта.
+     * @param id Идентификатор объекта.
+     * @return Удаленный объект или null.
+     */
+    T remove(int id) {
+        T entity = entities.remove(id);
+        if (entity == null)
+            return null;
+
+        Set<Integer> ids = names.get(entity.getName());
+        ids.remove(id);
+        if (ids.isEmpty())
+            names.remove(entity.getName());
+        return entity;
+    }
+}
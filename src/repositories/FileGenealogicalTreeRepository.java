@@ -0,0 +1,312 @@
+package repositories;
+
+import models.GenealogicalTree;
+import models.GenealogicalTreeFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Класс, описывающий репозиторий, сохраняющий генеалогические деревья в файлы каталога.
+ * Каждое дерево хранится в отдельном файле в формате {@link GenealogicalTreeFormat}.
+ * <p>
+ * Файл дерева перезаписывается целиком, поэтому при {@link #update(GenealogicalTree)} дерево сохраняется
+ * не после каждого добавленного человека, а пачками: когда количество несохраненных людей достигает
+ * количества сохраненных (но не меньше {@value #SAVE_BATCH}). Так запись занимает амортизированно
+ * постоянное время на человека. Остальные изменения сохраняются методами {@link #flush()} и {@link #close()},
+ * а при аварийном завершении теряются только люди, добавленные после последнего сохранения.
+ */
+public class FileGenealogicalTreeRepository implements IGenealogicalTreeRepository, Closeable {
+
+    /**
+     * Расширение файлов деревьев.
+     */
+    private static final String EXTENSION = ".gtree";
+
+    /**
+     * Наименьшее количество несохраненных людей, при котором дерево сохраняется при обновлении.
+     */
+    private static final int SAVE_BATCH = 1024;
+
+    /**
+     * Каталог с файлами деревьев.
+     */
+    private final Path directory;
+
+    /**
+     * Имя файла со счетчиком идентификаторов деревьев.
+     */
+    private static final String COUNTER = "id.counter";
+
+    /**
+     * Индекс объектов генеалогических деревьев по идентификаторам и названиям.
+     * Идентификатор дерева совпадает с именем его файла.
+     */
+    private final EntityIndex<GenealogicalTree> genealogicalTrees;
+
+    /**
+     * Количество людей в сохраненных файлах деревьев по идентификаторам деревьев.
+     * Деревья только дополняются, поэтому дерево изменено, если его размер больше сохраненного.
+     */
+    private final Map<Integer, Integer> savedSizes;
+
+    /**
+     * Счетчик идентификаторов деревьев. Сохраняется в каталоге, чтобы идентификаторы удаленных деревьев
+     * не выдавались повторно и после перезапуска.
+     */
+    private int idCounter;
+
+    /**
+     * Инициализация объекта репозитория с загрузкой всех деревьев из каталога.
+     * @param directory Каталог с файлами деревьев. Создается, если не существует.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке чтения каталога или файлов.
+     */
+    public FileGenealogicalTreeRepository(Path directory) throws IllegalArgumentException, IOException {
+        this(directory, false);
+    }
+
+    /**
+     * Инициализация объекта репозитория.
+     * @param directory Каталог с файлами деревьев. Создается, если не существует.
+     * @param mapped Если true, существующие деревья не загружаются целиком, а открываются только для чтения
+     *               с отображением файлов в память.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке чтения каталога или файлов.
+     */
+    public FileGenealogicalTreeRepository(Path directory, boolean mapped) throws IllegalArgumentException, IOException {
+        if (directory == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        this.directory = directory;
+        genealogicalTrees = new EntityIndex<>();
+        savedSizes = new HashMap<>();
+        Files.createDirectories(directory);
+
+        Path counter = directory.resolve(COUNTER);
+        if (Files.exists(counter))
+            idCounter = Integer.parseInt(Files.readString(counter).trim());
+
+        TreeMap<Integer, Path> found = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file: stream) {
+                String name = file.getFileName().toString();
+                try {
+                    found.put(Integer.parseInt(name.substring(0, name.length() - EXTENSION.length())), file);
+                } catch (NumberFormatException ignored) { }
+            }
+        }
+
+        for (var entry: found.entrySet()) {
+            GenealogicalTree genealogicalTree;
+            if (mapped) {
+                genealogicalTree = GenealogicalTreeFormat.open(entry.getValue());
+            } else {
+                try (FileChannel channel = FileChannel.open(entry.getValue(), StandardOpenOption.READ)) {
+                    genealogicalTree = GenealogicalTreeFormat.read(channel);
+                }
+            }
+            genealogicalTrees.put(entry.getKey(), genealogicalTree);
+            savedSizes.put(entry.getKey(), genealogicalTree.size());
+            idCounter = Math.max(idCounter, entry.getKey() + 1);
+        }
+    }
+
+    /**
+     * Метод добавления генеалогического дерева в репозиторий с записью в новый файл.
+     * @param entity Объект генеалогического дерева.
+     * @return Идентификатор добавленного дерева или -1, если дерево не инициализировано.
+     * @throws UncheckedIOException Возбуждается при ошибке записи файла.
+     */
+    @Override
+    public int add(GenealogicalTree entity) throws UncheckedIOException {
+        if (entity == null)
+            return -1;
+
+        int id = idCounter++;
+        byte[] counter = Integer.toString(idCounter).getBytes(StandardCharsets.UTF_8);
+        write(directory.resolve(COUNTER), channel -> channel.write(ByteBuffer.wrap(counter)));
+        save(id, entity);
+        genealogicalTrees.put(id, entity);
+        return id;
+    }
+
+    /**
+     * Метод получения объекта генеалогического дерева из репозитория.
+     * @param id Идентификатор гееалогического дерева.
+     * @return Возвращаемый объект.
+     */
+    @Override
+    public GenealogicalTree get(int id) {
+        return genealogicalTrees.get(id);
+    }
+
+    /**
+     * Метод получения всех генеалогических деревьев из репозитория.
+     * @return Генеалогические деревья по идентификаторам.
+     */
+    @Override
+    public Map<Integer, GenealogicalTree> getAll() {
+        return genealogicalTrees.getAll();
+    }
+
+    /**
+     * Метод поиска генеалогических деревьев по названию.
+     * @param name Название дерева.
+     * @return Генеалогические деревья с указанным названием по идентификаторам.
+     */
+    @Override
+    public Map<Integer, GenealogicalTree> findByName(String name) {
+        return genealogicalTrees.findByName(name);
+    }
+
+    /**
+     * Метод обновления измененного генеалогического дерева. Файл дерева перезаписывается, только если
+     * количество несохраненных людей достигло количества сохраненных, но не меньше {@value #SAVE_BATCH},
+     * остальные изменения записываются методом {@link #flush()}.
+     * @param entity Объект генеалогического дерева.
+     * @throws UncheckedIOException Возбуждается при ошибке записи файла.
+     */
+    @Override
+    public void update(GenealogicalTree entity) throws UncheckedIOException {
+        if (entity == null)
+            return;
+
+        int id = genealogicalTrees.idOf(entity);
+        if (id < 0)
+            return;
+
+        int saved = savedSizes.getOrDefault(id, 0);
+        if (entity.size() - saved >= Math.max(saved, SAVE_BATCH))
+            save(id, entity);
+    }
+
+    /**
+     * Метод сохранения всех деревьев, измененных после последней записи их файлов.
+     * @throws UncheckedIOException Возбуждается при ошибке записи файла.
+     */
+    public void flush() throws UncheckedIOException {
+        for (var entry: genealogicalTrees.getAll().entrySet()) {
+            if (entry.getValue().size() != savedSizes.getOrDefault(entry.getKey(), 0))
+                save(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Метод закрытия репозитория с сохранением несохраненных изменений.
+     * @throws IOException Возбуждается при ошибке записи файла.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Метод замены генеалогического дерева другим деревом с тем же идентификатором.
+     * Файл дерева перезаписывается атомарно.
+     * @param id Идентификатор заменяемого дерева.
+     * @param entity Новый объект генеалогического дерева.
+     * @return true, если дерево заменено.
+     * @throws UncheckedIOException Возбуждается при ошибке записи файла.
+     */
+    @Override
+    public boolean replace(int id, GenealogicalTree entity) throws UncheckedIOException {
+        if (entity == null || genealogicalTrees.get(id) == null)
+            return false;
+
+        save(id, entity);
+        genealogicalTrees.replace(id, entity);
+        return true;
+    }
+
+    /**
+     * Метод удаления генеалгического дерева из репозитория вместе с его файлом.
+     * @param id Идентификатор негеалогического дерева.
+     * @throws UncheckedIOException Возбуждается при ошибке удаления файла.
+     */
+    @Override
+    public void remove(int id) throws UncheckedIOException {
+        if (genealogicalTrees.remove(id) == null)
+            return;
+
+        savedSizes.remove(id);
+
+        try {
+            Files.deleteIfExists(file(id));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Метод, возвращающий путь к файлу дерева.
+     * @param id Идентификатор дерева.
+     * @return Путь к файлу дерева.
+     */
+    private Path file(int id) {
+        return directory.resolve(id + EXTENSION);
+    }
+
+    /**
+     * Метод сохранения дерева в его файл.
+     * @param id Идентификатор дерева.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @throws UncheckedIOException Возбуждается при ошибке записи файла.
+     */
+    private void save(int id, GenealogicalTree genealogicalTree) throws UncheckedIOException {
+        int size = genealogicalTree.size();
+        write(file(id), channel -> GenealogicalTreeFormat.write(genealogicalTree, channel));
+        savedSizes.put(id, size);
+    }
+
+    /**
+     * Метод записи во временный файл с последующей атомарной заменой основного файла,
+     * поэтому при сбое основной файл остается в прежнем состоянии.
+     * @param file Основной файл.
+     * @param content Запись содержимого в канал временного файла.
+     * @throws UncheckedIOException Возбуждается при ошибке записи файла.
+     */
+    private static void write(Path file, FileContent content) throws UncheckedIOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                content.write(channel);
+                channel.force(false);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Интерфейс записи содержимого файла в канал.
+     */
+    @FunctionalInterface
+    private interface FileContent {
+
+        /**
+         * Метод записи содержимого.
+         * @param channel Канал файла.
+         * @throws IOException Возбуждается при ошибке записи.
+         */
+        void write(FileChannel channel) throws IOException;
+    }
+}
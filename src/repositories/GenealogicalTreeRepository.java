@@ -2,8 +2,7 @@ package repositories;
 
 import models.GenealogicalTree;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 
 /**
  * Класс, описывающий репозиторий для хранения объектов генеалогических деревьев.
@@ -11,27 +10,35 @@ import java.util.List;
 public class GenealogicalTreeRepository implements IGenealogicalTreeRepository {
 
     /**
-     * Список для хранения объектов генеалогических деревьев.
+     * Индекс объектов генеалогических деревьев по идентификаторам и названиям.
      */
-    private List<GenealogicalTree> genealogicalTrees;
+    private final EntityIndex<GenealogicalTree> genealogicalTrees;
+
+    /**
+     * Счетчик идентификаторов деревьев.
+     */
+    private int idCounter;
 
     /**
      * Инициализация объекта репозитория.
      */
     public GenealogicalTreeRepository() {
-        genealogicalTrees = new ArrayList<>();
+        genealogicalTrees = new EntityIndex<>();
     }
 
     /**
      * Метод добавления генеалогического дерева в репозиторий.
      * @param entity Объект генеалогического дерева.
+     * @return Идентификатор добавленного дерева или -1, если дерево не инициализировано.
      */
     @Override
-    public void add(GenealogicalTree entity) {
+    public int add(GenealogicalTree entity) {
         if (entity == null)
-            return;
+            return -1;
 
-        genealogicalTrees.add(entity);
+        int id = idCounter++;
+        genealogicalTrees.put(id, entity);
+        return id;
     }
 
     /**
@@ -41,19 +48,45 @@ public class GenealogicalTreeRepository implements IGenealogicalTreeRepository {
      */
     @Override
     public GenealogicalTree get(int id) {
-        if (id < 0 || id >= genealogicalTrees.size())
-            return null;
-
         return genealogicalTrees.get(id);
     }
 
     /**
-     * Метод получения списка всех генеалогических деревьев из репозитория.
-     * @return Список всех генеалогических деревьев.
+     * Метод получения всех генеалогических деревьев из репозитория.
+     * @return Генеалогические деревья по идентификаторам.
+     */
+    @Override
+    public Map<Integer, GenealogicalTree> getAll() {
+        return genealogicalTrees.getAll();
+    }
+
+    /**
+     * Метод поиска генеалогических деревьев по названию.
+     * @param name Название дерева.
+     * @return Генеалогические деревья с указанным названием по идентификаторам.
+     */
+    @Override
+    public Map<Integer, GenealogicalTree> findByName(String name) {
+        return genealogicalTrees.findByName(name);
+    }
+
+    /**
+     * Метод сохранения изменений генеалогического дерева.
+     * Репозиторий хранит ссылки на сами объекты, поэтому изменения уже видны.
+     * @param entity Объект генеалогического дерева.
+     */
+    @Override
+    public void update(GenealogicalTree entity) { }
+
+    /**
+     * Метод замены генеалогического дерева другим деревом с тем же идентификатором.
+     * @param id Идентификатор заменяемого дерева.
+     * @param entity Новый объект генеалогического дерева.
+     * @return true, если дерево заменено.
      */
     @Override
-    public List<GenealogicalTree> getAll() {
-        return new ArrayList<>(genealogicalTrees);
+    public boolean replace(int id, GenealogicalTree entity) {
+        return entity != null && genealogicalTrees.replace(id, entity) != null;
     }
 
     /**
@@ -62,9 +95,6 @@ public class GenealogicalTreeRepository implements IGenealogicalTreeRepository {
      */
     @Override
     public void remove(int id) {
-        if (id < 0 || id >= genealogicalTrees.size())
-            return;
-
         genealogicalTrees.remove(id);
     }
 }
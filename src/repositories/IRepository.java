@@ -1,31 +1,56 @@
 package repositories;
 
-import java.util.List;
+import models.INamed;
+
+import java.util.Map;
 
 /**
  * Репозиторий.
+ * Каждому объекту при добавлении выдается идентификатор, который не меняется и не выдается повторно.
  * @param <T> Тип хранимых объектов.
  */
-public interface IRepository<T> {
+public interface IRepository<T extends INamed> {
 
     /**
      * Метод добавления объекта в репозиторий.
      * @param entity Объект для добавления.
+     * @return Идентификатор добавленного объекта или -1, если объект не инициализирован.
      */
-    void add(T entity);
+    int add(T entity);
 
     /**
      * Метод получения объекта из репозитория.
-     * @param id Идентификатор репозитория.
-     * @return Возвращаемый объект.
+     * @param id Идентификатор объекта.
+     * @return Возвращаемый объект или null, если объект не найден.
      */
     T get(int id);
 
     /**
-     * Метод получения списка всех объектов из репозитория.
-     * @return Список всех объектов.
+     * Метод получения всех объектов из репозитория.
+     * @return Объекты по идентификаторам в порядке добавления.
+     */
+    Map<Integer, T> getAll();
+
+    /**
+     * Метод поиска объектов по имени.
+     * @param name Имя объекта.
+     * @return Объекты с указанным именем по идентификаторам в порядке добавления.
+     */
+    Map<Integer, T> findByName(String name);
+
+    /**
+     * Метод сохранения изменений объекта, уже находящегося в репозитории.
+     * @param entity Измененный объект.
+     */
+    void update(T entity);
+
+    /**
+     * Метод замены объекта, находящегося в репозитории, другим объектом с тем же идентификатором.
+     * @param id Идентификатор заменяемого объекта.
+     * @param entity Новый объект.
+     * @return true, если объект заменен; false, если объект не найден или новый объект не инициализирован.
      */
-    List<T> getAll();
+    boolean replace(int id, T entity);
 
     /**
      * Метод удаления объекта из репозитория.
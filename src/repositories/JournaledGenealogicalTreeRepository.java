@@ -0,0 +1,964 @@
+package repositories;
+
+import models.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Класс, описывающий репозиторий, сохраняющий изменения в журнал упреждающей записи.
+ * <p>
+ * Каждое добавление и удаление дерева, а также каждый добавленный в дерево узел дописываются в конец журнала.
+ * Записи сбрасываются на диск группами: один вызов fsync подтверждает все записи, накопленные к этому моменту.
+ * Когда журнал разрастается, состояние репозитория сохраняется в снимок, и журнал начинается заново.
+ * При запуске загружается снимок, а затем повторяются записи журнала; недописанная запись в конце журнала
+ * после сбоя отбрасывается.
+ */
+public class JournaledGenealogicalTreeRepository implements IGenealogicalTreeRepository, Closeable {
+
+    /**
+     * Имя файла снимка.
+     */
+    private static final String SNAPSHOT = "snapshot.bin";
+
+    /**
+     * Префикс имени файла журнала. Полное имя содержит поколение журнала.
+     */
+    private static final String JOURNAL_PREFIX = "journal-";
+
+    /**
+     * Расширение файла журнала.
+     */
+    private static final String JOURNAL_EXTENSION = ".log";
+
+    /**
+     * Сигнатура файла снимка.
+     */
+    private static final int SNAPSHOT_MAGIC = 0x4E535447;
+
+    /**
+     * Размер заголовка снимка: сигнатура, поколение журнала, счетчик идентификаторов и количество деревьев.
+     */
+    private static final int SNAPSHOT_HEADER_SIZE = Integer.BYTES * 3 + Long.BYTES;
+
+    /**
+     * Размер префикса дерева в снимке: идентификатор и длина.
+     */
+    private static final int SNAPSHOT_ENTRY_SIZE = Integer.BYTES + Long.BYTES;
+
+    /**
+     * Размер заголовка записи журнала: длина и контрольная сумма.
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /**
+     * Тип записи добавления дерева.
+     */
+    private static final byte ADD = 1;
+
+    /**
+     * Тип записи удаления дерева.
+     */
+    private static final byte REMOVE = 2;
+
+    /**
+     * Тип записи добавления узла.
+     */
+    private static final byte NODE = 3;
+
+    /**
+     * Тип записи замены дерева.
+     */
+    private static final byte REPLACE = 4;
+
+    /**
+     * Размер журнала, после которого выполняется сжатие в снимок.
+     */
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+
+    /**
+     * Каталог репозитория.
+     */
+    private final Path directory;
+
+    /**
+     * Индекс объектов генеалогических деревьев по идентификаторам и названиям.
+     */
+    private final EntityIndex<GenealogicalTree> genealogicalTrees;
+
+    /**
+     * Подписчики, журналирующие добавление узлов, по идентификаторам деревьев.
+     */
+    private final Map<Integer, IGenealogicalTreeListener> listeners;
+
+    /**
+     * Интервал фонового сброса журнала на диск в миллисекундах. 0 - каждая операция ждет сброса.
+     */
+    private final long syncInterval;
+
+    /**
+     * Размер журнала, после которого выполняется сжатие в снимок.
+     */
+    private final long compactionThreshold;
+
+    /**
+     * Счетчик идентификаторов деревьев.
+     */
+    private int idCounter;
+
+    /**
+     * Поколение текущего журнала.
+     */
+    private long generation;
+
+    /**
+     * Канал текущего журнала.
+     */
+    private FileChannel journal;
+
+    /**
+     * Записи, добавленные в журнал, но еще не записанные в файл.
+     */
+    private ByteBuffer pending;
+
+    /**
+     * Номер последней добавленной записи.
+     */
+    private long appended;
+
+    /**
+     * Номер последней записи, сброшенной на диск.
+     */
+    private long synced;
+
+    /**
+     * Выполняется ли сейчас сброс журнала одним из потоков.
+     */
+    private boolean syncing;
+
+    /**
+     * Ошибка сброса журнала на диск, после которой журнал не удалось обрезать до последней целой записи.
+     * Пока ошибка не сброшена сжатием, записи в поврежденный журнал не дописываются, а следующая операция
+     * записи или закрытие репозитория сохраняют состояние в новый снимок.
+     */
+    private IOException flushFailure;
+
+    /**
+     * Поток фонового сброса журнала.
+     */
+    private final Thread flusher;
+
+    /**
+     * Закрыт ли репозиторий.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Инициализация репозитория, в котором каждая операция ждет сброса журнала на диск.
+     * @param directory Каталог репозитория. Создается, если не существует.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован.
+     * @throws IOException Возбуждается при ошибке чтения снимка или журнала.
+     */
+    public JournaledGenealogicalTreeRepository(Path directory) throws IllegalArgumentException, IOException {
+        this(directory, 0, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Инициализация репозитория с восстановлением состояния из снимка и журнала.
+     * @param directory Каталог репозитория. Создается, если не существует.
+     * @param syncInterval Интервал фонового сброса журнала в миллисекундах. Если 0, каждая операция ждет,
+     *                     пока ее запись будет сброшена на диск вместе с записями других потоков; иначе операции
+     *                     не ждут, а при сбое могут быть потеряны изменения последнего интервала.
+     * @param compactionThreshold Размер журнала в байтах, после которого выполняется сжатие в снимок.
+     * @throws IllegalArgumentException Возбуждается, если параметр не инициализирован или невалиден.
+     * @throws IOException Возбуждается при ошибке чтения снимка или журнала.
+     */
+    public JournaledGenealogicalTreeRepository(Path directory, long syncInterval, long compactionThreshold)
+            throws IllegalArgumentException, IOException {
+
+        if (directory == null)
+            throw new IllegalArgumentException("Передан неинициализированный объект.");
+
+        if (syncInterval < 0 || compactionThreshold <= 0)
+            throw new IllegalArgumentException("Невалидные параметры журнала.");
+
+        this.directory = directory;
+        this.syncInterval = syncInterval;
+        this.compactionThreshold = compactionThreshold;
+        genealogicalTrees = new EntityIndex<>();
+        listeners = new HashMap<>();
+        pending = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        Files.createDirectories(directory);
+        loadSnapshot();
+        replayJournal();
+        deleteStaleJournals();
+
+        for (int id: genealogicalTrees.getAll().keySet())
+            listen(id);
+
+        if (syncInterval > 0) {
+            flusher = new Thread(this::flushPeriodically, "genealogical-tree-journal");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Метод добавления генеалогического дерева в репозиторий.
+     * @param entity Объект генеалогического дерева.
+     * @return Идентификатор добавленного дерева или -1, если дерево не инициализировано.
+     * @throws UncheckedIOException Возбуждается при ошибке записи журнала.
+     */
+    @Override
+    public int add(GenealogicalTree entity) throws UncheckedIOException {
+        if (entity == null)
+            return -1;
+
+        int id;
+        long seq;
+        synchronized (this) {
+            id = idCounter++;
+            genealogicalTrees.put(id, entity);
+            listen(id);
+            seq = appendTree(ADD, id, entity);
+        }
+        commit(seq);
+        return id;
+    }
+
+    /**
+     * Метод замены генеалогического дерева другим деревом с тем же идентификатором.
+     * Новое дерево записывается в журнал целиком, а журналирование узлов прежнего дерева прекращается.
+     * @param id Идентификатор заменяемого дерева.
+     * @param entity Новый объект генеалогического дерева.
+     * @return true, если дерево заменено.
+     * @throws UncheckedIOException Возбуждается при ошибке записи журнала.
+     */
+    @Override
+    public boolean replace(int id, GenealogicalTree entity) throws UncheckedIOException {
+        if (entity == null)
+            return false;
+
+        long seq;
+        synchronized (this) {
+            GenealogicalTree previous = genealogicalTrees.replace(id, entity);
+            if (previous == null)
+                return false;
+
+            previous.removeListener(listeners.remove(id));
+            listen(id);
+            seq = appendTree(REPLACE, id, entity);
+        }
+        commit(seq);
+        return true;
+    }
+
+    /**
+     * Метод получения объекта генеалогического дерева из репозитория.
+     * @param id Идентификатор гееалогического дерева.
+     * @return Возвращаемый объект.
+     */
+    @Override
+    public synchronized GenealogicalTree get(int id) {
+        return genealogicalTrees.get(id);
+    }
+
+    /**
+     * Метод получения всех генеалогических деревьев из репозитория.
+     * @return Генеалогические деревья по идентификаторам.
+     */
+    @Override
+    public synchronized Map<Integer, GenealogicalTree> getAll() {
+        return genealogicalTrees.getAll();
+    }
+
+    /**
+     * Метод поиска генеалогических деревьев по названию.
+     * @param name Название дерева.
+     * @return Генеалогические деревья с указанным названием по идентификаторам.
+     */
+    @Override
+    public synchronized Map<Integer, GenealogicalTree> findByName(String name) {
+        return genealogicalTrees.findByName(name);
+    }
+
+    /**
+     * Метод сохранения изменений генеалогического дерева.
+     * Добавленные узлы уже записаны в журнал подписчиком дерева; метод дожидается их сброса на диск
+     * вместе с записями других потоков и при необходимости сжимает журнал.
+     * @param entity Объект генеалогического дерева.
+     * @throws UncheckedIOException Возбуждается при ошибке записи журнала.
+     */
+    @Override
+    public void update(GenealogicalTree entity) throws UncheckedIOException {
+        long seq;
+        synchronized (this) {
+            seq = appended;
+        }
+        commit(seq);
+    }
+
+    /**
+     * Метод удаления генеалгического дерева из репозитория.
+     * @param id Идентификатор негеалогического дерева.
+     * @throws UncheckedIOException Возбуждается при ошибке записи журнала.
+     */
+    @Override
+    public void remove(int id) throws UncheckedIOException {
+        long seq;
+        synchronized (this) {
+            GenealogicalTree genealogicalTree = genealogicalTrees.remove(id);
+            if (genealogicalTree == null)
+                return;
+
+            genealogicalTree.removeListener(listeners.remove(id));
+            ByteBuffer record = record(REMOVE, Integer.BYTES);
+            record.putInt(id);
+            seq = append(record);
+        }
+        commit(seq);
+    }
+
+    /**
+     * Метод сжатия журнала: текущее состояние сохраняется в снимок, и журнал начинается заново.
+     * Снимок содержит и накопленные записи, и записи, не сброшенные из-за ошибки, поэтому они в старый
+     * журнал не дописываются, а после сжатия ошибка сброса больше не передается.
+     * @throws UncheckedIOException Возбуждается при ошибке записи снимка или прерывании ожидания сброса.
+     */
+    public synchronized void compact() throws UncheckedIOException {
+        try {
+            while (syncing)
+                wait();
+
+            long next = generation + 1;
+            Path temp = directory.resolve(SNAPSHOT + ".tmp");
+            Map<Integer, Integer> sizes = new HashMap<>();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeSnapshot(channel, next, sizes);
+                channel.force(true);
+            }
+
+            FileChannel nextJournal = openJournal(next);
+            Files.move(temp, directory.resolve(SNAPSHOT),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            journal.close();
+            journal = nextJournal;
+            generation = next;
+            pending.clear();
+            synced = appended;
+            flushFailure = null;
+            notifyAll();
+            deleteStaleJournals();
+
+            for (var entry: sizes.entrySet())
+                appendTail(entry.getKey(), genealogicalTrees.get(entry.getKey()), entry.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Ожидание сброса журнала прервано."));
+        }
+    }
+
+    /**
+     * Метод закрытия репозитория со сбросом журнала на диск. Если журнал поврежден ошибкой сброса,
+     * перед закрытием выполняется сжатие.
+     * @throws IOException Возбуждается при ошибке записи журнала, в том числе если сжатие поврежденного
+     * журнала не удалось.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            try {
+                if (flushFailure != null && !closed)
+                    compact();
+            } catch (UncheckedIOException e) {
+                flushFailure.addSuppressed(e.getCause());
+            }
+        }
+
+        closed = true;
+        if (flusher != null)
+            flusher.interrupt();
+
+        synchronized (this) {
+            try {
+                while (syncing)
+                    wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                if (flushFailure == null) {
+                    writePending();
+                    journal.force(false);
+                    synced = appended;
+                }
+            } finally {
+                journal.close();
+            }
+            if (flushFailure != null)
+                throw new IOException("Ошибка сброса журнала на диск.", flushFailure);
+        }
+    }
+
+    /**
+     * Метод подписки на добавление узлов в дерево с записью их в журнал.
+     * @param id Идентификатор дерева.
+     */
+    private void listen(int id) {
+        IGenealogicalTreeListener listener = node -> journalNode(id, node);
+        genealogicalTrees.get(id).addListener(listener);
+        listeners.put(id, listener);
+    }
+
+    /**
+     * Метод записи добавленного узла в журнал. Подписчик только добавляет запись в буфер журнала,
+     * не дожидаясь сброса на диск, - сброс выполняет {@link #update(GenealogicalTree)}.
+     * @param treeId Идентификатор дерева.
+     * @param node Добавленный узел.
+     */
+    private synchronized void journalNode(int treeId, GenealogicalTreeNode node) {
+        if (!closed)
+            appendNode(treeId, node);
+    }
+
+    /**
+     * Метод добавления записи об узле в буфер журнала. Вызывается под блокировкой репозитория.
+     * @param treeId Идентификатор дерева.
+     * @param node Узел.
+     * @return Номер записи.
+     */
+    private long appendNode(int treeId, GenealogicalTreeNode node) {
+        byte[] name = node.getPerson().getName().getBytes(StandardCharsets.UTF_8);
+        GenealogicalTreeNode father = node.getFather();
+        GenealogicalTreeNode mother = node.getMother();
+
+        ByteBuffer record = record(NODE, 5 * Integer.BYTES + 1 + name.length);
+        record.putInt(treeId)
+                .putInt(node.getId())
+                .putInt(father == null ? 0 : father.getId())
+                .putInt(mother == null ? 0 : mother.getId())
+                .put((byte) node.getPerson().getGender().ordinal())
+                .putInt(name.length)
+                .put(name);
+        return append(record);
+    }
+
+    /**
+     * Метод добавления записи с деревом целиком и узлами, добавленными во время его сохранения.
+     * Вызывается под блокировкой репозитория после подписки на дерево.
+     * @param type Тип записи: добавление или замена дерева.
+     * @param treeId Идентификатор дерева.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @return Номер последней записи журнала.
+     * @throws UncheckedIOException Возбуждается при ошибке сохранения дерева.
+     */
+    private long appendTree(byte type, int treeId, GenealogicalTree genealogicalTree) throws UncheckedIOException {
+        int size = genealogicalTree.size();
+        ByteArrayOutputStream tree = new ByteArrayOutputStream();
+        try {
+            GenealogicalTreeFormat.write(genealogicalTree, Channels.newChannel(tree));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ByteBuffer record = record(type, Integer.BYTES + tree.size());
+        record.putInt(treeId).put(tree.toByteArray());
+        append(record);
+        return appendTail(treeId, genealogicalTree, size);
+    }
+
+    /**
+     * Метод дозаписи узлов, добавленных другими потоками во время сохранения дерева целиком.
+     * Узел, подписчики которого уже уведомлялись до подписки репозитория, еще не входит в размер дерева,
+     * поэтому узлы после сохраненного размера, уже находящиеся в хранилище, записываются повторно.
+     * Дубликаты пропускаются при восстановлении. Вызывается под блокировкой репозитория.
+     * @param treeId Идентификатор дерева.
+     * @param genealogicalTree Объект генеалогического дерева.
+     * @param size Размер дерева, прочитанный до его сохранения.
+     * @return Номер последней записи журнала.
+     */
+    private long appendTail(int treeId, GenealogicalTree genealogicalTree, int size) {
+        GenealogicalTreeNode node;
+        for (int id = size + 1; (node = genealogicalTree.findNode(id)) != null; id++)
+            appendNode(treeId, node);
+        return appended;
+    }
+
+    /**
+     * Метод создания буфера записи журнала.
+     * @param type Тип записи.
+     * @param payload Размер данных записи без типа.
+     * @return Буфер, в который остается записать данные.
+     */
+    private static ByteBuffer record(byte type, int payload) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + 1 + payload).order(ByteOrder.LITTLE_ENDIAN);
+        record.position(RECORD_HEADER_SIZE);
+        record.put(type);
+        return record;
+    }
+
+    /**
+     * Метод добавления записи в буфер журнала. Вызывается под блокировкой репозитория.
+     * @param record Заполненный буфер записи.
+     * @return Номер записи.
+     */
+    private long append(ByteBuffer record) {
+        if (closed)
+            throw new IllegalStateException("Репозиторий закрыт.");
+
+        int length = record.position() - RECORD_HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_SIZE, length);
+        record.putInt(0, length).putInt(4, (int) crc.getValue());
+        record.flip();
+
+        if (pending.remaining() < record.remaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() << 1, pending.position() + record.remaining()))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            pending.flip();
+            pending = grown.put(pending);
+        }
+        pending.put(record);
+        return ++appended;
+    }
+
+    /**
+     * Метод подтверждения записи. Если сброс выполняется синхронно, поток ждет, пока запись будет сброшена
+     * на диск. Первый ожидающий поток сбрасывает записи всех потоков одним вызовом fsync.
+     * Если журнал поврежден ошибкой сброса, в том числе фонового, запись сохраняется сжатием в новый снимок.
+     * @param seq Номер записи.
+     * @throws UncheckedIOException Возбуждается при ошибке записи журнала, которую не удалось исправить сжатием,
+     * или при прерывании ожидания сброса.
+     */
+    private void commit(long seq) throws UncheckedIOException {
+        if (syncInterval == 0) {
+            try {
+                sync(seq);
+            } catch (UncheckedIOException e) {
+                synchronized (this) {
+                    if (flushFailure == null)
+                        throw e;
+                }
+            }
+        }
+
+        boolean compact;
+        synchronized (this) {
+            try {
+                compact = flushFailure != null || journal.size() + pending.position() > compactionThreshold;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (compact)
+            compact();
+    }
+
+    /**
+     * Метод группового сброса журнала на диск до указанной записи включительно.
+     * При ошибке журнал обрезается до начала сбрасываемых записей, а записи возвращаются в начало буфера
+     * и сбрасываются следующим вызовом. Если журнал обрезать не удалось, ошибка сохраняется, и журнал
+     * больше не дописывается до сжатия.
+     * @param seq Номер записи.
+     * @throws UncheckedIOException Возбуждается при ошибке записи журнала или прерывании ожидания сброса.
+     */
+    private void sync(long seq) throws UncheckedIOException {
+        long start;
+        long target;
+        ByteBuffer batch;
+        synchronized (this) {
+            try {
+                while (synced < seq && syncing)
+                    wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Ожидание сброса журнала прервано."));
+            }
+            if (synced >= seq)
+                return;
+
+            if (flushFailure != null)
+                throw new UncheckedIOException("Ошибка сброса журнала на диск.", flushFailure);
+            try {
+                start = journal.position();
+            } catch (IOException e) {
+                fail(e);
+                throw new UncheckedIOException(e);
+            }
+
+            syncing = true;
+            target = appended;
+            pending.flip();
+            batch = ByteBuffer.allocate(pending.remaining()).put(pending).flip();
+            pending.clear();
+        }
+
+        boolean written = false;
+        try {
+            while (batch.hasRemaining())
+                journal.write(batch);
+            journal.force(false);
+            written = true;
+        } catch (IOException e) {
+            synchronized (this) {
+                restore(start, batch, e);
+            }
+            throw new UncheckedIOException(e);
+        } finally {
+            synchronized (this) {
+                syncing = false;
+                if (written)
+                    synced = Math.max(synced, target);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Метод восстановления журнала после ошибки сброса: журнал обрезается до начала неудачно сброшенных
+     * записей, чтобы следующие записи не оказались после оборванной, а сами записи возвращаются в начало
+     * буфера перед добавленными во время сброса. Вызывается под блокировкой репозитория.
+     * @param start Размер журнала до сброса.
+     * @param batch Неудачно сброшенные записи.
+     * @param failure Ошибка сброса. Если журнал обрезать не удалось, сохраняется до сжатия.
+     */
+    private void restore(long start, ByteBuffer batch, IOException failure) {
+        try {
+            journal.truncate(start);
+            journal.position(start);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+            fail(failure);
+        }
+
+        batch.rewind();
+        pending.flip();
+        pending = ByteBuffer.allocate(Math.max(pending.capacity(), batch.remaining() + pending.remaining()))
+                .order(ByteOrder.LITTLE_ENDIAN).put(batch).put(pending);
+    }
+
+    /**
+     * Метод сохранения ошибки, после которой журнал нельзя дописывать до сжатия.
+     * Вызывается под блокировкой репозитория.
+     * @param failure Ошибка.
+     */
+    private void fail(IOException failure) {
+        if (flushFailure == null)
+            flushFailure = failure;
+        else
+            flushFailure.addSuppressed(failure);
+    }
+
+    /**
+     * Метод фонового сброса журнала на диск с заданным интервалом.
+     */
+    private void flushPeriodically() {
+        while (!closed) {
+            try {
+                Thread.sleep(syncInterval);
+                long seq;
+                synchronized (this) {
+                    seq = appended;
+                }
+                sync(seq);
+            } catch (InterruptedException e) {
+                return;
+            } catch (UncheckedIOException e) {
+                // Записи возвращены в буфер и будут сброшены повторно, а если журнал поврежден,
+                // его сожмет следующая операция записи или закрытие.
+            }
+        }
+    }
+
+    /**
+     * Метод записи накопленных записей в файл журнала без fsync. Вызывается под блокировкой репозитория.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    private void writePending() throws IOException {
+        pending.flip();
+        while (pending.hasRemaining())
+            journal.write(pending);
+        pending.clear();
+    }
+
+    /**
+     * Метод записи снимка всех деревьев.
+     * @param channel Канал файла снимка.
+     * @param generation Поколение журнала, записи которого следуют за снимком.
+     * @param sizes Размеры деревьев по идентификаторам, прочитанные перед их сохранением. Заполняется методом.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    private void writeSnapshot(FileChannel channel, long generation, Map<Integer, Integer> sizes)
+            throws IOException {
+        Map<Integer, GenealogicalTree> trees = genealogicalTrees.getAll();
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(SNAPSHOT_MAGIC).putLong(generation).putInt(idCounter).putInt(trees.size()).flip();
+        writeFully(channel, header);
+
+        for (var entry: trees.entrySet()) {
+            long start = channel.position();
+            ByteBuffer prefix = ByteBuffer.allocate(SNAPSHOT_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            writeFully(channel, prefix.putInt(entry.getKey()).putLong(0).flip());
+
+            sizes.put(entry.getKey(), entry.getValue().size());
+            GenealogicalTreeFormat.write(entry.getValue(), channel);
+
+            long end = channel.position();
+            prefix.clear();
+            prefix.putLong(0, end - start - SNAPSHOT_ENTRY_SIZE);
+            prefix.limit(Long.BYTES);
+            channel.write(prefix, start + Integer.BYTES);
+        }
+    }
+
+    /**
+     * Метод загрузки снимка, если он существует.
+     * @throws IOException Возбуждается при ошибке чтения или неверном формате снимка.
+     */
+    private void loadSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT);
+        if (!Files.exists(file))
+            return;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, SNAPSHOT_HEADER_SIZE);
+            if (header.getInt() != SNAPSHOT_MAGIC)
+                throw new IOException("Неверный формат снимка.");
+
+            generation = header.getLong();
+            idCounter = header.getInt();
+            int count = header.getInt();
+            for (int i = 0; i < count; i++) {
+                ByteBuffer prefix = readFully(channel, SNAPSHOT_ENTRY_SIZE);
+                int id = prefix.getInt();
+                long length = prefix.getLong();
+                long next = channel.position() + length;
+                genealogicalTrees.put(id, GenealogicalTreeFormat.read(new BoundedChannel(channel, length), length));
+                channel.position(next);
+            }
+        }
+    }
+
+    /**
+     * Метод повтора записей журнала текущего поколения. Журнал обрезается по последней целой записи.
+     * @throws IOException Возбуждается при ошибке чтения журнала.
+     */
+    private void replayJournal() throws IOException {
+        journal = openJournal(generation);
+        long size = journal.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (position + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            journal.read(header, position);
+            int length = header.getInt(0);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > size)
+                break;
+
+            ByteBuffer record = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            while (record.hasRemaining())
+                journal.read(record, position + RECORD_HEADER_SIZE + record.position());
+
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, length);
+            if ((int) crc.getValue() != header.getInt(4))
+                break;
+
+            record.flip();
+            apply(record);
+            position += RECORD_HEADER_SIZE + length;
+        }
+
+        journal.truncate(position);
+        journal.position(position);
+    }
+
+    /**
+     * Метод применения записи журнала к состоянию репозитория.
+     * Узлы, уже вошедшие в снимок, пропускаются, поэтому повтор записи безопасен.
+     * @param record Данные записи, начиная с типа.
+     * @throws IOException Возбуждается при неверном формате записи.
+     */
+    private void apply(ByteBuffer record) throws IOException {
+        byte type = record.get();
+        int treeId = record.getInt();
+        switch (type) {
+            case ADD, REPLACE -> {
+                byte[] tree = new byte[record.remaining()];
+                record.get(tree);
+                GenealogicalTree genealogicalTree =
+                        GenealogicalTreeFormat.read(Channels.newChannel(new ByteArrayInputStream(tree)), tree.length);
+                if (type == ADD || genealogicalTrees.replace(treeId, genealogicalTree) == null)
+                    genealogicalTrees.put(treeId, genealogicalTree);
+                idCounter = Math.max(idCounter, treeId + 1);
+            }
+            case REMOVE -> genealogicalTrees.remove(treeId);
+            case NODE -> {
+                GenealogicalTree genealogicalTree = genealogicalTrees.get(treeId);
+                int id = record.getInt();
+                int fatherId = record.getInt();
+                int motherId = record.getInt();
+                Gender gender = Gender.values()[record.get()];
+                byte[] name = new byte[record.getInt()];
+                record.get(name);
+                if (genealogicalTree == null || id <= genealogicalTree.size())
+                    return;
+
+                String value = new String(name, StandardCharsets.UTF_8);
+                Person person = gender == Gender.male ? new Male(value) : new Female(value);
+                try {
+                    genealogicalTree.restoreNode(id, person, fatherId, motherId);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Запись журнала не соответствует дереву.", e);
+                }
+            }
+            default -> throw new IOException("Неизвестный тип записи журнала.");
+        }
+    }
+
+    /**
+     * Метод открытия файла журнала.
+     * @param generation Поколение журнала.
+     * @return Канал файла журнала.
+     * @throws IOException Возбуждается при ошибке открытия.
+     */
+    private FileChannel openJournal(long generation) throws IOException {
+        Path file = directory.resolve(JOURNAL_PREFIX + generation + JOURNAL_EXTENSION);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    /**
+     * Метод удаления журналов прошлых поколений, уже вошедших в снимок.
+     * @throws IOException Возбуждается при ошибке чтения каталога.
+     */
+    private void deleteStaleJournals() throws IOException {
+        String current = JOURNAL_PREFIX + generation + JOURNAL_EXTENSION;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, JOURNAL_PREFIX + "*" + JOURNAL_EXTENSION)) {
+            for (Path file: stream) {
+                if (!file.getFileName().toString().equals(current))
+                    Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Метод записи буфера в канал целиком.
+     * @param channel Канал.
+     * @param buffer Буфер.
+     * @throws IOException Возбуждается при ошибке записи.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Метод чтения заданного количества байт из канала.
+     * @param channel Канал.
+     * @param length Количество байт.
+     * @return Буфер, готовый к чтению.
+     * @throws IOException Возбуждается при ошибке чтения или преждевременном конце файла.
+     */
+    private static ByteBuffer readFully(FileChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0)
+                throw new IOException("Неожиданный конец снимка.");
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Класс, описывающий канал, читающий не больше заданного количества байт из другого канала.
+     */
+    private static class BoundedChannel implements ReadableByteChannel {
+
+        /**
+         * Исходный канал.
+         */
+        private final ReadableByteChannel channel;
+
+        /**
+         * Количество байт, которое еще можно прочитать.
+         */
+        private long remaining;
+
+        /**
+         * Инициализация канала.
+         * @param channel Исходный канал.
+         * @param length Количество байт, доступных для чтения.
+         */
+        BoundedChannel(ReadableByteChannel channel, long length) {
+            this.channel = channel;
+            remaining = length;
+        }
+
+        /**
+         * Метод чтения из канала не дальше заданной границы.
+         * @param dst Буфер для чтения.
+         * @return Количество прочитанных байт или -1 в конце данных.
+         * @throws IOException Возбуждается при ошибке чтения.
+         */
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (remaining <= 0)
+                return -1;
+
+            int limit = dst.limit();
+            if (dst.remaining() > remaining)
+                dst.limit(dst.position() + (int) remaining);
+            try {
+                int count = channel.read(dst);
+                if (count > 0)
+                    remaining -= count;
+                return count;
+            } finally {
+                dst.limit(limit);
+            }
+        }
+
+        /**
+         * Метод проверки, открыт ли канал.
+         * @return Открыт ли исходный канал.
+         */
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        /**
+         * Метод закрытия канала. Исходный канал остается открытым.
+         */
+        @Override
+        public void close() { }
+    }
+}
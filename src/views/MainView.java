@@ -1,18 +1,36 @@
 package views;
 
 import controllers.GenealogicalTreeController;
+import controllers.GenealogicalTreePager;
 import models.*;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Класс, описывающий главное консольное представление.
  */
 public class MainView {
 
+    /**
+     * Количество строк на странице при выводе ветви дерева.
+     */
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * Количество самых многодетных семей в статистике дерева.
+     */
+    private static final int LARGEST_FAMILIES = 5;
+
     /**
      * Объект контроллера генеалогического дерева.
      */
@@ -23,6 +41,11 @@ public class MainView {
      */
     private final BufferedReader reader;
 
+    /**
+     * Объект буферизованного писателя для вывода больших объемов текста в консоль.
+     */
+    private final BufferedWriter writer;
+
     /**
      * Инициализация представления.
      * @param genealogicalTreeController Экземпляр контроллера для взаимодействия с экземплярами генеалгических деревьев.
@@ -34,6 +57,7 @@ public class MainView {
 
         this.genealogicalTreeController = genealogicalTreeController;
         reader = new BufferedReader(new InputStreamReader(System.in));
+        writer = new BufferedWriter(new OutputStreamWriter(System.out));
     }
 
     /**
@@ -48,27 +72,63 @@ public class MainView {
      */
     private void genealogicalTreeList() throws IOException {
         while (true) {
-            List<GenealogicalTree> genealogicalTrees = genealogicalTreeController.getAll();
+            Map<Integer, GenealogicalTree> genealogicalTrees = genealogicalTreeController.getAll();
             String[] items;
+            int[] ids = new int[genealogicalTrees.size()];
 
             if (genealogicalTrees.size() == 0) {
                 System.out.println("\n\t ** Список пуст. **\n");
-                items = new String[1];
+                items = new String[3];
             } else {
-                items = new String[genealogicalTrees.size() + 1];
-                for (int i = 0; i < genealogicalTrees.size(); i++)
-                    items[i] = genealogicalTrees.get(i).getName();
+                items = new String[genealogicalTrees.size() + 3];
+                int i = 0;
+                for (Map.Entry<Integer, GenealogicalTree> entry: genealogicalTrees.entrySet()) {
+                    ids[i] = entry.getKey();
+                    items[i++] = entry.getValue().getName();
+                }
             }
-            items[items.length - 1] = "Создать дерево";
+            items[items.length - 3] = "Найти человека";
+            items[items.length - 2] = "Создать дерево";
+            items[items.length - 1] = "Импортировать дерево из GEDCOM";
             int selectedItem = selectMenuItem(items, "Выход");
 
             if (selectedItem == -1)
                 return;
-            if (selectedItem == items.length - 1)
+            if (selectedItem == items.length - 3)
+                findPersons();
+            else if (selectedItem == items.length - 2)
                 createGenealogicalTree();
+            else if (selectedItem == items.length - 1)
+                importGedcom();
             else
-                genealogicalTreeMenu(selectedItem);
+                genealogicalTreeMenu(ids[selectedItem]);
+        }
+    }
+
+    /**
+     * Метод поиска людей по имени во всех генеалогических деревьях.
+     */
+    private void findPersons() throws IOException {
+        System.out.print("\nУкажите имя или начало имени: ");
+        String query = reader.readLine();
+        Map<Integer, List<GenealogicalTreeNode>> found = genealogicalTreeController.findPersons(query);
+        if (found.isEmpty()) {
+            System.out.println("\nНикто не найден.");
+            return;
+        }
+
+        for (Map.Entry<Integer, List<GenealogicalTreeNode>> entry: found.entrySet()) {
+            writer.newLine();
+            writer.write(genealogicalTreeController.get(entry.getKey()).getName());
+            writer.write(':');
+            writer.newLine();
+            for (GenealogicalTreeNode node: entry.getValue()) {
+                writer.write("    ");
+                writer.write(node.toString());
+                writer.newLine();
+            }
         }
+        writer.flush();
     }
 
     /**
@@ -84,6 +144,25 @@ public class MainView {
         genealogicalTreeController.add(genealogicalTree);
     }
 
+    /**
+     * Метод импорта генеалогического дерева из файла GEDCOM.
+     */
+    private void importGedcom() throws IOException {
+        System.out.print("\nУкажите путь к файлу GEDCOM: ");
+        String file = reader.readLine();
+        System.out.print("Укажите название дерева: ");
+        String name = reader.readLine();
+        try {
+            GedcomImportResult result = genealogicalTreeController.importGedcom(Path.of(file), name);
+            System.out.printf("%nИмпортировано людей: %d, семей: %d, невосстановленных связей: %d.%n",
+                    result.getIndividuals(), result.getFamilies(), result.getBrokenLinks());
+            System.out.printf("Записей: %d за %.2f с (%.0f записей/с).%n", result.getRecords(),
+                    result.getElapsedNanos() / 1e9, result.getRecordsPerSecond());
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("\nНе удалось импортировать дерево: " + e.getMessage());
+        }
+    }
+
     /**
      * Метод отображения меню генеалогического дерева.
      * @param id Идентификатор генеалогического дерева.
@@ -93,6 +172,12 @@ public class MainView {
             String[] items = new String[] {
                     "Добавить человека",
                     "Показать дерево",
+                    "Показать ветвь",
+                    "Показать поколение",
+                    "Показать статистику",
+                    "Объединить дубликаты",
+                    "Экспортировать дерево",
+                    "Определить родство",
                     "Удалить дерево"
             };
             int selectedItem = selectMenuItem(items, "Назад");
@@ -100,20 +185,183 @@ public class MainView {
                 case -1:
                     return;
                 case 0:
-                    addPerson(id);
+                    try {
+                        addPerson(id);
+                    } catch (UnsupportedOperationException e) {
+                        System.out.println(e.getMessage());
+                    }
                     break;
                 case 1:
                     System.out.println();
                     GenealogicalTree genealogicalTree = genealogicalTreeController.get(id);
-                    System.out.println(genealogicalTreeController.getAllTree(genealogicalTree));
+                    genealogicalTreeController.writeAllTree(genealogicalTree, writer);
+                    writer.newLine();
+                    writer.flush();
                     break;
                 case 2:
+                    showBranch(id);
+                    break;
+                case 3:
+                    showGeneration(id);
+                    break;
+                case 4:
+                    showStatistics(id);
+                    break;
+                case 5:
+                    mergeDuplicates(id);
+                    break;
+                case 6:
+                    exportGenealogicalTree(id);
+                    break;
+                case 7:
+                    showKinship(id);
+                    break;
+                case 8:
                     genealogicalTreeController.remove(id);
                     return;
             }
         }
     }
 
+    /**
+     * Метод постраничного вывода ветви генеалогического дерева.
+     * @param id Идентификатор дерева.
+     */
+    private void showBranch(int id) throws IOException {
+        GenealogicalTree genealogicalTree = genealogicalTreeController.get(id);
+        int rootId = inputNumber("Укажите ID начала ветви: ");
+        int depth = inputNumberInRange("Укажите глубину (0 - только начало ветви, -1 - без ограничения): ",
+                -1, Integer.MAX_VALUE);
+        GenealogicalTreePager pager;
+        try {
+            pager = genealogicalTreeController.openBranch(genealogicalTree, rootId,
+                    depth < 0 ? Integer.MAX_VALUE : depth, PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        while (true) {
+            System.out.println();
+            pager.nextPage(writer);
+            writer.newLine();
+            writer.flush();
+            if (!pager.hasNextPage())
+                return;
+
+            String[] items = new String[] { "Следующая страница" };
+            if (selectMenuItem(items, "Назад") == -1)
+                return;
+        }
+    }
+
+    /**
+     * Метод постраничного вывода людей одного поколения генеалогического дерева.
+     * @param id Идентификатор дерева.
+     */
+    private void showGeneration(int id) throws IOException {
+        GenealogicalTree genealogicalTree = genealogicalTreeController.get(id);
+        int maxGeneration = genealogicalTreeController.getMaxGeneration(genealogicalTree);
+        int generation = inputNumberInRange("Укажите поколение (0 - " + maxGeneration + "): ", 0, maxGeneration);
+        List<GenealogicalTreeNode> nodes = genealogicalTreeController.getGeneration(genealogicalTree, generation);
+
+        System.out.println("\nЛюдей в поколении: " + nodes.size());
+        for (int offset = 0; offset < nodes.size(); offset += PAGE_SIZE) {
+            if (offset > 0 && selectMenuItem(new String[] { "Следующая страница" }, "Назад") == -1)
+                return;
+
+            writer.newLine();
+            for (GenealogicalTreeNode node: nodes.subList(offset, Math.min(offset + PAGE_SIZE, nodes.size()))) {
+                writer.write(node.toString());
+                writer.newLine();
+            }
+            writer.flush();
+        }
+    }
+
+    /**
+     * Метод вывода статистики генеалогического дерева.
+     * @param id Идентификатор дерева.
+     */
+    private void showStatistics(int id) {
+        GenealogicalTreeStatistics statistics = genealogicalTreeController.getStatistics(
+                genealogicalTreeController.get(id), LARGEST_FAMILIES);
+
+        System.out.println("\nЛюдей: " + statistics.getPopulation() + ", из них супругов: " + statistics.getSpouses());
+        System.out.println("Мужчин: " + statistics.getMales() + ", женщин: " + statistics.getFemales());
+        System.out.println("Наибольшая глубина: " + statistics.getMaxDepth());
+        System.out.printf("Семей: %d, детей в семье в среднем: %.2f%n",
+                statistics.getFamilies(), statistics.getAverageChildren());
+        if (statistics.getLargestFamilies().isEmpty())
+            return;
+
+        System.out.println("Самые многодетные семьи:");
+        for (Family family: statistics.getLargestFamilies())
+            System.out.println("    " + family);
+    }
+
+    /**
+     * Метод объединения дубликатов генеалогического дерева с заменой дерева деревом без дубликатов.
+     * @param id Идентификатор дерева.
+     */
+    private void mergeDuplicates(int id) {
+        GenealogicalTreeMergeResult result = genealogicalTreeController.mergeDuplicates(id);
+
+        System.out.println("\nОбъединено супругов: " + result.getMergedSpouses()
+                + ", детей: " + result.getMergedChildren());
+        System.out.println("Дерево заменено деревом без дубликатов, людей: " + result.getGenealogicalTree().size());
+    }
+
+    /**
+     * Метод выгрузки генеалогического дерева в файл GEDCOM или CSV.
+     * @param id Идентификатор дерева.
+     */
+    private void exportGenealogicalTree(int id) throws IOException {
+        String[] items = new String[] { "GEDCOM", "CSV" };
+        int selectedItem = selectMenuItem(items, "Отмена");
+        if (selectedItem == -1)
+            return;
+
+        ITreeExporter exporter = selectedItem == 0 ? new GedcomExporter() : new CsvExporter();
+        System.out.print("\nУкажите путь к файлу: ");
+        String file = reader.readLine();
+        try (OutputStream out = Files.newOutputStream(Path.of(file))) {
+            genealogicalTreeController.exportTree(genealogicalTreeController.get(id), exporter, out);
+            System.out.println("\nДерево выгружено.");
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("\nНе удалось выгрузить дерево: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Метод вывода родства двух людей генеалогического дерева.
+     * @param id Идентификатор дерева.
+     */
+    private void showKinship(int id) throws IOException {
+        GenealogicalTree genealogicalTree = genealogicalTreeController.get(id);
+        GenealogicalTreeNode first = genealogicalTreeController.getPerson(genealogicalTree,
+                inputNumber("Укажите ID первого человека: "));
+        GenealogicalTreeNode second = genealogicalTreeController.getPerson(genealogicalTree,
+                inputNumber("Укажите ID второго человека: "));
+        if (first == null || second == null) {
+            System.out.println("Человек с указанным ID не найден.");
+            return;
+        }
+
+        Kinship kinship = genealogicalTreeController.getKinship(genealogicalTree, first, second);
+        if (kinship == null) {
+            System.out.println("\nЛюди не связаны родством.");
+            return;
+        }
+
+        System.out.println("\n" + second.getPerson() + " - " + kinship.getName() + " для " + first.getPerson());
+        if (kinship.isBlood())
+            System.out.println("Степень родства: " + kinship.getDegree());
+        System.out.println("Путь:");
+        for (GenealogicalTreeNode node : kinship.getPath())
+            System.out.println("    " + node);
+    }
+
     /**
      * Метод добавления нового человека в генеалогическое дерево.
      * @param id Идентификатор дерева.